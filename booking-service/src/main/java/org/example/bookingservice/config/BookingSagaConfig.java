@@ -0,0 +1,54 @@
+package org.example.bookingservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.bookingservice.feignclient.HotelServiceClient;
+import org.example.bookingservice.feignclient.PaymentServiceClient;
+import org.example.bookingservice.resilience.RequestHedger;
+import org.example.bookingservice.saga.BookingSaga;
+import org.example.bookingservice.saga.CommandBatchers;
+import org.example.bookingservice.saga.SagaDefinition;
+import org.example.bookingservice.service.RetryBackoffPolicy;
+import org.example.common.codec.JacksonPayloadCodec;
+import org.example.common.codec.PayloadCodec;
+import org.example.common.codec.PayloadFormat;
+import org.example.common.dto.BookingRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class BookingSagaConfig {
+
+    /*
+     * The booking saga the orchestrator runs. With saga.execution.parallel-steps the room reservation
+     * and the payment authorization are sent at the same time instead of one after the other.
+     */
+    @Bean
+    public SagaDefinition<BookingRequest> bookingSaga(HotelServiceClient hotelClient,
+                                                      PaymentServiceClient paymentClient,
+                                                      CommandBatchers commandBatchers,
+                                                      RequestHedger requestHedger,
+                                                      @Value("${saga.execution.parallel-steps:false}") boolean parallelSteps) {
+        return parallelSteps
+                ? BookingSaga.parallel(hotelClient, paymentClient, commandBatchers, requestHedger)
+                : BookingSaga.sequential(hotelClient, paymentClient, commandBatchers, requestHedger);
+    }
+
+    @Bean
+    public RetryBackoffPolicy retryBackoffPolicy(@Value("${saga.retry.initial-delay:5s}") Duration initialDelay,
+                                                 @Value("${saga.retry.multiplier:2.0}") double multiplier,
+                                                 @Value("${saga.retry.max-delay:5m}") Duration maxDelay) {
+        return new RetryBackoffPolicy(initialDelay, multiplier, maxDelay);
+    }
+
+    // Saga data is stored in a compact binary format
+    @Bean
+    public PayloadCodec payloadCodec(ObjectMapper objectMapper,
+                                     @Value("${payload.codec.format:CBOR}") PayloadFormat format,
+                                     @Value("${payload.codec.compress:true}") boolean compress,
+                                     @Value("${payload.codec.compression-threshold:512}") int compressionThreshold) {
+        return new JacksonPayloadCodec(objectMapper, format, compress, compressionThreshold);
+    }
+}
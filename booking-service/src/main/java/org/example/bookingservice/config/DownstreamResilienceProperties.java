@@ -0,0 +1,56 @@
+package org.example.bookingservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Concurrency limit and circuit breaker settings shared by every downstream Feign client.
+ */
+@ConfigurationProperties(prefix = "saga.downstream")
+@Getter
+@Setter
+public class DownstreamResilienceProperties {
+
+    private boolean enabled = true;
+
+    private Limit limit = new Limit();
+
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    @Getter
+    @Setter
+    public static class Limit {
+
+        private int initial = 20;
+
+        private int min = 1;
+
+        private int max = 200;
+
+        // Multiplier applied to the limit after a failed or slow call
+        private double backoffRatio = 0.9;
+
+        // Calls slower than this count as a sign of overload
+        private Duration latencyThreshold = Duration.ofSeconds(2);
+    }
+
+    @Getter
+    @Setter
+    public static class CircuitBreaker {
+
+        // Percentage of failed calls in the window that opens the circuit
+        private int failureRateThreshold = 50;
+
+        private int slidingWindowSize = 20;
+
+        private int minimumCalls = 10;
+
+        private Duration openDuration = Duration.ofSeconds(10);
+
+        // Trial calls let through while half open, all of them must succeed to close the circuit
+        private int halfOpenCalls = 3;
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.bookingservice.config;
+
+import feign.Capability;
+import org.example.bookingservice.resilience.DownstreamGuardCapability;
+import org.example.bookingservice.resilience.DownstreamGuards;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FeignResilienceConfig {
+
+    // Picked up by every Feign client
+    @Bean
+    public Capability downstreamGuardCapability(DownstreamGuards downstreamGuards) {
+        return new DownstreamGuardCapability(downstreamGuards);
+    }
+}
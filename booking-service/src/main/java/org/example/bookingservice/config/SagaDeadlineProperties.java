@@ -0,0 +1,33 @@
+package org.example.bookingservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.example.common.enumerations.SagaState;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * How long a saga may stay in a state before it is considered stuck and retried.
+ * States without an entry under {@code saga.deadline.states} use {@code saga.deadline.default-deadline}.
+ */
+@ConfigurationProperties(prefix = "saga.deadline")
+@Getter
+@Setter
+public class SagaDeadlineProperties {
+
+    private Duration defaultDeadline = Duration.ofMinutes(30);
+
+    private Map<SagaState, Duration> states = new EnumMap<>(SagaState.class);
+
+    // Resolution of the in-memory timing wheel
+    private Duration tick = Duration.ofMillis(100);
+
+    private int wheelSize = 512;
+
+    public Duration deadlineFor(SagaState state) {
+        return states.getOrDefault(state, defaultDeadline);
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.bookingservice.config;
+
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class SagaExecutorConfig {
+
+    /*
+     * Bounded pool that runs saga steps in the background when saga.execution.async is enabled.
+     * Once the queue is full new submissions are rejected instead of piling up on the request threads.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor sagaExecutor(@Value("${saga.executor.core-pool-size:8}") int corePoolSize,
+                                               @Value("${saga.executor.max-pool-size:32}") int maxPoolSize,
+                                               @Value("${saga.executor.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("saga-");
+        executor.setTaskDecorator(mdcPropagatingDecorator());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /*
+     * Runs independent remote calls of a single saga concurrently, e.g. the compensating commands.
+     * Kept apart from the saga executor so a saga waiting on its branches can never starve them.
+     * When saturated a call is rejected and fails like a remote error, running it on the calling thread instead
+     * would escape the branch timeout.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor sagaStepExecutor(@Value("${saga.step-executor.core-pool-size:16}") int corePoolSize,
+                                                   @Value("${saga.step-executor.max-pool-size:64}") int maxPoolSize,
+                                                   @Value("${saga.step-executor.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("saga-step-");
+        executor.setTaskDecorator(mdcPropagatingDecorator());
+        return executor;
+    }
+
+    /*
+     * Runs hedged commands. Without a queue a call always gets a thread right away, so a hedge is never stuck
+     * behind the request it is meant to overtake. When saturated the call runs on the calling thread.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor sagaHedgeExecutor(@Value("${saga.hedge.executor.core-pool-size:8}") int corePoolSize,
+                                                    @Value("${saga.hedge.executor.max-pool-size:64}") int maxPoolSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("saga-hedge-");
+        executor.setTaskDecorator(mdcPropagatingDecorator());
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    /*
+     * Writes queued Server-Sent Events to their clients, off the saga threads that commit the transitions.
+     * A stream whose events cannot be queued is closed and its client reconnects.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor sagaEventExecutor(@Value("${saga.events.executor.core-pool-size:2}") int corePoolSize,
+                                                    @Value("${saga.events.executor.max-pool-size:8}") int maxPoolSize,
+                                                    @Value("${saga.events.executor.queue-capacity:10000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("saga-events-");
+        return executor;
+    }
+
+    // Carries the correlation ID of the submitting request over to the worker thread
+    private static TaskDecorator mdcPropagatingDecorator() {
+        return task -> {
+            Map<String, String> context = MDC.getCopyOfContextMap();
+            return () -> {
+                if (context != null) {
+                    MDC.setContextMap(context);
+                }
+                try {
+                    task.run();
+                } finally {
+                    MDC.clear();
+                }
+            };
+        };
+    }
+}
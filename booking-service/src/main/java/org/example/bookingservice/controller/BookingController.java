@@ -1,17 +1,34 @@
 package org.example.bookingservice.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.example.bookingservice.service.BookingService;
+import org.example.bookingservice.service.SagaEventStreams;
+import org.example.bookingservice.service.SagaOrchestrator;
+import org.example.common.dto.BatchBookingResponse;
 import org.example.common.dto.BookingRequest;
 import org.example.common.dto.BookingResponse;
+import org.example.common.messaging.CommandReply;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/booking")
@@ -19,10 +36,46 @@ import org.springframework.web.bind.annotation.RestController;
 public class BookingController {
 
     private final BookingService bookingService;
+    private final SagaOrchestrator sagaOrchestrator;
+    private final SagaEventStreams sagaEventStreams;
+    private final ObjectMapper objectMapper;
+
+    @Value("${saga.booking-batch.max-size:500}")
+    private int maxBatchSize;
+
+    @Value("${saga.status.max-ids:10000}")
+    private int maxStatusIds;
+
+    @Value("${saga.events.max-ids:100}")
+    private int maxEventSagaIds;
 
     @PostMapping
     public ResponseEntity<BookingResponse> createBooking(@Valid @RequestBody BookingRequest request) {
         BookingResponse response = bookingService.createBooking(request);
+        if (response.isAccepted()) {
+            // Saga runs in the background, progress is tracked through the status endpoint
+            return ResponseEntity.accepted().body(response);
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    // Hundreds of bookings at once: a saga per valid booking is created right away and run in the background
+    @PostMapping("/batch")
+    public ResponseEntity<BatchBookingResponse> createBookings(@RequestBody List<BookingRequest> requests) {
+        if (requests.isEmpty() || requests.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A batch must hold between 1 and " + maxBatchSize + " bookings");
+        }
+        BatchBookingResponse response = bookingService.createBookings(requests);
+        return ResponseEntity.accepted().body(response);
+    }
+
+    @GetMapping("/batch/{batchId}")
+    public ResponseEntity<BatchBookingResponse> getBatchStatus(@PathVariable String batchId) {
+        BatchBookingResponse response = bookingService.getBatchStatus(batchId);
+        if (response.getBookings().isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
         return ResponseEntity.ok(response);
     }
 
@@ -31,4 +84,51 @@ public class BookingController {
         BookingResponse response = bookingService.getBookingStatus(sagaId);
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+
+    // Pushes every transition of the saga instead of being polled, completes once the saga reached a final state
+    @GetMapping(value = "/{sagaId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamEvents(@PathVariable("sagaId") String sagaId) {
+        return ResponseEntity.of(sagaEventStreams.open(List.of(sagaId)));
+    }
+
+    // One stream for many sagas, e.g. those of a batch, completes once all of them reached a final state
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamEvents(@RequestParam("sagaIds") List<String> sagaIds) {
+        // The ids travel in the query string, which has to fit the server's request header limit
+        if (sagaIds.isEmpty() || sagaIds.size() > maxEventSagaIds) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Between 1 and " + maxEventSagaIds + " saga ids can be followed at once");
+        }
+        return ResponseEntity.of(sagaEventStreams.open(sagaIds));
+    }
+
+    // Statuses of many sagas in one call, written out as a JSON array while they are read
+    @PostMapping("/status")
+    public ResponseEntity<StreamingResponseBody> getBookingStatuses(@RequestBody List<String> sagaIds) {
+        if (sagaIds.size() > maxStatusIds) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxStatusIds + " saga ids can be looked up at once");
+        }
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                bookingService.streamBookingStatuses(sagaIds, status -> {
+                    try {
+                        objectMapper.writeValue(generator, status);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    // Replies of hotel-service and payment-service to commands delivered from the outbox
+    @PostMapping("/replies")
+    public ResponseEntity<Void> receiveReply(@RequestBody CommandReply reply) {
+        sagaOrchestrator.handleReply(reply);
+        return ResponseEntity.accepted().build();
+    }
+}
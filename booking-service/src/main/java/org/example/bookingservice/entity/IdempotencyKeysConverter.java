@@ -0,0 +1,39 @@
+package org.example.bookingservice.entity;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stores the idempotency keys of a saga as one JSON object of step name to key.
+ */
+@Converter
+public class IdempotencyKeysConverter implements AttributeConverter<Map<String, String>, String> {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<TreeMap<String, String>> TYPE = new TypeReference<>() {
+    };
+
+    @Override
+    public String convertToDatabaseColumn(Map<String, String> keys) {
+        try {
+            return keys == null || keys.isEmpty() ? null : MAPPER.writeValueAsString(keys);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize idempotency keys", e);
+        }
+    }
+
+    @Override
+    public Map<String, String> convertToEntityAttribute(String column) {
+        try {
+            return column == null ? new TreeMap<>() : MAPPER.readValue(column, TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot read idempotency keys", e);
+        }
+    }
+}
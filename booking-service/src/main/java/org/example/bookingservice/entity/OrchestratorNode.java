@@ -0,0 +1,33 @@
+package org.example.bookingservice.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * A booking-service instance taking part in the background saga sweeps. Nodes that stop
+ * heartbeating drop out of the live set and their share of the sagas moves to the others.
+ */
+@Entity
+@Table(name = "orchestrator_nodes")
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+public class OrchestratorNode {
+    @Id
+    private String nodeId;
+
+    private LocalDateTime lastHeartbeat;
+
+    public OrchestratorNode(String nodeId, LocalDateTime lastHeartbeat) {
+        this.nodeId = nodeId;
+        this.lastHeartbeat = lastHeartbeat;
+    }
+}
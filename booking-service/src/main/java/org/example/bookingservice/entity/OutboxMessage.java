@@ -0,0 +1,98 @@
+package org.example.bookingservice.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.example.bookingservice.enumeration.OutboxStatus;
+import org.hibernate.annotations.DynamicUpdate;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * A saga command waiting in the outbox, written in the same transaction as the saga state change that issues it.
+ * The message id is the command's idempotency key: a retried step resends the same entry, and the reply is
+ * stored on it until the saga picks it up.
+ */
+@Entity
+@DynamicUpdate
+@Table(name = "saga_outbox", indexes = {
+        @Index(name = "idx_saga_outbox_due", columnList = "status, availableAt")
+})
+@Getter
+@Setter
+@ToString(exclude = {"command", "reply"})
+@NoArgsConstructor
+public class OutboxMessage implements Persistable<String> {
+
+    @Id
+    private String messageId;
+
+    private String sagaId;
+    private String destination;
+    private String commandType;
+
+    // The command, encoded by the PayloadCodec
+    @Column(length = 65536, nullable = false)
+    private byte[] command;
+
+    @Enumerated(EnumType.STRING)
+    private OutboxStatus status;
+
+    private int attempts;
+
+    // When the relay may (re)send it next
+    private LocalDateTime availableAt;
+
+    private LocalDateTime createdAt;
+
+    // The reply's CommandResult, encoded by the PayloadCodec, null until the reply arrived
+    @Column(length = 65536)
+    private byte[] reply;
+
+    public OutboxMessage(String messageId, String sagaId, String destination, String commandType, byte[] command) {
+        this.messageId = messageId;
+        this.sagaId = sagaId;
+        this.destination = destination;
+        this.commandType = commandType;
+        this.command = command;
+        this.status = OutboxStatus.PENDING;
+    }
+
+    /**
+     * Queues the command for another delivery, e.g. when the step is retried before any reply arrived.
+     */
+    public void resend(byte[] command) {
+        this.command = command;
+        this.status = OutboxStatus.PENDING;
+        this.availableAt = LocalDateTime.now();
+    }
+
+    @Override
+    public String getId() {
+        return messageId;
+    }
+
+    // The id is assigned, so without this every new entry would be selected before it is inserted
+    @Override
+    public boolean isNew() {
+        return createdAt == null;
+    }
+
+    @PrePersist
+    public void prePersist() {
+        createdAt = LocalDateTime.now();
+        if (availableAt == null) {
+            availableAt = createdAt;
+        }
+    }
+}
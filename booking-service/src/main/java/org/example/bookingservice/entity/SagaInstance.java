@@ -1,80 +1,172 @@
 package org.example.bookingservice.entity;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import jakarta.persistence.Version;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 import org.example.common.enumerations.SagaState;
+import org.example.common.utils.IdempotencyUtils;
 import org.hibernate.Hibernate;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
 
+/**
+ * The mutable state of a saga, rewritten by every state change. Updates only set the columns that changed;
+ * the request the saga was started with is stored once in {@link SagaPayload}.
+ */
 @Entity
-@Table(name = "saga_instances")
+@DynamicUpdate
+@Table(name = "saga_instances", indexes = {
+        @Index(name = "idx_saga_expires_at", columnList = "expiresAt"),
+        @Index(name = "idx_saga_next_retry_at", columnList = "nextRetryAt"),
+        @Index(name = "idx_saga_batch_id", columnList = "batchId")
+})
 @Getter
 @Setter
 @ToString
 @RequiredArgsConstructor
 public class SagaInstance {
+
+    // Sagas are spread over a fixed number of buckets which the live orchestrator nodes divide between them
+    public static final int PARTITION_BUCKETS = 1024;
+
+    // Failed states the retry poller picks up again once nextRetryAt is due
+    public static final Set<SagaState> RETRYABLE_STATES = EnumSet.of(
+            SagaState.ROOM_RESERVATION_FAILED,
+            SagaState.PAYMENT_AUTHORIZATION_FAILED,
+            SagaState.COMPENSATION_FAILED
+    );
+
     @Id
     private String sagaId;
 
     @Enumerated(EnumType.STRING)
     private SagaState state;
 
-    @Column(columnDefinition = "TEXT")
-    private String sagaData;
-
     private String reservationId;
     private String authorizationId;
 
+    // One key per step, generated before the step's first attempt and reused by every retry of it
+    @Convert(converter = IdempotencyKeysConverter.class)
+    @Column(columnDefinition = "TEXT")
+    private Map<String, String> idempotencyKeys = new TreeMap<>();
+
     private int retryCount = 0;
     private int maxRetries = 3;
 
+    // Retries given back because a downstream was out of retry budget, see SagaStateStore.deferRetry
+    private int deferredRetries = 0;
+
+    @Column(updatable = false)
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private LocalDateTime expiresAt;
 
+    @Column(updatable = false)
+    private int partitionBucket;
+
+    // Set for sagas created through the batch booking API, the statuses of a batch are fetched by it
+    @Column(updatable = false)
+    private String batchId;
+
+    // When the next retry is due, null while no retry is scheduled
+    private LocalDateTime nextRetryAt;
+
     @Version
     private Long version;
 
+    // States entered since the last save, appended to saga_state_transitions by SagaStateStore
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private List<StateTransition> unsavedTransitions = new ArrayList<>();
+
+    /**
+     * Generates the idempotency key of {@code step} unless it already has one.
+     * Returns {@code true} if a new key was generated, which must be saved before the step's command is sent.
+     */
+    public boolean assignIdempotencyKey(String step) {
+        if (idempotencyKeys.containsKey(step)) {
+            return false;
+        }
+        idempotencyKeys.put(step, IdempotencyUtils.newKey());
+        return true;
+    }
+
+    public String idempotencyKeyFor(String step) {
+        String key = idempotencyKeys.get(step);
+        if (key == null) {
+            throw new IllegalStateException("No idempotency key assigned to " + step + " of saga " + sagaId);
+        }
+        return key;
+    }
+
+    /**
+     * Moves the saga to {@code newState} and records the transition. Nothing is written until the next save.
+     */
+    public void recordTransition(SagaState newState) {
+        state = newState;
+        unsavedTransitions.add(new StateTransition(newState, LocalDateTime.now()));
+    }
+
+    /**
+     * Returns the transitions recorded since the last call, or since the saga was loaded.
+     */
+    public List<StateTransition> takeUnsavedTransitions() {
+        List<StateTransition> transitions = List.copyOf(unsavedTransitions);
+        unsavedTransitions.clear();
+        return transitions;
+    }
+
     @PrePersist
     public void prePersist() {
+        if (unsavedTransitions.isEmpty() && state != null) {
+            unsavedTransitions.add(new StateTransition(state, LocalDateTime.now()));
+        }
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
-        expiresAt = LocalDateTime.now().plusMinutes(30); // 30 minutes timeout
+        if (expiresAt == null) {
+            expiresAt = LocalDateTime.now().plusMinutes(30); // 30 minutes timeout
+        }
+        partitionBucket = Math.floorMod(sagaId.hashCode(), PARTITION_BUCKETS);
+        alignRetrySchedule();
     }
 
     @PreUpdate
     public void preUpdate() {
         updatedAt = LocalDateTime.now();
+        alignRetrySchedule();
     }
 
-    public boolean canTransitionTo(SagaState newState) {
-        return switch (state) {
-            case STARTED -> newState == SagaState.ROOM_RESERVED ||
-                    newState == SagaState.ROOM_RESERVATION_FAILED ||
-                    newState == SagaState.BOOKING_CANCELLED;
-            case ROOM_RESERVED -> newState == SagaState.PAYMENT_AUTHORIZED ||
-                    newState == SagaState.PAYMENT_AUTHORIZATION_FAILED ||
-                    newState == SagaState.COMPENSATING;
-            case PAYMENT_AUTHORIZED -> newState == SagaState.BOOKING_COMPLETED;
-            case ROOM_RESERVATION_FAILED, PAYMENT_AUTHORIZATION_FAILED -> newState == SagaState.BOOKING_CANCELLED;
-            case COMPENSATING -> newState == SagaState.COMPENSATION_COMPLETED ||
-                    newState == SagaState.COMPENSATION_FAILED;
-            default -> false;
-        };
+    private void alignRetrySchedule() {
+        if (!canRetry() || state == SagaState.BOOKING_COMPLETED || state == SagaState.BOOKING_CANCELLED) {
+            nextRetryAt = null;
+        } else if (nextRetryAt == null && RETRYABLE_STATES.contains(state)) {
+            nextRetryAt = LocalDateTime.now(); // no backoff chosen, retry on the next poll
+        }
     }
 
     public boolean isExpired() {
@@ -0,0 +1,56 @@
+package org.example.bookingservice.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * The request a saga was started with, encoded by the PayloadCodec. It is written once next to the
+ * {@link SagaInstance} and never changes, so it lives apart from the saga row that every state change rewrites.
+ */
+@Entity
+@Table(name = "saga_payloads")
+@Immutable
+@Getter
+@ToString(exclude = "data")
+@NoArgsConstructor
+public class SagaPayload implements Persistable<String> {
+
+    @Id
+    private String sagaId;
+
+    @Column(length = 65536, nullable = false, updatable = false)
+    private byte[] data;
+
+    private LocalDateTime createdAt;
+
+    public SagaPayload(String sagaId, byte[] data) {
+        this.sagaId = sagaId;
+        this.data = data;
+    }
+
+    @Override
+    public String getId() {
+        return sagaId;
+    }
+
+    // The id is assigned, so without this every save would select the row before inserting it
+    @Override
+    public boolean isNew() {
+        return createdAt == null;
+    }
+
+    @PrePersist
+    public void prePersist() {
+        createdAt = LocalDateTime.now();
+    }
+}
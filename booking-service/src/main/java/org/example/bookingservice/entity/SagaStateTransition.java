@@ -0,0 +1,60 @@
+package org.example.bookingservice.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.example.common.enumerations.SagaState;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+/**
+ * One state a saga entered. Rows are only ever appended, in the transaction that moves the saga, so the history
+ * grows in its own table while the {@link SagaInstance} row keeps just the current state.
+ */
+@Entity
+@Table(name = "saga_state_transitions", indexes = {
+        @Index(name = "idx_saga_state_transitions_saga_id", columnList = "sagaId")
+})
+@Immutable
+@Getter
+@ToString
+@NoArgsConstructor
+public class SagaStateTransition {
+
+    // A sequence rather than an identity column, so the transitions of a booking batch are inserted in JDBC batches
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "saga_state_transition_seq")
+    @SequenceGenerator(name = "saga_state_transition_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, updatable = false)
+    private String sagaId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false)
+    private SagaState state;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime enteredAt;
+
+    public SagaStateTransition(String sagaId, StateTransition transition) {
+        this.sagaId = sagaId;
+        this.state = transition.state();
+        this.enteredAt = transition.at();
+    }
+
+    public StateTransition toTransition() {
+        return new StateTransition(state, enteredAt);
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.bookingservice.entity;
+
+import org.example.common.enumerations.SagaState;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of a saga's state history: the state it entered and when.
+ */
+public record StateTransition(SagaState state, LocalDateTime at) {
+}
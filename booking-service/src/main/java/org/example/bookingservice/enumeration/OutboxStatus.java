@@ -0,0 +1,7 @@
+package org.example.bookingservice.enumeration;
+
+public enum OutboxStatus {
+    PENDING,  // waiting for the relay
+    SENT,     // accepted by the destination's inbox
+    REPLIED   // the destination's reply is stored
+}
@@ -4,16 +4,27 @@ import org.example.common.command.CommandResult;
 import org.example.common.command.ReleaseRoomCommand;
 import org.example.common.command.ReserveRoomCommand;
 import org.example.common.dto.ReservationDto;
+import org.example.common.messaging.CommandEnvelope;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 
+import java.util.List;
+
 @FeignClient(name = "hotel-service", url = "${services.hotel.url:http://localhost:8081}")
 public interface HotelServiceClient {
 
     @PostMapping("/api/hotel/reserve")
     CommandResult<ReservationDto> reserveRoom(@RequestBody ReserveRoomCommand command);
 
+    // Results are returned in the order of the commands
+    @PostMapping("/api/hotel/reserve/batch")
+    List<CommandResult<ReservationDto>> reserveRooms(@RequestBody List<ReserveRoomCommand> commands);
+
     @PostMapping("/api/hotel/release")
     CommandResult<Void> releaseRoom(@RequestBody ReleaseRoomCommand command);
-}
\ No newline at end of file
+
+    // Queues a command in the service's inbox, the result comes back to /api/booking/replies
+    @PostMapping("/api/hotel/inbox")
+    void deliver(@RequestBody CommandEnvelope envelope);
+}
@@ -4,16 +4,27 @@ import org.example.common.command.AuthorizePaymentCommand;
 import org.example.common.command.CancelPaymentCommand;
 import org.example.common.command.CommandResult;
 import org.example.common.dto.PaymentAuthorizationDto;
+import org.example.common.messaging.CommandEnvelope;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 
+import java.util.List;
+
 @FeignClient(name = "payment-service", url = "${services.payment.url:http://localhost:8082}")
 public interface PaymentServiceClient {
 
     @PostMapping("/api/payment/authorize")
     CommandResult<PaymentAuthorizationDto> authorizePayment(@RequestBody AuthorizePaymentCommand command);
 
+    // Results are returned in the order of the commands
+    @PostMapping("/api/payment/authorize/batch")
+    List<CommandResult<PaymentAuthorizationDto>> authorizePayments(@RequestBody List<AuthorizePaymentCommand> commands);
+
     @PostMapping("/api/payment/cancel")
     CommandResult<Void> cancelPayment(@RequestBody CancelPaymentCommand command);
-}
\ No newline at end of file
+
+    // Queues a command in the service's inbox, the result comes back to /api/booking/replies
+    @PostMapping("/api/payment/inbox")
+    void deliver(@RequestBody CommandEnvelope envelope);
+}
@@ -0,0 +1,22 @@
+package org.example.bookingservice.repository;
+
+import org.example.bookingservice.entity.OrchestratorNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OrchestratorNodeRepository extends JpaRepository<OrchestratorNode, String> {
+
+    @Query("SELECT n.nodeId FROM OrchestratorNode n WHERE n.lastHeartbeat > :since ORDER BY n.nodeId")
+    List<String> findLiveNodeIds(@Param("since") LocalDateTime since);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM OrchestratorNode n WHERE n.lastHeartbeat < :before")
+    int deleteStaleNodes(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,36 @@
+package org.example.bookingservice.repository;
+
+import org.example.bookingservice.entity.OutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, String> {
+
+    /*
+     * Locks a batch of due messages. Rows another relay has locked are skipped rather than waited for,
+     * so several booking-service nodes relay disjoint batches.
+     * Not ordered, as sorting makes H2 lock every due row rather than the batch. Must run inside a transaction.
+     */
+    @Query(value = "SELECT * FROM saga_outbox WHERE status = 'PENDING' AND available_at <= :now " +
+            "LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxMessage> lockDueMessages(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Only a message still waiting for its delivery is marked, a reply may already have overtaken it
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.status = org.example.bookingservice.enumeration.OutboxStatus.SENT " +
+            "WHERE m.messageId = :messageId AND m.status = org.example.bookingservice.enumeration.OutboxStatus.PENDING")
+    int markSent(@Param("messageId") String messageId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.availableAt = :availableAt WHERE m.messageId = :messageId " +
+            "AND m.status = org.example.bookingservice.enumeration.OutboxStatus.PENDING")
+    int postpone(@Param("messageId") String messageId, @Param("availableAt") LocalDateTime availableAt);
+}
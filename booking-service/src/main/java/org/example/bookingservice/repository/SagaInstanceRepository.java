@@ -2,6 +2,7 @@ package org.example.bookingservice.repository;
 
 import org.example.bookingservice.entity.SagaInstance;
 import org.example.common.enumerations.SagaState;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
@@ -9,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import jakarta.persistence.LockModeType;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,10 +20,67 @@ public interface SagaInstanceRepository extends JpaRepository<SagaInstance, Stri
     @Query("SELECT s FROM SagaInstance s WHERE s.sagaId = :sagaId")
     Optional<SagaInstance> findByIdForUpdate(@Param("sagaId") String sagaId);
 
-    @Query("SELECT s FROM SagaInstance s WHERE s.expiresAt < :now AND s.state NOT IN :finalStates")
-    List<SagaInstance> findExpiredSagas(@Param("now") LocalDateTime now,
-                                        @Param("finalStates") List<SagaState> finalStates);
+    /*
+     * One keyset page of the expired sagas in this node's share of the partition buckets.
+     * Paging on the primary key keeps every page cheap no matter how far into the backlog the scan is.
+     */
+    @Query("SELECT s FROM SagaInstance s WHERE s.expiresAt < :now AND s.state NOT IN :finalStates " +
+            "AND MOD(s.partitionBucket, :partitionCount) = :partitionIndex AND s.sagaId > :afterSagaId " +
+            "ORDER BY s.sagaId")
+    List<SagaInstance> findExpiredSagasPage(@Param("now") LocalDateTime now,
+                                            @Param("finalStates") List<SagaState> finalStates,
+                                            @Param("partitionIndex") int partitionIndex,
+                                            @Param("partitionCount") int partitionCount,
+                                            @Param("afterSagaId") String afterSagaId,
+                                            Limit limit);
 
-    @Query("SELECT s FROM SagaInstance s WHERE s.state IN :states AND s.retryCount < s.maxRetries")
-    List<SagaInstance> findRetryableSagas(@Param("states") List<SagaState> states);
-}
\ No newline at end of file
+    @Query("SELECT s.sagaId AS sagaId, s.expiresAt AS expiresAt FROM SagaInstance s " +
+            "WHERE s.state NOT IN :finalStates AND MOD(s.partitionBucket, :partitionCount) = :partitionIndex " +
+            "AND s.sagaId > :afterSagaId ORDER BY s.sagaId")
+    List<SagaDeadline> findActiveSagaDeadlines(@Param("finalStates") List<SagaState> finalStates,
+                                               @Param("partitionIndex") int partitionIndex,
+                                               @Param("partitionCount") int partitionCount,
+                                               @Param("afterSagaId") String afterSagaId,
+                                               Limit limit);
+
+    // Served by idx_saga_next_retry_at, sagas without a scheduled retry are never touched
+    @Query("SELECT s FROM SagaInstance s WHERE s.nextRetryAt <= :now AND s.retryCount < s.maxRetries " +
+            "AND MOD(s.partitionBucket, :partitionCount) = :partitionIndex ORDER BY s.nextRetryAt")
+    List<SagaInstance> findDueRetries(@Param("now") LocalDateTime now,
+                                      @Param("partitionIndex") int partitionIndex,
+                                      @Param("partitionCount") int partitionCount,
+                                      Limit limit);
+
+    /*
+     * Status lookups select only the columns a status response shows, the state history and idempotency keys are
+     * never read and the payload lives in saga_payloads.
+     */
+    @Query("SELECT s.sagaId AS sagaId, s.state AS state, s.reservationId AS reservationId, " +
+            "s.updatedAt AS updatedAt FROM SagaInstance s WHERE s.sagaId = :sagaId")
+    Optional<SagaStatus> findStatus(@Param("sagaId") String sagaId);
+
+    @Query("SELECT s.sagaId AS sagaId, s.state AS state, s.reservationId AS reservationId, " +
+            "s.updatedAt AS updatedAt FROM SagaInstance s WHERE s.sagaId IN :sagaIds")
+    List<SagaStatus> findStatuses(@Param("sagaIds") Collection<String> sagaIds);
+
+    // Served by idx_saga_batch_id
+    @Query("SELECT s.sagaId AS sagaId, s.state AS state, s.reservationId AS reservationId, " +
+            "s.updatedAt AS updatedAt FROM SagaInstance s WHERE s.batchId = :batchId ORDER BY s.sagaId")
+    List<SagaStatus> findStatusesByBatchId(@Param("batchId") String batchId);
+
+    interface SagaDeadline {
+        String getSagaId();
+
+        LocalDateTime getExpiresAt();
+    }
+
+    interface SagaStatus {
+        String getSagaId();
+
+        SagaState getState();
+
+        String getReservationId();
+
+        LocalDateTime getUpdatedAt();
+    }
+}
@@ -0,0 +1,7 @@
+package org.example.bookingservice.repository;
+
+import org.example.bookingservice.entity.SagaPayload;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface SagaPayloadRepository extends JpaRepository<SagaPayload, String> {
+}
@@ -0,0 +1,12 @@
+package org.example.bookingservice.repository;
+
+import org.example.bookingservice.entity.SagaStateTransition;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface SagaStateTransitionRepository extends JpaRepository<SagaStateTransition, Long> {
+
+    // Oldest first. Ids are handed out in blocks per node, so they only break ties between equal timestamps
+    List<SagaStateTransition> findBySagaIdOrderByEnteredAtAscIdAsc(String sagaId);
+}
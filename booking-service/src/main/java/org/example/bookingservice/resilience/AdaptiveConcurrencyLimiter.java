@@ -0,0 +1,65 @@
+package org.example.bookingservice.resilience;
+
+/**
+ * AIMD concurrency limit: every call that comes back in time while the limit is actually in use raises the
+ * limit by one, every failed or slow call multiplies it by {@code backoffRatio}. Calls over the limit are
+ * rejected right away instead of queueing behind a downstream that is already slow.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+
+    private double limit;
+    private int inFlight;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+                                      long latencyThresholdNanos) {
+        if (minLimit < 1 || maxLimit < minLimit || backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= max and the backoff ratio lie in (0, 1)");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Completes an acquired call and adjusts the limit to its outcome.
+     */
+    public synchronized void release(boolean success, long latencyNanos) {
+        int callsInFlight = inFlight--;
+        if (!success || latencyNanos > latencyThresholdNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (callsInFlight * 2 >= limit) {
+            // Only grow while at least half the limit is in use, an idle limit says nothing about capacity
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    /**
+     * Gives back an acquired call that was never sent, without touching the limit.
+     */
+    public synchronized void cancel() {
+        inFlight--;
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.bookingservice.resilience;
+
+/**
+ * Thrown instead of sending a command, so the downstream has definitely not seen it.
+ */
+public class CallNotPermittedException extends RuntimeException {
+
+    private final boolean circuitOpen;
+
+    public CallNotPermittedException(String downstream, boolean circuitOpen) {
+        super(circuitOpen
+                ? "Circuit breaker for " + downstream + " is open"
+                : "Concurrency limit for " + downstream + " reached");
+        this.circuitOpen = circuitOpen;
+    }
+
+    public boolean isCircuitOpen() {
+        return circuitOpen;
+    }
+}
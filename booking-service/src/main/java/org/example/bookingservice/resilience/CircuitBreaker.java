@@ -0,0 +1,121 @@
+package org.example.bookingservice.resilience;
+
+import io.micrometer.core.instrument.Clock;
+
+import java.time.Duration;
+
+/**
+ * Count based circuit breaker. It opens once the failure rate over the last {@code slidingWindowSize} calls
+ * reaches the threshold, rejects every call for {@code openDuration}, then lets a few trial calls through.
+ * The circuit closes when all trial calls succeed and opens again on the first failed one.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureRateThreshold;
+    private final int minimumCalls;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+    private final Clock clock;
+
+    private final boolean[] window;
+    private int windowPosition;
+    private int windowCalls;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private int trialsInFlight;
+    private int trialSuccesses;
+
+    public CircuitBreaker(int failureRateThreshold, int slidingWindowSize, int minimumCalls,
+                          Duration openDuration, int halfOpenCalls) {
+        this(failureRateThreshold, slidingWindowSize, minimumCalls, openDuration, halfOpenCalls, Clock.SYSTEM);
+    }
+
+    public CircuitBreaker(int failureRateThreshold, int slidingWindowSize, int minimumCalls,
+                          Duration openDuration, int halfOpenCalls, Clock clock) {
+        if (slidingWindowSize < 1 || minimumCalls < 1 || halfOpenCalls < 1) {
+            throw new IllegalArgumentException("Window size, minimum calls and half open calls must be positive");
+        }
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = Math.min(minimumCalls, slidingWindowSize);
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.clock = clock;
+        this.window = new boolean[slidingWindowSize];
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.monotonicTime() - openedAtNanos < openDurationNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trialsInFlight = 0;
+            trialSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsInFlight + trialSuccesses >= halfOpenCalls) {
+                return false;
+            }
+            trialsInFlight++;
+        }
+        return true;
+    }
+
+    public synchronized void record(boolean success) {
+        switch (state) {
+            case CLOSED -> recordInWindow(success);
+            case HALF_OPEN -> {
+                trialsInFlight = Math.max(0, trialsInFlight - 1);
+                if (!success) {
+                    open();
+                } else if (++trialSuccesses >= halfOpenCalls) {
+                    close();
+                }
+            }
+            case OPEN -> {
+                // Outcome of a call sent before the circuit opened
+            }
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    private void recordInWindow(boolean success) {
+        if (windowCalls == window.length) {
+            if (window[windowPosition]) {
+                windowFailures--;
+            }
+        } else {
+            windowCalls++;
+        }
+        window[windowPosition] = !success;
+        if (!success) {
+            windowFailures++;
+        }
+        windowPosition = (windowPosition + 1) % window.length;
+
+        if (windowCalls >= minimumCalls && windowFailures * 100 >= failureRateThreshold * windowCalls) {
+            open();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAtNanos = clock.monotonicTime();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        windowPosition = 0;
+        windowCalls = 0;
+        windowFailures = 0;
+    }
+}
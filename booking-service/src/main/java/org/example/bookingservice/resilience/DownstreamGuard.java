@@ -0,0 +1,54 @@
+package org.example.bookingservice.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency limiter and circuit breaker for one downstream service.
+ */
+public class DownstreamGuard {
+
+    private final String downstream;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final CircuitBreaker circuitBreaker;
+    private final AtomicLong rejectedByLimit = new AtomicLong();
+    private final AtomicLong rejectedByCircuit = new AtomicLong();
+
+    public DownstreamGuard(String downstream, AdaptiveConcurrencyLimiter limiter, CircuitBreaker circuitBreaker) {
+        this.downstream = downstream;
+        this.limiter = limiter;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Admits one call or throws {@link CallNotPermittedException}. Every admitted call must be completed
+     * through {@link #complete(boolean, long)}.
+     */
+    public void acquire() {
+        if (!limiter.tryAcquire()) {
+            rejectedByLimit.incrementAndGet();
+            throw new CallNotPermittedException(downstream, false);
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            limiter.cancel();
+            rejectedByCircuit.incrementAndGet();
+            throw new CallNotPermittedException(downstream, true);
+        }
+    }
+
+    public void complete(boolean success, long latencyNanos) {
+        limiter.release(success, latencyNanos);
+        circuitBreaker.record(success);
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(limiter.limit(), limiter.inFlight(), circuitBreaker.state(),
+                rejectedByLimit.get(), rejectedByCircuit.get());
+    }
+
+    public record Snapshot(int limit,
+                           int inFlight,
+                           CircuitBreaker.State circuitState,
+                           long rejectedByLimit,
+                           long rejectedByCircuit) {
+    }
+}
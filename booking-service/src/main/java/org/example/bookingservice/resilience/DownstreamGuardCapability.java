@@ -0,0 +1,22 @@
+package org.example.bookingservice.resilience;
+
+import feign.Capability;
+import feign.Client;
+
+/**
+ * Wraps the HTTP client of every Feign client in the limiter and circuit breaker of its downstream.
+ * Feign invokes capabilities reflectively, so this has to be a public class.
+ */
+public class DownstreamGuardCapability implements Capability {
+
+    private final DownstreamGuards downstreamGuards;
+
+    public DownstreamGuardCapability(DownstreamGuards downstreamGuards) {
+        this.downstreamGuards = downstreamGuards;
+    }
+
+    @Override
+    public Client enrich(Client client) {
+        return new GuardedClient(client, downstreamGuards);
+    }
+}
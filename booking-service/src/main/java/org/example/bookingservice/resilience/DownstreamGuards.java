@@ -0,0 +1,73 @@
+package org.example.bookingservice.resilience;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.example.bookingservice.config.DownstreamResilienceProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * One DownstreamGuard per Feign client name, created on the first call and published as metrics.
+ */
+@Component
+@RequiredArgsConstructor
+public class DownstreamGuards {
+
+    private final DownstreamResilienceProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, DownstreamGuard> guards = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public DownstreamGuard guard(String downstream) {
+        return guards.computeIfAbsent(downstream, this::createGuard);
+    }
+
+    public Map<String, DownstreamGuard.Snapshot> snapshot() {
+        Map<String, DownstreamGuard.Snapshot> snapshot = new TreeMap<>();
+        guards.forEach((downstream, guard) -> snapshot.put(downstream, guard.snapshot()));
+        return snapshot;
+    }
+
+    private DownstreamGuard createGuard(String downstream) {
+        DownstreamResilienceProperties.Limit limit = properties.getLimit();
+        DownstreamResilienceProperties.CircuitBreaker breaker = properties.getCircuitBreaker();
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(limit.getInitial(), limit.getMin(),
+                limit.getMax(), limit.getBackoffRatio(), limit.getLatencyThreshold().toNanos());
+        CircuitBreaker circuitBreaker = new CircuitBreaker(breaker.getFailureRateThreshold(),
+                breaker.getSlidingWindowSize(), breaker.getMinimumCalls(), breaker.getOpenDuration(),
+                breaker.getHalfOpenCalls());
+        DownstreamGuard guard = new DownstreamGuard(downstream, limiter, circuitBreaker);
+
+        Gauge.builder("saga.downstream.limit", limiter, AdaptiveConcurrencyLimiter::limit)
+                .description("Current adaptive concurrency limit")
+                .tag("downstream", downstream)
+                .register(meterRegistry);
+        Gauge.builder("saga.downstream.in-flight", limiter, AdaptiveConcurrencyLimiter::inFlight)
+                .description("Calls currently in flight")
+                .tag("downstream", downstream)
+                .register(meterRegistry);
+        Gauge.builder("saga.downstream.circuit.open", circuitBreaker,
+                        cb -> cb.state() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .description("1 while the circuit breaker is open or half open")
+                .tag("downstream", downstream)
+                .register(meterRegistry);
+        FunctionCounter.builder("saga.downstream.rejected", guard, g -> g.snapshot().rejectedByLimit())
+                .description("Calls rejected without being sent")
+                .tags("downstream", downstream, "reason", "limit")
+                .register(meterRegistry);
+        FunctionCounter.builder("saga.downstream.rejected", guard, g -> g.snapshot().rejectedByCircuit())
+                .description("Calls rejected without being sent")
+                .tags("downstream", downstream, "reason", "circuit-open")
+                .register(meterRegistry);
+        return guard;
+    }
+}
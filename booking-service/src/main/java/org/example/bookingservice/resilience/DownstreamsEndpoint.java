@@ -0,0 +1,24 @@
+package org.example.bookingservice.resilience;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code /actuator/downstreams}: concurrency limit, calls in flight, circuit state and rejections per downstream.
+ */
+@Component
+@Endpoint(id = "downstreams")
+@RequiredArgsConstructor
+public class DownstreamsEndpoint {
+
+    private final DownstreamGuards downstreamGuards;
+
+    @ReadOperation
+    public Map<String, DownstreamGuard.Snapshot> downstreams() {
+        return downstreamGuards.snapshot();
+    }
+}
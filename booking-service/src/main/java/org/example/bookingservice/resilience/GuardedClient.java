@@ -0,0 +1,42 @@
+package org.example.bookingservice.resilience;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+
+import java.io.IOException;
+
+/**
+ * Feign client that sends every request through the guard of its Feign client name.
+ * I/O errors and 5xx responses count as failures, any other response as a success.
+ */
+public class GuardedClient implements Client {
+
+    private final Client delegate;
+    private final DownstreamGuards guards;
+
+    public GuardedClient(Client delegate, DownstreamGuards guards) {
+        this.delegate = delegate;
+        this.guards = guards;
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        if (!guards.isEnabled()) {
+            return delegate.execute(request, options);
+        }
+
+        DownstreamGuard guard = guards.guard(request.requestTemplate().feignTarget().name());
+        guard.acquire();
+
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Response response = delegate.execute(request, options);
+            success = response.status() < 500;
+            return response;
+        } finally {
+            guard.complete(success, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.example.bookingservice.resilience;
+
+import java.util.Arrays;
+
+/**
+ * The most recent latencies of one kind of call, for percentiles over the current behaviour of a downstream
+ * rather than over its whole history.
+ */
+public class LatencyWindow {
+
+    private final long[] samples;
+    private int position;
+    private int count;
+
+    public LatencyWindow(int size) {
+        this.samples = new long[size];
+    }
+
+    public synchronized void record(long latencyNanos) {
+        samples[position] = latencyNanos;
+        position = (position + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    /**
+     * Returns the latency below which {@code percentile} of the recorded calls completed, or -1 while empty.
+     */
+    public synchronized long percentile(double percentile) {
+        if (count == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+}
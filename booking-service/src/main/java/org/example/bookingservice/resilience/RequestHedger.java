@@ -0,0 +1,145 @@
+package org.example.bookingservice.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/*
+ * Sends a second copy of a command when the first has not answered within the observed latency percentile
+ * of that command, and returns whichever answers first. Only safe for commands that the downstream dedupes,
+ * so callers must send the very same command, idempotency key included, both times.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RequestHedger {
+
+    private final MeterRegistry meterRegistry;
+
+    @Qualifier("sagaHedgeExecutor")
+    private final Executor sagaHedgeExecutor;
+
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    @Value("${saga.hedge.enabled:false}")
+    private boolean enabled;
+
+    @Value("${saga.hedge.percentile:0.95}")
+    private double percentile;
+
+    @Value("${saga.hedge.min-samples:20}")
+    private int minSamples;
+
+    @Value("${saga.hedge.window-size:200}")
+    private int windowSize;
+
+    @Value("${saga.hedge.min-delay:20ms}")
+    private Duration minDelay;
+
+    public <R> R send(String command, Supplier<R> call) {
+        if (!enabled) {
+            return call.get();
+        }
+
+        LatencyWindow window = latencies.computeIfAbsent(command, name -> new LatencyWindow(windowSize));
+        counter("saga.hedge.calls", command).increment();
+        CompletableFuture<R> primary = timed(window, call);
+
+        // Until enough calls have been seen there is no percentile to hedge at
+        if (window.count() < minSamples) {
+            return await(primary);
+        }
+        long hedgeDelayNanos = Math.max(window.percentile(percentile), minDelay.toNanos());
+
+        try {
+            return primary.get(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.debug("No answer to {} after {} ms, sending hedged request",
+                    command, TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos));
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + command, e);
+        }
+
+        counter("saga.hedge.sent", command).increment();
+        CompletableFuture<R> hedge = timed(window, call);
+
+        Answer<R> answer = await(firstSuccessful(primary, hedge));
+        if (answer.fromHedge()) {
+            counter("saga.hedge.wins", command).increment();
+        }
+        return answer.result();
+    }
+
+    private <R> CompletableFuture<R> timed(LatencyWindow window, Supplier<R> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            R result = call.get();
+            window.record(System.nanoTime() - start);
+            return result;
+        }, sagaHedgeExecutor);
+    }
+
+    /**
+     * Completes with the first of the two calls that succeeds, or fails once both have failed.
+     */
+    private static <R> CompletableFuture<Answer<R>> firstSuccessful(CompletableFuture<R> primary,
+                                                                    CompletableFuture<R> hedge) {
+        CompletableFuture<Answer<R>> first = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        primary.whenComplete((result, e) -> settle(first, failures, result, e, false));
+        hedge.whenComplete((result, e) -> settle(first, failures, result, e, true));
+        return first;
+    }
+
+    private static <R> void settle(CompletableFuture<Answer<R>> first, AtomicInteger failures,
+                                   R result, Throwable error, boolean fromHedge) {
+        if (error == null) {
+            first.complete(new Answer<>(result, fromHedge));
+        } else if (failures.incrementAndGet() == 2) {
+            first.completeExceptionally(error);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof RuntimeException runtime ? runtime : new CompletionException(cause);
+    }
+
+    private Counter counter(String name, String command) {
+        return Counter.builder(name)
+                .tag("command", command)
+                .register(meterRegistry);
+    }
+
+    private record Answer<R>(R result, boolean fromHedge) {
+    }
+}
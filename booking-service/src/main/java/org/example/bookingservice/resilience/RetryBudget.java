@@ -0,0 +1,75 @@
+package org.example.bookingservice.resilience;
+
+import io.micrometer.core.instrument.Clock;
+
+/**
+ * Token bucket that limits retries to a share of first attempts. Every first attempt deposits
+ * {@code retryRatio} tokens, a retry takes one whole token. A small time based refill of
+ * {@code minRetriesPerSecond} keeps retries possible while there is little fresh traffic.
+ * The bucket never holds more than {@code capacity} tokens, so a quiet period cannot bank a retry storm.
+ */
+public class RetryBudget {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final double retryRatio;
+    private final double minRetriesPerSecond;
+    private final double capacity;
+    private final Clock clock;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    public RetryBudget(double retryRatio, double minRetriesPerSecond, double capacity) {
+        this(retryRatio, minRetriesPerSecond, capacity, Clock.SYSTEM);
+    }
+
+    public RetryBudget(double retryRatio, double minRetriesPerSecond, double capacity, Clock clock) {
+        if (retryRatio < 0 || minRetriesPerSecond < 0 || capacity < 1) {
+            throw new IllegalArgumentException("Retry ratio and refill must not be negative, capacity must be at least 1");
+        }
+        this.retryRatio = retryRatio;
+        this.minRetriesPerSecond = minRetriesPerSecond;
+        this.capacity = capacity;
+        this.clock = clock;
+        this.tokens = capacity;
+        this.lastRefillNanos = clock.monotonicTime();
+    }
+
+    public synchronized void recordAttempt() {
+        refill();
+        tokens = Math.min(capacity, tokens + retryRatio);
+    }
+
+    /**
+     * Takes a token for one retry. Returns {@code false} if the budget is exhausted and the retry must wait.
+     */
+    public synchronized boolean tryAcquireRetry() {
+        refill();
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    /**
+     * Gives back the token of a retry that was not sent after all.
+     */
+    public synchronized void refundRetry() {
+        refill();
+        tokens = Math.min(capacity, tokens + 1);
+    }
+
+    public synchronized double availableTokens() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = clock.monotonicTime();
+        double earned = (now - lastRefillNanos) * minRetriesPerSecond / NANOS_PER_SECOND;
+        tokens = Math.min(capacity, tokens + earned);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.bookingservice.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * One retry budget per downstream service, shared by every retry path of the saga engine:
+ * error retries, deadline retries and the retry poller all end up sending commands through it.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RetryBudgets {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, RetryBudget> budgets = new ConcurrentHashMap<>();
+    private final Map<String, Counter> exhaustedCounters = new ConcurrentHashMap<>();
+
+    @Value("${saga.retry.budget.enabled:true}")
+    private boolean enabled;
+
+    @Value("${saga.retry.budget.ratio:0.2}")
+    private double retryRatio;
+
+    @Value("${saga.retry.budget.min-per-second:1}")
+    private double minRetriesPerSecond;
+
+    @Value("${saga.retry.budget.capacity:20}")
+    private double capacity;
+
+    public void recordAttempt(String downstream) {
+        if (enabled) {
+            budget(downstream).recordAttempt();
+        }
+    }
+
+    /**
+     * Returns {@code false} if the retry has to be deferred because {@code downstream} is out of budget.
+     */
+    public boolean tryAcquireRetry(String downstream) {
+        if (!enabled || budget(downstream).tryAcquireRetry()) {
+            return true;
+        }
+        log.warn("Retry budget for {} exhausted, deferring retry", downstream);
+        exhaustedCounters.computeIfAbsent(downstream, name -> Counter.builder("saga.retry.budget.exhausted")
+                        .description("Retries deferred because the downstream retry budget was exhausted")
+                        .tag("downstream", name)
+                        .register(meterRegistry))
+                .increment();
+        return false;
+    }
+
+    public void refundRetry(String downstream) {
+        if (enabled) {
+            budget(downstream).refundRetry();
+        }
+    }
+
+    private RetryBudget budget(String downstream) {
+        return budgets.computeIfAbsent(downstream, name -> {
+            RetryBudget budget = new RetryBudget(retryRatio, minRetriesPerSecond, capacity);
+            Gauge.builder("saga.retry.budget.available", budget, RetryBudget::availableTokens)
+                    .description("Retry tokens left for the downstream")
+                    .tag("downstream", name)
+                    .register(meterRegistry);
+            return budget;
+        });
+    }
+}
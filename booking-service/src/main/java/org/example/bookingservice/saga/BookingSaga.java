@@ -0,0 +1,216 @@
+package org.example.bookingservice.saga;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.bookingservice.entity.SagaInstance;
+import org.example.bookingservice.feignclient.HotelServiceClient;
+import org.example.bookingservice.feignclient.PaymentServiceClient;
+import org.example.bookingservice.resilience.RequestHedger;
+import org.example.common.command.AuthorizePaymentCommand;
+import org.example.common.command.CancelPaymentCommand;
+import org.example.common.command.CommandResult;
+import org.example.common.command.ReleaseRoomCommand;
+import org.example.common.command.ReserveRoomCommand;
+import org.example.common.dto.BookingRequest;
+import org.example.common.dto.PaymentAuthorizationDto;
+import org.example.common.dto.ReservationDto;
+import org.example.common.messaging.CommandTypes;
+import org.example.common.enumerations.SagaState;
+
+import java.time.LocalDateTime;
+
+import static org.example.common.enumerations.SagaState.BOOKING_CANCELLED;
+import static org.example.common.enumerations.SagaState.BOOKING_COMPLETED;
+import static org.example.common.enumerations.SagaState.COMPENSATING;
+import static org.example.common.enumerations.SagaState.COMPENSATION_COMPLETED;
+import static org.example.common.enumerations.SagaState.COMPENSATION_FAILED;
+import static org.example.common.enumerations.SagaState.PAYMENT_AUTHORIZATION_FAILED;
+import static org.example.common.enumerations.SagaState.PAYMENT_AUTHORIZED;
+import static org.example.common.enumerations.SagaState.PAYMENT_AUTHORIZED_ROOM_FAILED;
+import static org.example.common.enumerations.SagaState.ROOM_AND_PAYMENT_PENDING;
+import static org.example.common.enumerations.SagaState.ROOM_RESERVATION_FAILED;
+import static org.example.common.enumerations.SagaState.ROOM_RESERVED;
+import static org.example.common.enumerations.SagaState.ROOM_RESERVED_PAYMENT_FAILED;
+import static org.example.common.enumerations.SagaState.STARTED;
+
+/**
+ * The booking saga: reserve a room, authorize the payment, and the compensating commands for both.
+ * Every allowed state transition of a booking is declared here once.
+ */
+@Slf4j
+public final class BookingSaga {
+
+    public static final SagaTransitions TRANSITIONS = SagaTransitions.builder()
+            .allow(STARTED, ROOM_RESERVED, ROOM_RESERVATION_FAILED, ROOM_AND_PAYMENT_PENDING, BOOKING_CANCELLED)
+            .allow(ROOM_RESERVED, PAYMENT_AUTHORIZED, PAYMENT_AUTHORIZATION_FAILED, COMPENSATING)
+            .allow(ROOM_AND_PAYMENT_PENDING, PAYMENT_AUTHORIZED, ROOM_RESERVED_PAYMENT_FAILED,
+                    PAYMENT_AUTHORIZED_ROOM_FAILED, ROOM_RESERVATION_FAILED, COMPENSATING)
+            .allow(PAYMENT_AUTHORIZED, BOOKING_COMPLETED)
+            .allow(ROOM_RESERVATION_FAILED, BOOKING_CANCELLED)
+            .allow(PAYMENT_AUTHORIZATION_FAILED, BOOKING_CANCELLED, COMPENSATING)
+            .allow(ROOM_RESERVED_PAYMENT_FAILED, COMPENSATING)
+            .allow(PAYMENT_AUTHORIZED_ROOM_FAILED, COMPENSATING)
+            .allow(COMPENSATING, COMPENSATION_COMPLETED, COMPENSATION_FAILED)
+            .allow(COMPENSATION_COMPLETED, BOOKING_CANCELLED)
+            .allow(COMPENSATION_FAILED, COMPENSATING)
+            .build();
+
+    private static final String HOTEL_SERVICE = "hotel-service";
+    private static final String PAYMENT_SERVICE = "payment-service";
+
+    private static final String RESERVE_ROOM = CommandTypes.RESERVE_ROOM;
+    private static final String AUTHORIZE_PAYMENT = CommandTypes.AUTHORIZE_PAYMENT;
+    private static final String RELEASE_ROOM = CommandTypes.RELEASE_ROOM;
+    private static final String CANCEL_PAYMENT = CommandTypes.CANCEL_PAYMENT;
+
+    private BookingSaga() {
+    }
+
+    /**
+     * Reserves the room first and authorizes the payment once the reservation is confirmed.
+     * Both forward commands may be hedged, the hedge resends the identical command with the same idempotency key.
+     * They are sent through the {@link CommandBatchers}, which may batch them with those of concurrent sagas.
+     */
+    public static SagaDefinition<BookingRequest> sequential(HotelServiceClient hotelClient,
+                                                            PaymentServiceClient paymentClient,
+                                                            CommandBatchers batchers,
+                                                            RequestHedger hedger) {
+        return SagaDefinition.builder("booking", BookingRequest.class, TRANSITIONS)
+                .stage(SagaStage.of(reserveRoom(hotelClient, batchers, hedger, ROOM_RESERVATION_FAILED),
+                        ROOM_RESERVED))
+                .stage(SagaStage.of(authorizePayment(paymentClient, batchers, hedger, PAYMENT_AUTHORIZATION_FAILED),
+                        PAYMENT_AUTHORIZED))
+                .completedState(BOOKING_COMPLETED)
+                .cancelledState(BOOKING_CANCELLED)
+                .build();
+    }
+
+    /**
+     * Reserves the room and authorizes the payment at the same time, both only need the booking request.
+     * If only one side fails, the saga records which one and compensates the side that succeeded.
+     */
+    public static SagaDefinition<BookingRequest> parallel(HotelServiceClient hotelClient,
+                                                          PaymentServiceClient paymentClient,
+                                                          CommandBatchers batchers,
+                                                          RequestHedger hedger) {
+        return SagaDefinition.builder("booking", BookingRequest.class, TRANSITIONS)
+                .stage(SagaStage.parallel(ROOM_AND_PAYMENT_PENDING, PAYMENT_AUTHORIZED, ROOM_RESERVATION_FAILED,
+                        reserveRoom(hotelClient, batchers, hedger, PAYMENT_AUTHORIZED_ROOM_FAILED),
+                        authorizePayment(paymentClient, batchers, hedger, ROOM_RESERVED_PAYMENT_FAILED)))
+                .completedState(BOOKING_COMPLETED)
+                .cancelledState(BOOKING_CANCELLED)
+                .build();
+    }
+
+    private static SagaStep<BookingRequest, ReservationDto> reserveRoom(HotelServiceClient hotelClient,
+                                                                        CommandBatchers batchers,
+                                                                        RequestHedger hedger,
+                                                                        SagaState failedState) {
+        return SagaStep.<BookingRequest, ReservationDto>builder()
+                .name(RESERVE_ROOM)
+                .downstream(HOTEL_SERVICE)
+                .failedState(failedState)
+                .action((saga, request) -> {
+                    ReserveRoomCommand command = reserveRoomCommand(saga, request);
+                    return hedger.send(RESERVE_ROOM, () -> batchers.reserveRoom(command));
+                })
+                .command(BookingSaga::reserveRoomCommand)
+                .resultType(ReservationDto.class)
+                .onSuccess((saga, reservation) -> saga.setReservationId(reservation.getReservationId()))
+                .completed(saga -> saga.getReservationId() != null)
+                .compensationName(RELEASE_ROOM)
+                .compensation(saga -> releaseRoom(hotelClient, saga))
+                .build();
+    }
+
+    private static SagaStep<BookingRequest, PaymentAuthorizationDto> authorizePayment(PaymentServiceClient paymentClient,
+                                                                                      CommandBatchers batchers,
+                                                                                      RequestHedger hedger,
+                                                                                      SagaState failedState) {
+        return SagaStep.<BookingRequest, PaymentAuthorizationDto>builder()
+                .name(AUTHORIZE_PAYMENT)
+                .downstream(PAYMENT_SERVICE)
+                .failedState(failedState)
+                .action((saga, request) -> {
+                    AuthorizePaymentCommand command = authorizePaymentCommand(saga, request);
+                    return hedger.send(AUTHORIZE_PAYMENT, () -> batchers.authorizePayment(command));
+                })
+                .command(BookingSaga::authorizePaymentCommand)
+                .resultType(PaymentAuthorizationDto.class)
+                .onSuccess((saga, authorization) -> saga.setAuthorizationId(authorization.getAuthorizationId()))
+                .completed(saga -> saga.getAuthorizationId() != null)
+                .compensationName(CANCEL_PAYMENT)
+                .compensation(saga -> cancelPayment(paymentClient, saga))
+                .build();
+    }
+
+    private static ReserveRoomCommand reserveRoomCommand(SagaInstance saga, BookingRequest request) {
+        ReserveRoomCommand command = new ReserveRoomCommand();
+        command.setSagaId(saga.getSagaId());
+        command.setIdempotencyKey(saga.idempotencyKeyFor(RESERVE_ROOM));
+        command.setTimestamp(LocalDateTime.now());
+        command.setHotelId(request.getHotelId());
+        command.setRoomType(request.getRoomType());
+        command.setCheckIn(request.getCheckIn());
+        command.setCheckOut(request.getCheckOut());
+        command.setGuestName(request.getGuestName());
+        command.setRoomPrice(request.getRoomPrice());
+        return command;
+    }
+
+    private static AuthorizePaymentCommand authorizePaymentCommand(SagaInstance saga, BookingRequest request) {
+        AuthorizePaymentCommand command = new AuthorizePaymentCommand();
+        command.setSagaId(saga.getSagaId());
+        command.setIdempotencyKey(saga.idempotencyKeyFor(AUTHORIZE_PAYMENT));
+        command.setTimestamp(LocalDateTime.now());
+        command.setCardNumber(request.getCardNumber());
+        command.setCardHolderName(request.getCardHolderName());
+        command.setExpiryMonth(request.getExpiryMonth());
+        command.setExpiryYear(request.getExpiryYear());
+        command.setCvv(request.getCvv());
+        command.setAmount(request.getRoomPrice());
+        command.setCurrency("USD");
+        return command;
+    }
+
+    private static boolean cancelPayment(PaymentServiceClient paymentClient, SagaInstance saga) {
+        try {
+            CancelPaymentCommand command = new CancelPaymentCommand();
+            command.setSagaId(saga.getSagaId());
+            command.setIdempotencyKey(saga.idempotencyKeyFor(CANCEL_PAYMENT));
+            command.setTimestamp(LocalDateTime.now());
+            command.setAuthorizationId(saga.getAuthorizationId());
+            command.setReason("Booking saga compensation");
+
+            CommandResult<Void> result = paymentClient.cancelPayment(command);
+            if (!result.isSuccess()) {
+                log.error("Payment cancellation failed for saga {}: {}", saga.getSagaId(), result.getErrorMessage());
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            log.error("Error cancelling payment for saga: " + saga.getSagaId(), e);
+            return false;
+        }
+    }
+
+    private static boolean releaseRoom(HotelServiceClient hotelClient, SagaInstance saga) {
+        try {
+            ReleaseRoomCommand command = new ReleaseRoomCommand();
+            command.setSagaId(saga.getSagaId());
+            command.setIdempotencyKey(saga.idempotencyKeyFor(RELEASE_ROOM));
+            command.setTimestamp(LocalDateTime.now());
+            command.setReservationId(saga.getReservationId());
+            command.setReason("Booking saga compensation");
+
+            CommandResult<Void> result = hotelClient.releaseRoom(command);
+            if (!result.isSuccess()) {
+                log.error("Room release failed for saga {}: {}", saga.getSagaId(), result.getErrorMessage());
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            log.error("Error releasing room for saga: " + saga.getSagaId(), e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.bookingservice.saga;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.common.command.CommandResult;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects one kind of command from concurrent sagas and sends them as one batch. The first command of a window
+ * waits until the window holds {@code maxBatchSize} commands or {@code maxDelay} has passed, then sends the batch on
+ * its own thread. Every caller blocks until the batch answered and gets the result at its own position, so to a
+ * saga step a batched command looks like a single call. A failed batch fails every command in it.
+ */
+public class CommandBatcher<C, R> {
+
+    private final Function<List<C>, List<CommandResult<R>>> sender;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final DistributionSummary batchSizes;
+
+    // The window still taking commands, guarded by this
+    private Window<C, R> open;
+
+    public CommandBatcher(String command, Function<List<C>, List<CommandResult<R>>> sender, int maxBatchSize,
+                          Duration maxDelay, MeterRegistry meterRegistry) {
+        this.sender = sender;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.batchSizes = DistributionSummary.builder("saga.batch.size").tag("command", command)
+                .register(meterRegistry);
+    }
+
+    public CommandResult<R> submit(C command) {
+        Window<C, R> window;
+        int position;
+        boolean first;
+        synchronized (this) {
+            first = open == null;
+            if (first) {
+                open = new Window<>();
+            }
+            window = open;
+            position = window.commands.size();
+            window.commands.add(command);
+            if (window.commands.size() >= maxBatchSize) {
+                open = null;
+                window.closed.countDown();
+            }
+        }
+
+        if (first) {
+            awaitClosed(window);
+            synchronized (this) {
+                if (open == window) {
+                    open = null;
+                }
+            }
+            send(window);
+        }
+
+        try {
+            return window.results.join().get(position);
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private void awaitClosed(Window<C, R> window) {
+        try {
+            window.closed.await(maxDelayNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            // Sent right away, the caller still waits for its own result
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Only called once the window is closed, no other thread adds to it any more
+    private void send(Window<C, R> window) {
+        batchSizes.record(window.commands.size());
+        try {
+            List<CommandResult<R>> results = sender.apply(window.commands);
+            if (results.size() != window.commands.size()) {
+                throw new IllegalStateException("Batch of " + window.commands.size() + " commands answered with "
+                        + results.size() + " results");
+            }
+            window.results.complete(results);
+        } catch (RuntimeException e) {
+            window.results.completeExceptionally(e);
+        }
+    }
+
+    private static final class Window<C, R> {
+        private final List<C> commands = new ArrayList<>();
+        private final CountDownLatch closed = new CountDownLatch(1);
+        private final CompletableFuture<List<CommandResult<R>>> results = new CompletableFuture<>();
+    }
+}
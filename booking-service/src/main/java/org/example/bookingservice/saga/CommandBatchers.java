@@ -0,0 +1,52 @@
+package org.example.bookingservice.saga;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.bookingservice.feignclient.HotelServiceClient;
+import org.example.bookingservice.feignclient.PaymentServiceClient;
+import org.example.common.command.AuthorizePaymentCommand;
+import org.example.common.command.CommandResult;
+import org.example.common.command.ReserveRoomCommand;
+import org.example.common.dto.PaymentAuthorizationDto;
+import org.example.common.dto.ReservationDto;
+import org.example.common.messaging.CommandTypes;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Sends the forward commands of the booking saga. With saga.batching.enabled the reservations and authorizations
+ * of concurrent sagas are collected by a {@link CommandBatcher} each and sent to the services' batch endpoints,
+ * otherwise every command is sent on its own. Compensations are always sent on their own.
+ */
+@Component
+public class CommandBatchers {
+
+    private final HotelServiceClient hotelClient;
+    private final PaymentServiceClient paymentClient;
+    private final boolean enabled;
+    private final CommandBatcher<ReserveRoomCommand, ReservationDto> reservations;
+    private final CommandBatcher<AuthorizePaymentCommand, PaymentAuthorizationDto> authorizations;
+
+    public CommandBatchers(HotelServiceClient hotelClient, PaymentServiceClient paymentClient,
+                           MeterRegistry meterRegistry,
+                           @Value("${saga.batching.enabled:false}") boolean enabled,
+                           @Value("${saga.batching.max-size:50}") int maxSize,
+                           @Value("${saga.batching.max-delay:5ms}") Duration maxDelay) {
+        this.hotelClient = hotelClient;
+        this.paymentClient = paymentClient;
+        this.enabled = enabled;
+        this.reservations = new CommandBatcher<>(CommandTypes.RESERVE_ROOM, hotelClient::reserveRooms,
+                maxSize, maxDelay, meterRegistry);
+        this.authorizations = new CommandBatcher<>(CommandTypes.AUTHORIZE_PAYMENT, paymentClient::authorizePayments,
+                maxSize, maxDelay, meterRegistry);
+    }
+
+    public CommandResult<ReservationDto> reserveRoom(ReserveRoomCommand command) {
+        return enabled ? reservations.submit(command) : hotelClient.reserveRoom(command);
+    }
+
+    public CommandResult<PaymentAuthorizationDto> authorizePayment(AuthorizePaymentCommand command) {
+        return enabled ? authorizations.submit(command) : paymentClient.authorizePayment(command);
+    }
+}
@@ -0,0 +1,198 @@
+package org.example.bookingservice.saga;
+
+import org.example.bookingservice.entity.SagaInstance;
+import org.example.common.enumerations.SagaState;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Declarative description of a saga: its stages in execution order and the transition table they run against.
+ * Building a definition compiles the lookup tables the {@link SagaEngine} needs to resume a saga from any
+ * persisted state, and fails fast if a stage would produce a transition the table does not allow.
+ */
+public final class SagaDefinition<P> {
+
+    private static final EnumSet<SagaState> COMPENSATION_STATES =
+            EnumSet.of(SagaState.COMPENSATING, SagaState.COMPENSATION_FAILED);
+
+    private final String name;
+    private final Class<P> payloadType;
+    private final SagaTransitions transitions;
+    private final SagaState initialState;
+    private final SagaState completedState;
+    private final SagaState cancelledState;
+    private final List<SagaStage<P>> stages;
+    private final List<SagaStep<P, ?>> steps;
+    private final EnumMap<SagaState, Integer> stageIndexByState;
+    private final EnumSet<SagaState> failedStates;
+
+    private SagaDefinition(Builder<P> builder) {
+        this.name = builder.name;
+        this.payloadType = builder.payloadType;
+        this.transitions = builder.transitions;
+        this.initialState = builder.initialState;
+        this.completedState = builder.completedState;
+        this.cancelledState = builder.cancelledState;
+        this.stages = List.copyOf(builder.stages);
+        this.steps = stages.stream().flatMap(stage -> stage.steps().stream()).toList();
+        this.stageIndexByState = new EnumMap<>(SagaState.class);
+        this.failedStates = EnumSet.noneOf(SagaState.class);
+        compile();
+    }
+
+    public static <P> Builder<P> builder(String name, Class<P> payloadType, SagaTransitions transitions) {
+        return new Builder<>(name, payloadType, transitions);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public Class<P> payloadType() {
+        return payloadType;
+    }
+
+    public SagaTransitions transitions() {
+        return transitions;
+    }
+
+    public SagaState completedState() {
+        return completedState;
+    }
+
+    public SagaState cancelledState() {
+        return cancelledState;
+    }
+
+    public int stageCount() {
+        return stages.size();
+    }
+
+    public SagaStage<P> stage(int index) {
+        return stages.get(index);
+    }
+
+    public List<SagaStep<P, ?>> steps() {
+        return steps;
+    }
+
+    /**
+     * Index of the stage to (re)run when a saga is found in the given state, or -1 if no stage applies.
+     */
+    public int stageIndexFor(SagaState state) {
+        Integer index = stageIndexByState.get(state);
+        return index != null ? index : -1;
+    }
+
+    public boolean isCompensationState(SagaState state) {
+        return COMPENSATION_STATES.contains(state);
+    }
+
+    public boolean isFailedState(SagaState state) {
+        return failedStates.contains(state);
+    }
+
+    public boolean hasWorkToCompensate(SagaInstance saga) {
+        for (SagaStep<P, ?> step : steps) {
+            if (step.needsCompensation(saga)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void compile() {
+        if (stages.isEmpty()) {
+            throw new IllegalStateException("Saga " + name + " has no stages");
+        }
+
+        for (int i = 0; i < stages.size(); i++) {
+            SagaStage<P> stage = stages.get(i);
+            SagaState entryState = i == 0 ? initialState : stages.get(i - 1).successState();
+            SagaState sendState = entryState;
+
+            register(entryState, i);
+            if (stage.pendingState() != null) {
+                requireTransition(entryState, stage.pendingState());
+                register(stage.pendingState(), i);
+                sendState = stage.pendingState();
+            }
+
+            requireTransition(sendState, stage.successState());
+            if (stage.failedState() != null) {
+                requireTransition(sendState, stage.failedState());
+                requireFailureExit(stage.failedState());
+                register(stage.failedState(), i);
+                failedStates.add(stage.failedState());
+            }
+            for (SagaStep<P, ?> step : stage.steps()) {
+                requireTransition(sendState, step.failedState());
+                requireFailureExit(step.failedState());
+                register(step.failedState(), i);
+                failedStates.add(step.failedState());
+            }
+        }
+
+        requireTransition(stages.get(stages.size() - 1).successState(), completedState);
+    }
+
+    private void register(SagaState state, int stageIndex) {
+        stageIndexByState.putIfAbsent(state, stageIndex);
+    }
+
+    private void requireTransition(SagaState from, SagaState to) {
+        if (!transitions.allows(from, to)) {
+            throw new IllegalStateException("Saga " + name + " needs transition " + from + " -> " + to);
+        }
+    }
+
+    private void requireFailureExit(SagaState failedState) {
+        if (!transitions.allows(failedState, SagaState.COMPENSATING) && !transitions.allows(failedState, cancelledState)) {
+            throw new IllegalStateException("Saga " + name + " cannot leave failed state " + failedState);
+        }
+    }
+
+    public static final class Builder<P> {
+
+        private final String name;
+        private final Class<P> payloadType;
+        private final SagaTransitions transitions;
+        private final List<SagaStage<P>> stages = new ArrayList<>();
+        private SagaState initialState = SagaState.STARTED;
+        private SagaState completedState;
+        private SagaState cancelledState;
+
+        private Builder(String name, Class<P> payloadType, SagaTransitions transitions) {
+            this.name = name;
+            this.payloadType = payloadType;
+            this.transitions = transitions;
+        }
+
+        public Builder<P> initialState(SagaState initialState) {
+            this.initialState = initialState;
+            return this;
+        }
+
+        public Builder<P> stage(SagaStage<P> stage) {
+            stages.add(stage);
+            return this;
+        }
+
+        public Builder<P> completedState(SagaState completedState) {
+            this.completedState = completedState;
+            return this;
+        }
+
+        public Builder<P> cancelledState(SagaState cancelledState) {
+            this.cancelledState = cancelledState;
+            return this;
+        }
+
+        public SagaDefinition<P> build() {
+            return new SagaDefinition<>(this);
+        }
+    }
+}
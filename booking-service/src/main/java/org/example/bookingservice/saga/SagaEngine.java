@@ -0,0 +1,441 @@
+package org.example.bookingservice.saga;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.bookingservice.entity.SagaInstance;
+import org.example.bookingservice.resilience.CallNotPermittedException;
+import org.example.bookingservice.resilience.RetryBudgets;
+import org.example.bookingservice.service.SagaStateStore;
+import org.example.common.command.CommandResult;
+import org.example.common.enumerations.SagaState;
+import org.example.common.idempotency.IdempotencyGuard;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/*
+ * Runs any SagaDefinition. Like the orchestrator it never holds a transaction around a remote call.
+ * Transitions are recorded on the saga in memory and written once per step boundary through SagaStateStore:
+ * before a stage's commands are sent, if it assigned keys or entered a pending state, and when the saga stops,
+ * whether completed, failed, compensated or waiting for a retry. A stage's result is written together with the
+ * next stage's keys; should the node stop in between, the resumed stage resends its commands with the same keys
+ * and the downstreams answer with the results they recorded. With saga.transport=outbox a stage's commands are
+ * written to the outbox by that same write instead of being sent, and the saga waits until resume() is called
+ * with the replies.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SagaEngine {
+
+    private static final String REMOTE_CALL_ERROR = "REMOTE_CALL_ERROR";
+    private static final String DOWNSTREAM_UNAVAILABLE = "DOWNSTREAM_UNAVAILABLE";
+
+    private final SagaStateStore sagaStateStore;
+    private final SagaExecutionContexts executionContexts;
+    private final SagaOutbox sagaOutbox;
+    private final MeterRegistry meterRegistry;
+    private final RetryBudgets retryBudgets;
+
+    @Qualifier("sagaStepExecutor")
+    private final Executor sagaStepExecutor;
+
+    @Value("${saga.compensation.timeout:10s}")
+    private Duration compensationTimeout;
+
+    @Value("${saga.retry.budget.max-deferrals:10}")
+    private int maxRetryDeferrals;
+
+    /**
+     * Drives the saga forward from its current state until it completes, is cancelled, or has to wait
+     * for a retry. Failed states with completed work to undo and the compensation states resume compensation.
+     */
+    public <P> void execute(SagaDefinition<P> definition, SagaInstance saga) {
+        SagaState state = saga.getState();
+        if (definition.isCompensationState(state)
+                || (definition.isFailedState(state) && definition.hasWorkToCompensate(saga))) {
+            compensate(definition, saga);
+            return;
+        }
+
+        int stageIndex = definition.stageIndexFor(state);
+        if (stageIndex < 0) {
+            log.warn("Cannot execute saga {} in state: {}", saga.getSagaId(), state);
+            return;
+        }
+
+        // Only the stage the saga is resumed at repeats commands, later stages are first attempts
+        run(definition, saga, stageIndex, saga.getRetryCount() > 0, true);
+    }
+
+    /**
+     * Continues a saga waiting for the outbox replies of its current stage, after one of them was stored.
+     * Nothing happens until every command of the stage is answered; the stage is then settled with the
+     * replies and later stages are sent as usual. A reply the saga has already moved past is ignored.
+     */
+    public <P> void resume(SagaDefinition<P> definition, SagaInstance saga) {
+        SagaState state = saga.getState();
+        int stageIndex = definition.stageIndexFor(state);
+        if (stageIndex < 0 || definition.isFailedState(state) || definition.isCompensationState(state)) {
+            log.debug("Saga {} in state {} is not waiting for replies", saga.getSagaId(), state);
+            return;
+        }
+        run(definition, saga, stageIndex, false, false);
+    }
+
+    private <P> void run(SagaDefinition<P> definition, SagaInstance saga, int stageIndex, boolean retry,
+                         boolean send) {
+        boolean resumed = !send;
+        try {
+            P payload = executionContexts.payloadFor(definition, saga);
+
+            for (int i = stageIndex; i < definition.stageCount(); i++) {
+                SagaStage<P> stage = definition.stage(i);
+                boolean proceed = send
+                        ? executeStage(definition, stage, saga, payload, retry)
+                        : settleReplies(definition, stage, saga);
+                if (!proceed) {
+                    return;
+                }
+                retry = false;
+                send = true;
+            }
+
+            transition(definition, saga, definition.completedState());
+            sagaStateStore.save(saga);
+            executionContexts.remove(saga.getSagaId());
+            log.info("Saga {} completed successfully: {}", definition.name(), saga.getSagaId());
+
+        } catch (Exception e) {
+            if (resumed && e instanceof OptimisticLockingFailureException) {
+                // Replies to a parallel stage arriving together each resume the saga, the first one settled it
+                log.info("Saga {} was already settled by a concurrent reply", saga.getSagaId());
+                return;
+            }
+            log.error("Error executing saga: " + saga.getSagaId(), e);
+            handleError(definition, saga);
+        }
+    }
+
+    /**
+     * Assigns the keys of the stage a new saga starts at before it is first saved, so the insert already
+     * carries them and the stage's commands are sent without another write.
+     */
+    public <P> void prepare(SagaDefinition<P> definition, SagaInstance saga) {
+        int stageIndex = definition.stageIndexFor(saga.getState());
+        if (stageIndex >= 0) {
+            definition.stage(stageIndex).steps().forEach(step -> saga.assignIdempotencyKey(step.name()));
+        }
+    }
+
+    public <P> void compensate(SagaDefinition<P> definition, SagaInstance saga) {
+        log.info("Executing compensation for saga: {}", saga.getSagaId());
+        // Compensating commands only need the recorded step results, not the payload
+        executionContexts.remove(saga.getSagaId());
+
+        List<SagaStep<P, ?>> toCompensate = definition.steps().stream()
+                .filter(step -> step.needsCompensation(saga))
+                .toList();
+        toCompensate.forEach(step -> saga.assignIdempotencyKey(step.compensationName()));
+
+        // Saved together with the keys, so a retried compensation resends the same commands
+        transition(definition, saga, SagaState.COMPENSATING);
+        sagaStateStore.save(saga);
+
+        // Compensating commands are independent and idempotent, so they are sent concurrently
+        List<CompletableFuture<Boolean>> branches = new ArrayList<>();
+        for (SagaStep<P, ?> step : toCompensate) {
+            branches.add(runCompensationBranch(step.compensationName(), saga, () -> step.compensate(saga)));
+        }
+
+        boolean compensationSuccess = branches.stream()
+                .map(CompletableFuture::join)
+                .reduce(true, Boolean::logicalAnd);
+
+        // Update final state
+        if (compensationSuccess) {
+            transition(definition, saga, SagaState.COMPENSATION_COMPLETED);
+            transition(definition, saga, definition.cancelledState());
+            log.info("Compensation completed successfully for saga: {}", saga.getSagaId());
+        } else {
+            transition(definition, saga, SagaState.COMPENSATION_FAILED);
+            log.error("Compensation failed for saga: {}", saga.getSagaId());
+        }
+
+        sagaStateStore.save(saga);
+    }
+
+    // Checked against the saga's own definition, each saga type brings its transition table
+    public void transition(SagaDefinition<?> definition, SagaInstance saga, SagaState newState) {
+        if (definition.transitions().allows(saga.getState(), newState)) {
+            log.info("Saga {} transitioning from {} to {}", saga.getSagaId(), saga.getState(), newState);
+            saga.recordTransition(newState);
+        } else {
+            log.warn("Invalid state transition for saga {}: {} -> {}",
+                    saga.getSagaId(), saga.getState(), newState);
+        }
+    }
+
+    /**
+     * Sends the commands of one stage and records the outcome. Returns {@code true} if the saga may continue
+     * with the next stage. A single pending step is sent on the calling thread, several are sent concurrently.
+     * A retried stage is deferred without sending anything while a downstream is out of retry budget.
+     */
+    private <P> boolean executeStage(SagaDefinition<P> definition, SagaStage<P> stage, SagaInstance saga, P payload,
+                                     boolean retry) {
+        List<SagaStep<P, ?>> pending = stage.steps().stream()
+                .filter(step -> !step.isCompleted(saga))
+                .toList();
+
+        if (!chargeRetryBudgets(pending, retry)) {
+            deferRetry(definition, saga);
+            return false;
+        }
+
+        // Keys are committed before the first attempt, so every retry of a step reuses its key.
+        // The same write records the results of the previous stage.
+        boolean keysAssigned = false;
+        for (SagaStep<P, ?> step : pending) {
+            keysAssigned |= saga.assignIdempotencyKey(step.name());
+        }
+
+        boolean enterPendingState = stage.pendingState() != null && saga.getState() != stage.pendingState();
+        if (enterPendingState) {
+            transition(definition, saga, stage.pendingState());
+        }
+        if (sagaOutbox.handles(stage)) {
+            return queueStage(definition, stage, saga, payload, pending);
+        }
+        if (enterPendingState || keysAssigned) {
+            sagaStateStore.save(saga);
+        }
+
+        List<CommandResult<?>> results = new ArrayList<>(pending.size());
+        if (pending.size() == 1) {
+            SagaStep<P, ?> step = pending.get(0);
+            log.info("Executing {} for saga: {}", step.name(), saga.getSagaId());
+            results.add(send(step, saga, payload));
+        } else {
+            log.info("Executing {} concurrently for saga: {}",
+                    pending.stream().map(SagaStep::name).toList(), saga.getSagaId());
+            List<CompletableFuture<CommandResult<?>>> calls = pending.stream()
+                    .map(step -> callAsync(step, saga, payload))
+                    .toList();
+            calls.forEach(call -> results.add(call.join()));
+        }
+
+        return settleStage(definition, stage, saga, pending, results);
+    }
+
+    /*
+     * Writes the stage's commands to the outbox together with the saga and returns without waiting, the stage is
+     * settled by resume() once the replies are in. Commands answered before, e.g. when a retry finds the replies
+     * already stored, are not sent again unless their outcome was left unknown.
+     */
+    private <P> boolean queueStage(SagaDefinition<P> definition, SagaStage<P> stage, SagaInstance saga, P payload,
+                                   List<SagaStep<P, ?>> pending) {
+        List<CommandResult<?>> replies = sagaOutbox.replies(saga, pending);
+        List<SagaStep<P, ?>> unanswered = new ArrayList<>();
+        for (int i = 0; i < pending.size(); i++) {
+            if (replies.get(i) == null || isOutcomeUnknown(replies.get(i))) {
+                unanswered.add(pending.get(i));
+            }
+        }
+        if (unanswered.isEmpty()) {
+            return settleStage(definition, stage, saga, pending, replies);
+        }
+
+        log.info("Queueing {} for saga: {}", unanswered.stream().map(SagaStep::name).toList(), saga.getSagaId());
+        sagaStateStore.save(saga, sagaOutbox.commands(saga, payload, unanswered));
+        return false;
+    }
+
+    private <P> boolean settleReplies(SagaDefinition<P> definition, SagaStage<P> stage, SagaInstance saga) {
+        if (!sagaOutbox.handles(stage)) {
+            return false;
+        }
+        List<SagaStep<P, ?>> pending = stage.steps().stream()
+                .filter(step -> !step.isCompleted(saga))
+                .toList();
+        List<CommandResult<?>> replies = sagaOutbox.replies(saga, pending);
+        if (replies.contains(null)) {
+            log.debug("Saga {} is still waiting for replies", saga.getSagaId());
+            return false;
+        }
+        return settleStage(definition, stage, saga, pending, replies);
+    }
+
+    /**
+     * Records the results of a stage's commands, in the order of {@code pending}, and moves the saga on.
+     * Returns {@code true} if the saga may continue with the next stage.
+     */
+    private <P> boolean settleStage(SagaDefinition<P> definition, SagaStage<P> stage, SagaInstance saga,
+                                    List<SagaStep<P, ?>> pending, List<CommandResult<?>> results) {
+        boolean outcomeUnknown = false;
+        SagaStep<P, ?> failedStep = null;
+        for (int i = 0; i < pending.size(); i++) {
+            SagaStep<P, ?> step = pending.get(i);
+            CommandResult<?> result = results.get(i);
+
+            if (result.isSuccess()) {
+                step.recordResult(saga, result);
+            } else if (isOutcomeUnknown(result)) {
+                // Also when a duplicate found the first attempt still running downstream
+                outcomeUnknown = true;
+            } else {
+                log.error("Step {} failed for saga {}: {}", step.name(), saga.getSagaId(), result.getErrorMessage());
+                if (failedStep == null) {
+                    failedStep = step;
+                }
+            }
+        }
+
+        if (outcomeUnknown) {
+            // A command may or may not have been applied downstream, keep what succeeded and retry the rest
+            log.warn("Stage did not complete for saga {}, will retry", saga.getSagaId());
+            handleError(definition, saga);
+            return false;
+        }
+
+        if (failedStep != null) {
+            if (definition.hasWorkToCompensate(saga)) {
+                // Written together with the compensation keys
+                transition(definition, saga, failedStep.failedState());
+                compensate(definition, saga);
+            } else {
+                transition(definition, saga,
+                        stage.failedState() != null ? stage.failedState() : failedStep.failedState());
+
+                // Nothing to undo, end saga with failure
+                transition(definition, saga, definition.cancelledState());
+                sagaStateStore.save(saga);
+                executionContexts.remove(saga.getSagaId());
+            }
+            return false;
+        }
+
+        // Written with the next stage's keys, or with the completion after the last stage
+        transition(definition, saga, stage.successState());
+        return true;
+    }
+
+    private static boolean isOutcomeUnknown(CommandResult<?> result) {
+        return REMOTE_CALL_ERROR.equals(result.getErrorCode())
+                || IdempotencyGuard.REQUEST_IN_PROGRESS.equals(result.getErrorCode());
+    }
+
+    // A retried stage is sent as a whole, so the tokens taken before a downstream ran out are given back
+    private <P> boolean chargeRetryBudgets(List<SagaStep<P, ?>> pending, boolean retry) {
+        List<String> charged = new ArrayList<>();
+        for (SagaStep<P, ?> step : pending) {
+            if (step.downstream() == null) {
+                continue;
+            }
+            if (!retry) {
+                retryBudgets.recordAttempt(step.downstream());
+            } else if (retryBudgets.tryAcquireRetry(step.downstream())) {
+                charged.add(step.downstream());
+            } else {
+                charged.forEach(retryBudgets::refundRetry);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * A command held back by the downstream guard was never sent. An open circuit fails the step right away,
+     * a full concurrency limit is retried later like any other remote error.
+     */
+    private <P> CommandResult<?> send(SagaStep<P, ?> step, SagaInstance saga, P payload) {
+        try {
+            return step.execute(saga, payload);
+        } catch (CallNotPermittedException e) {
+            log.warn("Step {} not sent for saga {}: {}", step.name(), saga.getSagaId(), e.getMessage());
+            return CommandResult.failure(e.getMessage(), e.isCircuitOpen() ? DOWNSTREAM_UNAVAILABLE : REMOTE_CALL_ERROR);
+        }
+    }
+
+    private <P> CompletableFuture<CommandResult<?>> callAsync(SagaStep<P, ?> step, SagaInstance saga, P payload) {
+        return this.<CommandResult<?>>supplyOnStepExecutor(() -> send(step, saga, payload))
+                .exceptionally(e -> {
+                    log.error("Step " + step.name() + " failed with a remote error for saga: " + saga.getSagaId(), e);
+                    return CommandResult.failure(e.getMessage(), REMOTE_CALL_ERROR);
+                });
+    }
+
+    private CompletableFuture<Boolean> runCompensationBranch(String branch, SagaInstance saga, Supplier<Boolean> action) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        return supplyOnStepExecutor(action)
+                .orTimeout(compensationTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    log.error("Compensation branch " + branch + " did not complete for saga: " + saga.getSagaId(), e);
+                    return false;
+                })
+                .whenComplete((success, e) -> {
+                    long elapsedNanos = sample.stop(Timer.builder("saga.compensation.branch")
+                            .description("Time spent on a single compensating command")
+                            .tag("branch", branch)
+                            .tag("outcome", success ? "success" : "failure")
+                            .register(meterRegistry));
+                    log.info("Compensation branch {} for saga {} finished in {} ms (success: {})",
+                            branch, saga.getSagaId(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos), success);
+                });
+    }
+
+    // A call the saturated step executor rejects fails instead of running on the caller, outside any timeout
+    private <T> CompletableFuture<T> supplyOnStepExecutor(Supplier<T> action) {
+        try {
+            return CompletableFuture.supplyAsync(action, sagaStepExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /*
+     * A retry denied by the retry budget is given back, up to maxRetryDeferrals times per saga. After that the
+     * retry is used up without being sent, so a saga starved by a degraded downstream runs out of retries and
+     * compensates instead of being deferred until it expires.
+     */
+    private <P> void deferRetry(SagaDefinition<P> definition, SagaInstance saga) {
+        boolean deferred = saga.getDeferredRetries() < maxRetryDeferrals;
+        Counter.builder("saga.retry.deferred")
+                .description("Retries not sent because a downstream was out of retry budget")
+                .tag("saga", definition.name())
+                .tag("outcome", deferred ? "deferred" : "spent")
+                .register(meterRegistry)
+                .increment();
+        if (deferred) {
+            log.info("Deferring retry of saga {}, downstream retry budget exhausted", saga.getSagaId());
+            sagaStateStore.deferRetry(saga);
+        } else {
+            log.warn("Saga {} was deferred {} times, spending its retry", saga.getSagaId(), saga.getDeferredRetries());
+            sagaStateStore.scheduleRetry(saga);
+        }
+    }
+
+    private <P> void handleError(SagaDefinition<P> definition, SagaInstance saga) {
+        if (saga.canRetry()) {
+            log.info("Will retry saga {} due to error", saga.getSagaId());
+            saga.incrementRetry();
+            sagaStateStore.scheduleRetry(saga);
+        } else {
+            log.error("Saga {} exhausted retries, starting compensation", saga.getSagaId());
+            compensate(definition, saga);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.bookingservice.saga;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.bookingservice.entity.SagaInstance;
+import org.example.bookingservice.entity.SagaPayload;
+import org.example.bookingservice.repository.SagaPayloadRepository;
+import org.example.common.codec.PayloadCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory execution context of the sagas this node is running, holding each saga's parsed payload from the
+ * moment it is created until it completes or is cancelled. Retries and resumed stages reuse the parsed payload
+ * instead of loading and decoding its stored payload again; only a saga this node has not seen, after a restart, a failover or an
+ * eviction, falls back to the persisted payload. The payload of a saga never changes, so a context cannot go stale.
+ * <p>
+ * At most {@code maxContexts} are kept, the least recently used is evicted first.
+ */
+@Component
+public class SagaExecutionContexts {
+
+    private final Map<String, Object> payloads;
+    private final PayloadCodec payloadCodec;
+    private final SagaPayloadRepository payloadRepository;
+    private final Counter decodes;
+
+    public SagaExecutionContexts(PayloadCodec payloadCodec, SagaPayloadRepository payloadRepository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${saga.execution.max-contexts:10000}") int maxContexts) {
+        this.payloadCodec = payloadCodec;
+        this.payloadRepository = payloadRepository;
+        this.payloads = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                return size() > maxContexts;
+            }
+        };
+        this.decodes = Counter.builder("saga.payload.decodes")
+                .description("Saga payloads loaded and decoded because no execution context was held")
+                .register(meterRegistry);
+        Gauge.builder("saga.execution.contexts", this, SagaExecutionContexts::size).register(meterRegistry);
+    }
+
+    public synchronized void register(String sagaId, Object payload) {
+        payloads.put(sagaId, payload);
+    }
+
+    public <P> P payloadFor(SagaDefinition<P> definition, SagaInstance saga) {
+        Class<P> type = definition.payloadType();
+        synchronized (this) {
+            Object payload = payloads.get(saga.getSagaId());
+            if (type.isInstance(payload)) {
+                return type.cast(payload);
+            }
+        }
+
+        SagaPayload stored = payloadRepository.findById(saga.getSagaId())
+                .orElseThrow(() -> new IllegalStateException("No payload stored for saga " + saga.getSagaId()));
+        decodes.increment();
+        P payload = payloadCodec.decode(stored.getData(), type);
+        register(saga.getSagaId(), payload);
+        return payload;
+    }
+
+    public synchronized void remove(String sagaId) {
+        payloads.remove(sagaId);
+    }
+
+    public synchronized int size() {
+        return payloads.size();
+    }
+}
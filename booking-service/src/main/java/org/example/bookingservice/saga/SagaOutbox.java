@@ -0,0 +1,112 @@
+package org.example.bookingservice.saga;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.example.bookingservice.entity.OutboxMessage;
+import org.example.bookingservice.entity.SagaInstance;
+import org.example.bookingservice.enumeration.OutboxStatus;
+import org.example.bookingservice.repository.OutboxMessageRepository;
+import org.example.common.codec.PayloadCodec;
+import org.example.common.command.CommandResult;
+import org.example.common.messaging.CommandReply;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Saga commands sent through the {@code saga_outbox} table instead of a blocking call. With
+ * {@code saga.transport=outbox} the engine writes a stage's commands in the same transaction as the saga
+ * state change, the OutboxRelay delivers them to the services' inboxes, and each reply is stored on its
+ * command's entry until the engine settles the stage with it. Steps without a command are always called directly.
+ */
+@Component
+@Slf4j
+public class SagaOutbox {
+
+    private final OutboxMessageRepository outboxRepository;
+    private final PayloadCodec payloadCodec;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+
+    public SagaOutbox(OutboxMessageRepository outboxRepository, PayloadCodec payloadCodec, ObjectMapper objectMapper,
+                      @Value("${saga.transport:http}") String transport) {
+        this.outboxRepository = outboxRepository;
+        this.payloadCodec = payloadCodec;
+        this.objectMapper = objectMapper;
+        this.enabled = "outbox".equalsIgnoreCase(transport);
+    }
+
+    public boolean handles(SagaStage<?> stage) {
+        return enabled && stage.steps().stream().allMatch(step -> step.command() != null);
+    }
+
+    /**
+     * The stored replies to the commands of {@code steps}, in step order, with {@code null} for every
+     * command that has not been answered yet.
+     */
+    public <P> List<CommandResult<?>> replies(SagaInstance saga, List<SagaStep<P, ?>> steps) {
+        Map<String, OutboxMessage> messages = load(saga, steps);
+        List<CommandResult<?>> replies = new ArrayList<>(steps.size());
+        for (SagaStep<P, ?> step : steps) {
+            OutboxMessage message = messages.get(saga.idempotencyKeyFor(step.name()));
+            replies.add(message == null || message.getReply() == null ? null : decodeReply(step, message.getReply()));
+        }
+        return replies;
+    }
+
+    /**
+     * Outbox entries sending the commands of {@code steps}, to be saved together with the saga. A step whose
+     * command was queued before is sent again under the same entry, with any stored reply discarded.
+     */
+    public <P> List<OutboxMessage> commands(SagaInstance saga, P payload, List<SagaStep<P, ?>> steps) {
+        Map<String, OutboxMessage> messages = load(saga, steps);
+        List<OutboxMessage> commands = new ArrayList<>(steps.size());
+        for (SagaStep<P, ?> step : steps) {
+            String messageId = saga.idempotencyKeyFor(step.name());
+            byte[] command = payloadCodec.encode(step.command().apply(saga, payload));
+            OutboxMessage message = messages.get(messageId);
+            if (message == null) {
+                message = new OutboxMessage(messageId, saga.getSagaId(), step.downstream(), step.name(), command);
+            } else {
+                message.resend(command);
+            }
+            commands.add(message);
+        }
+        return commands;
+    }
+
+    /**
+     * Stores a reply on the entry of its command. Returns {@code false} if no such command was sent for the saga.
+     */
+    @Transactional
+    public boolean recordReply(CommandReply reply) {
+        return outboxRepository.findById(reply.getMessageId())
+                .filter(message -> message.getSagaId().equals(reply.getSagaId()))
+                .map(message -> {
+                    message.setReply(payloadCodec.encode(reply.getResult()));
+                    message.setStatus(OutboxStatus.REPLIED);
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    private <P> Map<String, OutboxMessage> load(SagaInstance saga, List<SagaStep<P, ?>> steps) {
+        List<String> messageIds = steps.stream().map(step -> saga.idempotencyKeyFor(step.name())).toList();
+        return outboxRepository.findAllById(messageIds).stream()
+                .collect(Collectors.toMap(OutboxMessage::getMessageId, Function.identity()));
+    }
+
+    private CommandResult<?> decodeReply(SagaStep<?, ?> step, byte[] reply) {
+        CommandResult<?> result = payloadCodec.decode(reply, CommandResult.class);
+        if (!result.isSuccess() || result.getData() == null) {
+            return result;
+        }
+        return CommandResult.success(objectMapper.convertValue(result.getData(), step.resultType()));
+    }
+}
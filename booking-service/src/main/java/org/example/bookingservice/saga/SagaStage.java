@@ -0,0 +1,31 @@
+package org.example.bookingservice.saga;
+
+import org.example.common.enumerations.SagaState;
+
+import java.util.List;
+
+/**
+ * A group of saga steps that are sent together. A stage with several steps sends them concurrently
+ * and records {@code pendingState} while they are in flight.
+ *
+ * @param pendingState state recorded before the commands are sent, {@code null} for single-step stages
+ * @param successState state recorded once every step of the stage succeeded
+ * @param failedState  state recorded when the stage failed without anything to compensate,
+ *                     {@code null} to use the failed state of the failing step
+ * @param steps        steps of the stage, in declaration order
+ */
+public record SagaStage<P>(SagaState pendingState,
+                           SagaState successState,
+                           SagaState failedState,
+                           List<SagaStep<P, ?>> steps) {
+
+    public static <P> SagaStage<P> of(SagaStep<P, ?> step, SagaState successState) {
+        return new SagaStage<>(null, successState, null, List.of(step));
+    }
+
+    @SafeVarargs
+    public static <P> SagaStage<P> parallel(SagaState pendingState, SagaState successState, SagaState failedState,
+                                            SagaStep<P, ?>... steps) {
+        return new SagaStage<>(pendingState, successState, failedState, List.of(steps));
+    }
+}
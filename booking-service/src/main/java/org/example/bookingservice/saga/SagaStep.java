@@ -0,0 +1,61 @@
+package org.example.bookingservice.saga;
+
+import lombok.Builder;
+import org.example.bookingservice.entity.SagaInstance;
+import org.example.common.command.CommandResult;
+import org.example.common.command.SagaCommand;
+import org.example.common.enumerations.SagaState;
+
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+
+/**
+ * One forward step of a saga: the remote command, how its result is recorded on the saga
+ * and the compensating command that undoes it.
+ *
+ * @param name             step name, also used for the idempotency key of the command
+ * @param downstream       service the command is sent to, retries are charged to its retry budget
+ * @param failedState      state recorded when the downstream rejects the command
+ * @param action           sends the command for the saga payload
+ * @param command          builds the command for the saga payload, {@code null} if the step can only be called
+ *                         directly; steps with a command can also be sent through the {@link SagaOutbox}
+ * @param resultType       type of the command result, used to read replies from the outbox
+ * @param onSuccess        records the command result on the saga
+ * @param completed        tells whether the step already succeeded, so retries can skip it
+ * @param compensationName name of the compensating command, {@code null} if the step needs none
+ * @param compensation     sends the compensating command, returns {@code true} when it was confirmed
+ */
+@Builder
+public record SagaStep<P, R>(String name,
+                             String downstream,
+                             SagaState failedState,
+                             BiFunction<SagaInstance, P, CommandResult<R>> action,
+                             BiFunction<SagaInstance, P, SagaCommand> command,
+                             Class<R> resultType,
+                             BiConsumer<SagaInstance, R> onSuccess,
+                             Predicate<SagaInstance> completed,
+                             String compensationName,
+                             Predicate<SagaInstance> compensation) {
+
+    public CommandResult<R> execute(SagaInstance saga, P payload) {
+        return action.apply(saga, payload);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void recordResult(SagaInstance saga, CommandResult<?> result) {
+        onSuccess.accept(saga, (R) result.getData());
+    }
+
+    public boolean isCompleted(SagaInstance saga) {
+        return completed.test(saga);
+    }
+
+    public boolean needsCompensation(SagaInstance saga) {
+        return compensation != null && isCompleted(saga);
+    }
+
+    public boolean compensate(SagaInstance saga) {
+        return compensation.test(saga);
+    }
+}
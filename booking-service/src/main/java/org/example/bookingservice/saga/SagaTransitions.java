@@ -0,0 +1,48 @@
+package org.example.bookingservice.saga;
+
+import org.example.common.enumerations.SagaState;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+
+/**
+ * Allowed saga state transitions, compiled into one {@link EnumSet} per source state.
+ * A transition check is an array lookup plus a bit test and never allocates.
+ */
+public final class SagaTransitions {
+
+    private final EnumMap<SagaState, EnumSet<SagaState>> allowed;
+
+    private SagaTransitions(EnumMap<SagaState, EnumSet<SagaState>> allowed) {
+        this.allowed = allowed;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public boolean allows(SagaState from, SagaState to) {
+        EnumSet<SagaState> targets = allowed.get(from);
+        return targets != null && targets.contains(to);
+    }
+
+    public static final class Builder {
+
+        private final EnumMap<SagaState, EnumSet<SagaState>> allowed = new EnumMap<>(SagaState.class);
+
+        private Builder() {
+        }
+
+        public Builder allow(SagaState from, SagaState... to) {
+            allowed.computeIfAbsent(from, state -> EnumSet.noneOf(SagaState.class)).addAll(Arrays.asList(to));
+            return this;
+        }
+
+        public SagaTransitions build() {
+            EnumMap<SagaState, EnumSet<SagaState>> compiled = new EnumMap<>(SagaState.class);
+            allowed.forEach((from, to) -> compiled.put(from, EnumSet.copyOf(to)));
+            return new SagaTransitions(compiled);
+        }
+    }
+}
@@ -1,16 +1,33 @@
 package org.example.bookingservice.service;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.example.bookingservice.entity.SagaInstance;
 import org.example.bookingservice.repository.SagaInstanceRepository;
+import org.example.bookingservice.repository.SagaInstanceRepository.SagaStatus;
+import org.example.common.dto.BatchBookingResponse;
 import org.example.common.dto.BookingRequest;
 import org.example.common.dto.BookingResponse;
 import org.example.common.enumerations.SagaState;
 import org.example.common.utils.CorrelationIdUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Service;
 
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -20,6 +37,20 @@ public class BookingService {
     private final SagaOrchestrator sagaOrchestrator;
     private final SagaInstanceRepository sagaRepository;
 
+    @Qualifier("sagaExecutor")
+    private final TaskExecutor sagaExecutor;
+
+    private final Validator validator;
+
+    @Value("${saga.execution.async:false}")
+    private boolean asyncExecution;
+
+    @Value("${saga.booking-batch.parallelism:16}")
+    private int batchParallelism;
+
+    @Value("${saga.status.chunk-size:500}")
+    private int statusChunkSize;
+
     public BookingResponse createBooking(BookingRequest request) {
         // Set correlation ID for tracing
         CorrelationIdUtils.generateAndSetCorrelationId();
@@ -29,8 +60,10 @@ public class BookingService {
                 request.getHotelId(), request.getGuestName());
 
         try {
-            String sagaId = sagaOrchestrator.startBookingSaga(request);
-            return BookingResponse.success(correlationId, sagaId);
+            if (asyncExecution) {
+                return BookingResponse.accepted(correlationId, submitBookingSaga(request));
+            }
+            return BookingResponse.success(correlationId, sagaOrchestrator.startBookingSaga(request));
 
         } catch (Exception e) {
             log.error("Failed to create booking", e);
@@ -40,18 +73,135 @@ public class BookingService {
         }
     }
 
-    public BookingResponse getBookingStatus(String sagaId) {
-        Optional<SagaInstance> sagaOpt = sagaRepository.findById(sagaId);
+    /*
+     * Persists the saga as STARTED and returns immediately, the steps run on the saga executor.
+     * If the executor is saturated the saga is cancelled right away rather than left dangling in STARTED.
+     */
+    private String submitBookingSaga(BookingRequest request) {
+        String sagaId = sagaOrchestrator.createBookingSaga(request);
+
+        try {
+            sagaExecutor.execute(() -> sagaOrchestrator.runSaga(sagaId));
+        } catch (TaskRejectedException e) {
+            log.warn("Saga executor is saturated, cancelling saga: {}", sagaId);
+            sagaOrchestrator.cancelSaga(sagaId);
+            throw e;
+        }
+
+        return sagaId;
+    }
+
+    /**
+     * Validates a batch of bookings and creates the sagas of the valid ones in one transaction. The sagas run in
+     * the background, as with async execution. Responses are returned in the order of the requests, an invalid
+     * booking is rejected on its own.
+     */
+    public BatchBookingResponse createBookings(List<BookingRequest> requests) {
+        CorrelationIdUtils.generateAndSetCorrelationId();
+        String correlationId = CorrelationIdUtils.getCorrelationId();
+        String batchId = UUID.randomUUID().toString();
+
+        log.info("Creating batch {} of {} bookings", batchId, requests.size());
+
+        List<BookingResponse> bookings = new ArrayList<>(Collections.nCopies(requests.size(), null));
+        List<Integer> accepted = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            Set<ConstraintViolation<BookingRequest>> violations = validator.validate(requests.get(i));
+            if (violations.isEmpty()) {
+                accepted.add(i);
+            } else {
+                bookings.set(i, BookingResponse.failure(null, "Invalid booking request: " + describe(violations)));
+            }
+        }
+
+        try {
+            if (!accepted.isEmpty()) {
+                List<String> sagaIds = sagaOrchestrator.createBookingSagas(batchId,
+                        accepted.stream().map(requests::get).toList());
+                for (int j = 0; j < accepted.size(); j++) {
+                    bookings.set(accepted.get(j), BookingResponse.accepted(correlationId, sagaIds.get(j)));
+                }
+                submitBatch(sagaIds);
+            }
+        } catch (Exception e) {
+            log.error("Failed to create booking batch " + batchId, e);
+            accepted.forEach(i -> bookings.set(i, BookingResponse.failure(null, "Failed to process booking request")));
+        } finally {
+            CorrelationIdUtils.clear();
+        }
+        return new BatchBookingResponse(batchId, bookings);
+    }
 
-        if (sagaOpt.isEmpty()) {
-            return BookingResponse.failure(sagaId, "Booking not found");
+    /*
+     * The batch runs in at most batchParallelism lanes. Each lane runs one saga on the saga executor and once it
+     * finished hands the batch's next saga to the executor, so no pool thread ever waits for a batch and single
+     * bookings are served between the batch's sagas. A saga the saturated executor rejects is cancelled rather than
+     * left dangling in STARTED, and its lane moves on to the next one.
+     */
+    private void submitBatch(List<String> sagaIds) {
+        AtomicInteger next = new AtomicInteger();
+        for (int lane = 0; lane < Math.min(batchParallelism, sagaIds.size()); lane++) {
+            runNext(sagaIds, next);
         }
+    }
 
-        SagaInstance saga = sagaOpt.get();
+    private void runNext(List<String> sagaIds, AtomicInteger next) {
+        int index;
+        while ((index = next.getAndIncrement()) < sagaIds.size()) {
+            String sagaId = sagaIds.get(index);
+            try {
+                sagaExecutor.execute(() -> {
+                    try {
+                        sagaOrchestrator.runSaga(sagaId);
+                    } finally {
+                        runNext(sagaIds, next);
+                    }
+                });
+                return;
+            } catch (TaskRejectedException e) {
+                log.warn("Saga executor is saturated, cancelling saga: {}", sagaId);
+                sagaOrchestrator.cancelSaga(sagaId);
+            }
+        }
+    }
+
+    public BatchBookingResponse getBatchStatus(String batchId) {
+        List<BookingResponse> bookings = sagaRepository.findStatusesByBatchId(batchId).stream()
+                .map(this::toResponse)
+                .toList();
+        return new BatchBookingResponse(batchId, bookings);
+    }
 
+    public BookingResponse getBookingStatus(String sagaId) {
+        return sagaRepository.findStatus(sagaId)
+                .map(this::toResponse)
+                .orElseGet(() -> BookingResponse.failure(sagaId, "Booking not found"));
+    }
+
+    /**
+     * Hands the status of every given saga to {@code sink}, in the order of {@code sagaIds}. The ids are resolved
+     * with one projection query per chunk of {@code saga.status.chunk-size}, so the first statuses can be written
+     * out before the later ones are read. Unknown ids are answered as not found.
+     */
+    public void streamBookingStatuses(List<String> sagaIds, Consumer<BookingResponse> sink) {
+        for (int from = 0; from < sagaIds.size(); from += statusChunkSize) {
+            List<String> chunk = sagaIds.subList(from, Math.min(from + statusChunkSize, sagaIds.size()));
+            Map<String, SagaStatus> statuses = new HashMap<>();
+            for (SagaStatus status : sagaRepository.findStatuses(new HashSet<>(chunk))) {
+                statuses.put(status.getSagaId(), status);
+            }
+
+            for (String sagaId : chunk) {
+                SagaStatus status = statuses.get(sagaId);
+                sink.accept(status != null ? toResponse(status) : BookingResponse.failure(sagaId, "Booking not found"));
+            }
+        }
+    }
+
+    private BookingResponse toResponse(SagaStatus saga) {
         BookingResponse response = new BookingResponse();
         response.setBookingId(saga.getReservationId());
-        response.setSagaId(sagaId);
+        response.setSagaId(saga.getSagaId());
         response.setStatus(saga.getState().name());
         response.setMessage(getStatusMessage(saga.getState()));
         response.setTimestamp(saga.getUpdatedAt());
@@ -59,14 +209,24 @@ public class BookingService {
         return response;
     }
 
+    private static String describe(Set<ConstraintViolation<BookingRequest>> violations) {
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
     private String getStatusMessage(SagaState state) {
         return switch (state) {
             case STARTED -> "Booking request received";
+            case ROOM_AND_PAYMENT_PENDING -> "Reserving room and authorizing payment";
             case ROOM_RESERVED -> "Room reserved, processing payment";
             case PAYMENT_AUTHORIZED -> "Payment authorized, completing booking";
             case BOOKING_COMPLETED -> "Booking completed successfully";
             case ROOM_RESERVATION_FAILED -> "Room reservation failed";
             case PAYMENT_AUTHORIZATION_FAILED -> "Payment authorization failed";
+            case ROOM_RESERVED_PAYMENT_FAILED -> "Payment authorization failed, releasing room";
+            case PAYMENT_AUTHORIZED_ROOM_FAILED -> "Room reservation failed, cancelling payment";
             case COMPENSATING -> "Processing cancellation";
             case BOOKING_CANCELLED -> "Booking cancelled";
             case COMPENSATION_COMPLETED -> "Cancellation completed";
@@ -0,0 +1,109 @@
+package org.example.bookingservice.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.bookingservice.entity.OrchestratorNode;
+import org.example.bookingservice.repository.OrchestratorNodeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/*
+ * Keeps track of the live booking-service nodes through a heartbeat row per node, so the background
+ * saga sweeps can split the saga id space between them instead of every node scanning everything.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrchestratorNodeRegistry {
+
+    private final OrchestratorNodeRepository nodeRepository;
+
+    @Value("${saga.node.partitioning-enabled:false}")
+    private boolean partitioningEnabled;
+
+    @Value("${saga.node.id:}")
+    private String nodeId;
+
+    @Value("${saga.node.ttl:30s}")
+    private Duration nodeTtl;
+
+    @PostConstruct
+    public void join() {
+        if (nodeId.isBlank()) {
+            nodeId = UUID.randomUUID().toString();
+        }
+        if (!partitioningEnabled) {
+            return;
+        }
+        heartbeat();
+        log.info("Orchestrator node {} joined", nodeId);
+    }
+
+    @Scheduled(fixedDelayString = "${saga.node.heartbeat-interval:10000}")
+    public void heartbeat() {
+        if (!partitioningEnabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        nodeRepository.save(new OrchestratorNode(nodeId, now));
+
+        int removed = nodeRepository.deleteStaleNodes(now.minus(nodeTtl.multipliedBy(2)));
+        if (removed > 0) {
+            log.info("Removed {} stale orchestrator nodes", removed);
+        }
+    }
+
+    /**
+     * The share of the saga partition buckets this node is responsible for, based on its position
+     * among the live nodes ordered by id. Without partitioning this node owns every bucket.
+     */
+    public Partition currentPartition() {
+        if (!partitioningEnabled) {
+            return Partition.ALL;
+        }
+        List<String> liveNodes = liveNodes();
+        if (!liveNodes.contains(nodeId)) {
+            // Not registered yet or missed heartbeats, rejoin before claiming a share
+            heartbeat();
+            liveNodes = liveNodes();
+        }
+        return new Partition(liveNodes.indexOf(nodeId), liveNodes.size());
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @PreDestroy
+    public void leave() {
+        if (!partitioningEnabled) {
+            return;
+        }
+        try {
+            nodeRepository.deleteById(nodeId);
+        } catch (Exception e) {
+            log.warn("Could not deregister orchestrator node {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    private List<String> liveNodes() {
+        return nodeRepository.findLiveNodeIds(LocalDateTime.now().minus(nodeTtl));
+    }
+
+    public record Partition(int index, int count) {
+        public static final Partition ALL = new Partition(0, 1);
+
+        // Same split as the MOD(partitionBucket, count) = index filters of the saga queries
+        public boolean owns(int partitionBucket) {
+            return partitionBucket % count == index;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.bookingservice.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.example.bookingservice.entity.OutboxMessage;
+import org.example.bookingservice.feignclient.HotelServiceClient;
+import org.example.bookingservice.feignclient.PaymentServiceClient;
+import org.example.bookingservice.repository.OutboxMessageRepository;
+import org.example.common.codec.PayloadCodec;
+import org.example.common.messaging.CommandEnvelope;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/*
+ * Delivers queued saga commands to the inbox of their destination service. A batch is locked with
+ * FOR UPDATE SKIP LOCKED and leased in one short transaction, so relays on several nodes never send the same
+ * batch, and the commands are posted after commit. The inboxes only store a command and answer right away;
+ * a destination that is down or slow leaves its commands queued instead of tying up saga threads.
+ */
+@Component
+@ConditionalOnProperty(name = "saga.transport", havingValue = "outbox")
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxMessageRepository outboxRepository;
+    private final PayloadCodec payloadCodec;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, Consumer<CommandEnvelope>> destinations;
+
+    @Value("${saga.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${saga.outbox.lease:30s}")
+    private Duration lease;
+
+    @Value("${saga.outbox.retry-delay:5s}")
+    private Duration retryDelay;
+
+    public OutboxRelay(OutboxMessageRepository outboxRepository, PayloadCodec payloadCodec,
+                       TransactionTemplate transactionTemplate,
+                       HotelServiceClient hotelClient, PaymentServiceClient paymentClient) {
+        this.outboxRepository = outboxRepository;
+        this.payloadCodec = payloadCodec;
+        this.transactionTemplate = transactionTemplate;
+        this.destinations = Map.of(
+                "hotel-service", hotelClient::deliver,
+                "payment-service", paymentClient::deliver);
+    }
+
+    @Scheduled(fixedDelayString = "${saga.outbox.relay-interval:200}")
+    public void relay() {
+        List<OutboxMessage> batch;
+        do {
+            batch = leaseDueMessages();
+            batch.forEach(this::deliver);
+        } while (batch.size() == batchSize);
+    }
+
+    // A relay that stops before delivering leaves its batch to be picked up again once the lease ran out
+    private List<OutboxMessage> leaseDueMessages() {
+        LocalDateTime now = LocalDateTime.now();
+        return transactionTemplate.execute(status -> {
+            List<OutboxMessage> due = outboxRepository.lockDueMessages(now, batchSize);
+            for (OutboxMessage message : due) {
+                message.setAttempts(message.getAttempts() + 1);
+                message.setAvailableAt(now.plus(lease));
+            }
+            return due;
+        });
+    }
+
+    private void deliver(OutboxMessage message) {
+        Consumer<CommandEnvelope> destination = destinations.get(message.getDestination());
+        if (destination == null) {
+            log.error("No destination {} for outbox message {}", message.getDestination(), message.getMessageId());
+            return;
+        }
+
+        CommandEnvelope envelope = new CommandEnvelope(message.getMessageId(), message.getSagaId(),
+                message.getCommandType(), payloadCodec.decode(message.getCommand(), JsonNode.class));
+        try {
+            destination.accept(envelope);
+            outboxRepository.markSent(message.getMessageId());
+        } catch (Exception e) {
+            log.warn("Delivery of {} for saga {} to {} failed (attempt {}): {}", message.getCommandType(),
+                    message.getSagaId(), message.getDestination(), message.getAttempts(), e.getMessage());
+            outboxRepository.postpone(message.getMessageId(), LocalDateTime.now().plus(retryDelay));
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.bookingservice.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with jitter for saga retries. The delay doubles (by default) with every retry up to
+ * {@code maxDelay}, and each delay is drawn from its upper half so sagas that failed together spread out
+ * instead of retrying in waves against a downstream that is still recovering.
+ */
+public class RetryBackoffPolicy {
+
+    private final Duration initialDelay;
+    private final double multiplier;
+    private final Duration maxDelay;
+
+    public RetryBackoffPolicy(Duration initialDelay, double multiplier, Duration maxDelay) {
+        this.initialDelay = initialDelay;
+        this.multiplier = multiplier;
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * Delay before the retry that follows {@code retryCount} earlier retries.
+     */
+    public Duration delayFor(int retryCount) {
+        double exponential = initialDelay.toMillis() * Math.pow(multiplier, retryCount);
+        long capped = (long) Math.min(exponential, maxDelay.toMillis());
+        long half = capped / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(capped - half + 1));
+    }
+
+    public LocalDateTime nextRetryAt(int retryCount) {
+        return LocalDateTime.now().plus(delayFor(retryCount));
+    }
+}
@@ -0,0 +1,270 @@
+package org.example.bookingservice.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.bookingservice.entity.StateTransition;
+import org.example.bookingservice.repository.SagaInstanceRepository;
+import org.example.bookingservice.repository.SagaInstanceRepository.SagaStatus;
+import org.example.bookingservice.timer.SagaDeadlineScheduler;
+import org.example.common.dto.SagaStateEvent;
+import org.example.common.enumerations.SagaState;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-Sent Events streams of saga transitions. A stream first sends the current state of each of its sagas,
+ * then every transition as soon as it is committed, and completes once all of its sagas reached a final state.
+ * Streams hold no thread while idle, only an entry in the per saga subscriber map, which is what lets many
+ * thousands of clients wait for their bookings instead of polling the status endpoint.
+ * <p>
+ * Events are queued per stream and written by the event executor, so a slow client never holds up the saga
+ * thread that committed the transition. Transitions are only published within this node; a saga driven by
+ * another node, e.g. after a retry or a reply, is caught up by re-reading the states of the followed sagas that
+ * had no event for a {@code saga.events.refresh-interval}, which sends their latest state rather than every step
+ * in between.
+ */
+@Component
+@Slf4j
+public class SagaEventStreams {
+
+    private static final String EVENT_NAME = "transition";
+
+    private final SagaInstanceRepository sagaRepository;
+    private final Executor eventExecutor;
+    private final long timeoutMillis;
+    private final int maxStreams;
+    private final int refreshChunkSize;
+    private final long refreshIntervalNanos;
+
+    private final Map<String, Set<Stream>> streamsBySaga = new ConcurrentHashMap<>();
+    private final AtomicInteger openStreams = new AtomicInteger();
+
+    public SagaEventStreams(SagaInstanceRepository sagaRepository, MeterRegistry meterRegistry,
+                            @Qualifier("sagaEventExecutor") Executor eventExecutor,
+                            @Value("${saga.events.timeout:30m}") Duration timeout,
+                            @Value("${saga.events.max-streams:10000}") int maxStreams,
+                            @Value("${saga.status.chunk-size:500}") int refreshChunkSize,
+                            @Value("${saga.events.refresh-interval:5000}") long refreshIntervalMillis) {
+        this.sagaRepository = sagaRepository;
+        this.eventExecutor = eventExecutor;
+        this.timeoutMillis = timeout.toMillis();
+        this.maxStreams = maxStreams;
+        this.refreshChunkSize = refreshChunkSize;
+        this.refreshIntervalNanos = TimeUnit.MILLISECONDS.toNanos(refreshIntervalMillis);
+        Gauge.builder("saga.events.streams", openStreams, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream of the transitions of the given sagas. Unknown sagas are left out, if none of them exists
+     * no stream is opened.
+     */
+    public Optional<SseEmitter> open(Collection<String> sagaIds) {
+        if (openStreams.incrementAndGet() > maxStreams) {
+            openStreams.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many open event streams");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Stream stream = new Stream(emitter, sagaIds);
+        emitter.onCompletion(stream::close);
+        emitter.onTimeout(stream::close);
+        emitter.onError(error -> stream.close());
+
+        // Subscribed before the current states are read, so a transition committed meanwhile is not missed
+        synchronized (stream) {
+            stream.pending.forEach(sagaId -> streamsBySaga.compute(sagaId, (id, streams) -> {
+                Set<Stream> subscribed = streams != null ? streams : ConcurrentHashMap.newKeySet();
+                subscribed.add(stream);
+                return subscribed;
+            }));
+
+            Map<String, SagaStatus> statuses = new HashMap<>();
+            for (SagaStatus status : sagaRepository.findStatuses(stream.pending)) {
+                statuses.put(status.getSagaId(), status);
+            }
+            if (statuses.isEmpty()) {
+                stream.close();
+                return Optional.empty();
+            }
+            for (String sagaId : List.copyOf(stream.pending)) {
+                SagaStatus status = statuses.get(sagaId);
+                if (status == null) {
+                    stream.drop(sagaId);
+                } else {
+                    stream.enqueue(sagaId, status.getState(), status.getUpdatedAt());
+                }
+            }
+        }
+        return Optional.of(emitter);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransitions(SagaTransitionsEvent event) {
+        Set<Stream> streams = streamsBySaga.get(event.sagaId());
+        if (streams == null) {
+            return;
+        }
+        for (Stream stream : streams) {
+            for (StateTransition transition : event.transitions()) {
+                stream.enqueue(event.sagaId(), transition.state(), transition.at());
+            }
+        }
+    }
+
+    /*
+     * Catches up on transitions committed by other nodes, which are never published here. Sagas with a recent
+     * event are left out, so a saga running on this node is not raced by a re-read of a commit whose
+     * transitions are about to be published.
+     */
+    @Scheduled(fixedDelayString = "${saga.events.refresh-interval:5000}")
+    public void refreshFollowedSagas() {
+        long quietSince = System.nanoTime() - refreshIntervalNanos;
+        List<String> followed = List.copyOf(streamsBySaga.keySet());
+        for (int from = 0; from < followed.size(); from += refreshChunkSize) {
+            List<String> chunk = followed.subList(from, Math.min(from + refreshChunkSize, followed.size()));
+            for (SagaStatus status : sagaRepository.findStatuses(chunk)) {
+                Set<Stream> streams = streamsBySaga.get(status.getSagaId());
+                if (streams != null) {
+                    streams.forEach(stream -> stream.catchUp(status.getSagaId(), status.getState(),
+                            status.getUpdatedAt(), quietSince));
+                }
+            }
+        }
+    }
+
+    private void unsubscribe(String sagaId, Stream stream) {
+        streamsBySaga.computeIfPresent(sagaId, (id, streams) -> {
+            streams.remove(stream);
+            return streams.isEmpty() ? null : streams;
+        });
+    }
+
+    private final class Stream {
+
+        private final SseEmitter emitter;
+        // Sagas not yet in a final state
+        private final Set<String> pending = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final Queue<SagaStateEvent> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // Last event queued per saga, guarded by the stream's lock
+        private final Map<String, Queued> lastQueued = new HashMap<>();
+
+        private Stream(SseEmitter emitter, Collection<String> sagaIds) {
+            this.emitter = emitter;
+            this.pending.addAll(sagaIds);
+        }
+
+        /*
+         * Queues the event unless the saga's last event already had that state, as when a transition was also
+         * caught up on. Synchronized so the events of a saga are queued in order.
+         */
+        synchronized void enqueue(String sagaId, SagaState state, LocalDateTime at) {
+            Queued last = lastQueued.get(sagaId);
+            if (last == null || last.event().getState() != state) {
+                add(sagaId, state, at);
+            }
+        }
+
+        // Queues a re-read state of a saga whose last event is older than quietSince and was not that state
+        synchronized void catchUp(String sagaId, SagaState state, LocalDateTime at, long quietSince) {
+            Queued last = lastQueued.get(sagaId);
+            if (last == null || (last.queuedNanos() - quietSince < 0 && last.event().getState() != state
+                    && !at.isBefore(last.event().getTimestamp()))) {
+                add(sagaId, state, at);
+            }
+        }
+
+        private void add(String sagaId, SagaState state, LocalDateTime at) {
+            if (closed.get() || !pending.contains(sagaId)) {
+                return;
+            }
+            SagaStateEvent event = new SagaStateEvent(sagaId, state, at);
+            lastQueued.put(sagaId, new Queued(event, System.nanoTime()));
+            queue.add(event);
+            scheduleDrain();
+        }
+
+        // At most one drain per stream runs at a time, so the events go out one at a time and in order
+        private void scheduleDrain() {
+            if (!draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                eventExecutor.execute(this::drain);
+            } catch (TaskRejectedException e) {
+                log.warn("Event executor is saturated, closing an event stream so its client reconnects");
+                close();
+                emitter.complete();
+            }
+        }
+
+        private void drain() {
+            SagaStateEvent event;
+            while (!closed.get() && (event = queue.poll()) != null) {
+                try {
+                    emitter.send(SseEmitter.event().name(EVENT_NAME).data(event));
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("Event stream of saga {} is gone: {}", event.getSagaId(), e.getMessage());
+                    close();
+                    return;
+                }
+                if (SagaDeadlineScheduler.FINAL_STATES.contains(event.getState())) {
+                    drop(event.getSagaId());
+                }
+            }
+            draining.set(false);
+            // An event queued while the drain was finishing found it still running
+            if (!closed.get() && !queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        // Stops following the saga, the stream completes with its last saga
+        void drop(String sagaId) {
+            pending.remove(sagaId);
+            unsubscribe(sagaId, this);
+            if (pending.isEmpty()) {
+                close();
+                emitter.complete();
+            }
+        }
+
+        // Also run by the emitter's completion, timeout and error callbacks, so it takes no lock
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                pending.forEach(sagaId -> unsubscribe(sagaId, this));
+                queue.clear();
+                openStreams.decrementAndGet();
+            }
+        }
+    }
+
+    private record Queued(SagaStateEvent event, long queuedNanos) {
+    }
+}
@@ -1,55 +1,54 @@
 package org.example.bookingservice.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.bookingservice.entity.SagaInstance;
-import org.example.bookingservice.feignclient.HotelServiceClient;
-import org.example.bookingservice.feignclient.PaymentServiceClient;
 import org.example.bookingservice.repository.SagaInstanceRepository;
-import org.example.common.command.AuthorizePaymentCommand;
-import org.example.common.command.CancelPaymentCommand;
-import org.example.common.command.CommandResult;
-import org.example.common.command.ReleaseRoomCommand;
-import org.example.common.command.ReserveRoomCommand;
+import org.example.bookingservice.saga.SagaDefinition;
+import org.example.bookingservice.saga.SagaEngine;
+import org.example.bookingservice.saga.SagaExecutionContexts;
+import org.example.bookingservice.saga.SagaOutbox;
+import org.example.common.codec.PayloadCodec;
 import org.example.common.dto.BookingRequest;
-import org.example.common.dto.PaymentAuthorizationDto;
-import org.example.common.dto.ReservationDto;
 import org.example.common.enumerations.SagaState;
-import org.example.common.utils.IdempotencyUtils;
+import org.example.common.messaging.CommandReply;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-
+import java.util.function.Predicate;
+
+/*
+ * None of the methods that talk to hotel-service or payment-service run inside a transaction.
+ * Every state change is committed on its own through SagaStateStore before the next remote call is made,
+ * so a slow downstream never pins a pooled JDBC connection or the saga row.
+ * The steps themselves are declared in BookingSaga and run by the SagaEngine.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class SagaOrchestrator {
 
     private final SagaInstanceRepository sagaRepository;
-    private final HotelServiceClient hotelClient;
-    private final PaymentServiceClient paymentClient;
-    private final ObjectMapper objectMapper;
+    private final SagaStateStore sagaStateStore;
+    private final SagaEngine sagaEngine;
+    private final SagaDefinition<BookingRequest> bookingSaga;
+    private final PayloadCodec payloadCodec;
+    private final SagaExecutionContexts executionContexts;
+    private final SagaOutbox sagaOutbox;
 
-    @Transactional
     public String startBookingSaga(BookingRequest request) {
         String sagaId = UUID.randomUUID().toString();
         log.info("Starting booking saga: {}", sagaId);
 
         try {
-            // Create saga instance
-            SagaInstance saga = new SagaInstance();
-            saga.setSagaId(sagaId);
-            saga.setState(SagaState.STARTED);
-            saga.setSagaData(objectMapper.writeValueAsString(request));
-
-            saga = sagaRepository.save(saga);
+            SagaInstance saga = createSagaInstance(sagaId, request);
 
             // Execute first step
-            executeReserveRoom(saga);
+            sagaEngine.execute(bookingSaga, saga);
 
             return sagaId;
 
@@ -59,211 +58,131 @@ public class SagaOrchestrator {
         }
     }
 
+    /**
+     * Persists a new saga in STARTED without executing any step. The caller is expected to hand the
+     * saga over to {@link #runSaga(String)}, typically on the saga executor.
+     */
     @Transactional
-    public void executeReserveRoom(SagaInstance saga) {
-        log.info("Executing room reservation for saga: {}", saga.getSagaId());
+    public String createBookingSaga(BookingRequest request) {
+        String sagaId = UUID.randomUUID().toString();
+        log.info("Creating booking saga: {}", sagaId);
 
         try {
-            BookingRequest request = objectMapper.readValue(saga.getSagaData(), BookingRequest.class);
-
-            ReserveRoomCommand command = new ReserveRoomCommand();
-            command.setSagaId(saga.getSagaId());
-            command.setIdempotencyKey(IdempotencyUtils.generateKey(saga.getSagaId(), "reserve-room"));
-            command.setTimestamp(LocalDateTime.now());
-            command.setHotelId(request.getHotelId());
-            command.setRoomType(request.getRoomType());
-            command.setCheckIn(request.getCheckIn());
-            command.setCheckOut(request.getCheckOut());
-            command.setGuestName(request.getGuestName());
-            command.setRoomPrice(request.getRoomPrice());
-
-            CommandResult<ReservationDto> result = hotelClient.reserveRoom(command);
-
-            if (result.isSuccess()) {
-                updateSagaState(saga, SagaState.ROOM_RESERVED);
-                saga.setReservationId(result.getData().getReservationId());
-                sagaRepository.save(saga);
-
-                // Continue to payment authorization
-                executeAuthorizePayment(saga);
-            } else {
-                log.error("Room reservation failed for saga {}: {}", saga.getSagaId(), result.getErrorMessage());
-                updateSagaState(saga, SagaState.ROOM_RESERVATION_FAILED);
-                sagaRepository.save(saga);
-
-                // End saga with failure
-                updateSagaState(saga, SagaState.BOOKING_CANCELLED);
-                sagaRepository.save(saga);
-            }
-
+            createSagaInstance(sagaId, request);
+            return sagaId;
         } catch (Exception e) {
-            log.error("Error executing room reservation for saga: " + saga.getSagaId(), e);
-            handleSagaError(saga, e);
+            log.error("Failed to create booking saga: " + sagaId, e);
+            throw new RuntimeException("Failed to create booking saga", e);
         }
     }
 
-    @Transactional
-    public void executeAuthorizePayment(SagaInstance saga) {
-        log.info("Executing payment authorization for saga: {}", saga.getSagaId());
-
-        try {
-            BookingRequest request = objectMapper.readValue(saga.getSagaData(), BookingRequest.class);
-
-            AuthorizePaymentCommand command = new AuthorizePaymentCommand();
-            command.setSagaId(saga.getSagaId());
-            command.setIdempotencyKey(IdempotencyUtils.generateKey(saga.getSagaId(), "authorize-payment"));
-            command.setTimestamp(LocalDateTime.now());
-            command.setCardNumber(request.getCardNumber());
-            command.setCardHolderName(request.getCardHolderName());
-            command.setExpiryMonth(request.getExpiryMonth());
-            command.setExpiryYear(request.getExpiryYear());
-            command.setCvv(request.getCvv());
-            command.setAmount(request.getRoomPrice());
-            command.setCurrency("USD");
-
-            CommandResult<PaymentAuthorizationDto> result = paymentClient.authorizePayment(command);
-
-            if (result.isSuccess()) {
-                updateSagaState(saga, SagaState.PAYMENT_AUTHORIZED);
-                saga.setAuthorizationId(result.getData().getAuthorizationId());
-                sagaRepository.save(saga);
-
-                // Complete booking
-                updateSagaState(saga, SagaState.BOOKING_COMPLETED);
-                sagaRepository.save(saga);
-                log.info("Booking completed successfully for saga: {}", saga.getSagaId());
-            } else {
-                log.error("Payment authorization failed for saga {}: {}", saga.getSagaId(), result.getErrorMessage());
-                updateSagaState(saga, SagaState.PAYMENT_AUTHORIZATION_FAILED);
-                sagaRepository.save(saga);
-
-                // Start compensation
-                executeCompensation(saga);
-            }
+    /**
+     * Persists a batch of new sagas in STARTED with one transaction, without executing any step.
+     * Returns the saga ids in the order of the requests.
+     */
+    public List<String> createBookingSagas(String batchId, List<BookingRequest> requests) {
+        log.info("Creating batch {} of {} booking sagas", batchId, requests.size());
+
+        List<SagaInstance> sagas = new ArrayList<>(requests.size());
+        List<byte[]> payloads = new ArrayList<>(requests.size());
+        for (BookingRequest request : requests) {
+            SagaInstance saga = newSagaInstance(UUID.randomUUID().toString());
+            saga.setBatchId(batchId);
+            sagas.add(saga);
+            payloads.add(payloadCodec.encode(request));
+        }
+        sagaStateStore.createAll(sagas, payloads);
 
-        } catch (Exception e) {
-            log.error("Error executing payment authorization for saga: " + saga.getSagaId(), e);
-            handleSagaError(saga, e);
+        List<String> sagaIds = new ArrayList<>(sagas.size());
+        for (int i = 0; i < sagas.size(); i++) {
+            executionContexts.register(sagas.get(i).getSagaId(), requests.get(i));
+            sagaIds.add(sagas.get(i).getSagaId());
         }
+        return sagaIds;
     }
 
-    @Transactional
-    public void executeCompensation(SagaInstance saga) {
-        log.info("Executing compensation for saga: {}", saga.getSagaId());
-
-        updateSagaState(saga, SagaState.COMPENSATING);
-        sagaRepository.save(saga);
-
-        boolean compensationSuccess = true;
-
-        // Cancel payment if it was authorized
-        if (saga.getAuthorizationId() != null) {
-            try {
-                CancelPaymentCommand command = new CancelPaymentCommand();
-                command.setSagaId(saga.getSagaId());
-                command.setIdempotencyKey(IdempotencyUtils.generateKey(saga.getSagaId(), "cancel-payment"));
-                command.setTimestamp(LocalDateTime.now());
-                command.setAuthorizationId(saga.getAuthorizationId());
-                command.setReason("Booking saga compensation");
+    public void runSaga(String sagaId) {
+        Optional<SagaInstance> sagaOpt = sagaRepository.findById(sagaId);
+        if (sagaOpt.isEmpty()) {
+            log.warn("Saga not found for execution: {}", sagaId);
+            return;
+        }
 
-                CommandResult<Void> result = paymentClient.cancelPayment(command);
-                if (!result.isSuccess()) {
-                    log.error("Payment cancellation failed for saga {}: {}", saga.getSagaId(), result.getErrorMessage());
-                    compensationSuccess = false;
-                }
-            } catch (Exception e) {
-                log.error("Error cancelling payment for saga: " + saga.getSagaId(), e);
-                compensationSuccess = false;
-            }
+        SagaInstance saga = sagaOpt.get();
+        if (saga.getState() != SagaState.STARTED) {
+            log.warn("Saga {} already progressed to {}, skipping execution", sagaId, saga.getState());
+            return;
         }
 
-        // Release room if it was reserved
-        if (saga.getReservationId() != null) {
-            try {
-                ReleaseRoomCommand command = new ReleaseRoomCommand();
-                command.setSagaId(saga.getSagaId());
-                command.setIdempotencyKey(IdempotencyUtils.generateKey(saga.getSagaId(), "release-room"));
-                command.setTimestamp(LocalDateTime.now());
-                command.setReservationId(saga.getReservationId());
-                command.setReason("Booking saga compensation");
+        sagaEngine.execute(bookingSaga, saga);
+    }
 
-                CommandResult<Void> result = hotelClient.releaseRoom(command);
-                if (!result.isSuccess()) {
-                    log.error("Room release failed for saga {}: {}", saga.getSagaId(), result.getErrorMessage());
-                    compensationSuccess = false;
-                }
-            } catch (Exception e) {
-                log.error("Error releasing room for saga: " + saga.getSagaId(), e);
-                compensationSuccess = false;
-            }
+    /**
+     * Stores the reply to an outbox command and continues its saga if that was the last reply it waited for.
+     * Replies are redelivered until this returns, so a duplicate or a reply for a saga that moved on is a no-op.
+     * Concurrent replies may each find the stage complete, the one that loses the race on the saga row leaves it
+     * to the winner.
+     */
+    public void handleReply(CommandReply reply) {
+        if (!sagaOutbox.recordReply(reply)) {
+            log.warn("Ignoring reply {} to unknown command of saga {}", reply.getMessageId(), reply.getSagaId());
+            return;
         }
+        sagaRepository.findById(reply.getSagaId())
+                .ifPresent(saga -> sagaEngine.resume(bookingSaga, saga));
+    }
 
-        // Update final state
-        if (compensationSuccess) {
-            updateSagaState(saga, SagaState.COMPENSATION_COMPLETED);
-            updateSagaState(saga, SagaState.BOOKING_CANCELLED);
-            log.info("Compensation completed successfully for saga: {}", saga.getSagaId());
-        } else {
-            updateSagaState(saga, SagaState.COMPENSATION_FAILED);
-            log.error("Compensation failed for saga: {}", saga.getSagaId());
-        }
+    @Transactional
+    public void cancelSaga(String sagaId) {
+        sagaRepository.findById(sagaId).ifPresent(saga -> {
+            sagaEngine.transition(bookingSaga, saga, SagaState.BOOKING_CANCELLED);
+            sagaStateStore.save(saga);
+            executionContexts.remove(sagaId);
+        });
+    }
 
-        sagaRepository.save(saga);
+    private SagaInstance createSagaInstance(String sagaId, BookingRequest request) {
+        SagaInstance saga = sagaStateStore.create(newSagaInstance(sagaId), payloadCodec.encode(request));
+        // The steps use the request as it came in, the payload is only decoded when another node resumes the saga
+        executionContexts.register(sagaId, request);
+        return saga;
+    }
+
+    private SagaInstance newSagaInstance(String sagaId) {
+        SagaInstance saga = new SagaInstance();
+        saga.setSagaId(sagaId);
+        saga.setState(SagaState.STARTED);
+        sagaEngine.prepare(bookingSaga, saga);
+        return saga;
     }
 
-    @Transactional
     public void retrySaga(String sagaId) {
+        retrySaga(sagaId, saga -> true);
+    }
+
+    /**
+     * Retries the saga if {@code due} still holds once its row is locked, so nodes that picked up the same saga
+     * retry it only once.
+     */
+    public void retrySaga(String sagaId, Predicate<SagaInstance> due) {
         log.info("Retrying saga: {}", sagaId);
 
-        Optional<SagaInstance> sagaOpt = sagaRepository.findByIdForUpdate(sagaId);
-        if (sagaOpt.isEmpty()) {
-            log.warn("Saga not found for retry: {}", sagaId);
+        Optional<SagaStateStore.RetryClaim> claimOpt = sagaStateStore.claimRetry(sagaId, due);
+        if (claimOpt.isEmpty()) {
+            log.info("Saga {} not found or no longer due for retry", sagaId);
             return;
         }
 
-        SagaInstance saga = sagaOpt.get();
+        SagaInstance saga = claimOpt.get().saga();
 
-        if (!saga.canRetry()) {
+        if (!claimOpt.get().retryAllowed()) {
             log.warn("Saga {} cannot be retried (retryCount: {}, maxRetries: {})",
                     sagaId, saga.getRetryCount(), saga.getMaxRetries());
-            executeCompensation(saga);
+            sagaEngine.compensate(bookingSaga, saga);
             return;
         }
 
-        saga.incrementRetry();
-        sagaRepository.save(saga);
-
-        try {
-            switch (saga.getState()) {
-                case STARTED, ROOM_RESERVATION_FAILED -> executeReserveRoom(saga);
-                case ROOM_RESERVED, PAYMENT_AUTHORIZATION_FAILED -> executeAuthorizePayment(saga);
-                case COMPENSATING, COMPENSATION_FAILED -> executeCompensation(saga);
-                default -> log.warn("Cannot retry saga in state: {}", saga.getState());
-            }
-        } catch (Exception e) {
-            log.error("Error retrying saga: " + sagaId, e);
-            handleSagaError(saga, e);
-        }
-    }
-
-    private void updateSagaState(SagaInstance saga, SagaState newState) {
-        if (saga.canTransitionTo(newState)) {
-            log.info("Saga {} transitioning from {} to {}", saga.getSagaId(), saga.getState(), newState);
-            saga.setState(newState);
-        } else {
-            log.warn("Invalid state transition for saga {}: {} -> {}",
-                    saga.getSagaId(), saga.getState(), newState);
-        }
-    }
-
-    private void handleSagaError(SagaInstance saga, Exception e) {
-        if (saga.canRetry()) {
-            log.info("Will retry saga {} due to error", saga.getSagaId());
-            saga.incrementRetry();
-            sagaRepository.save(saga);
-        } else {
-            log.error("Saga {} exhausted retries, starting compensation", saga.getSagaId());
-            executeCompensation(saga);
-        }
+        // Resumes the stage for the current state, or the compensation if the saga already failed
+        sagaEngine.execute(bookingSaga, saga);
     }
-}
\ No newline at end of file
+}
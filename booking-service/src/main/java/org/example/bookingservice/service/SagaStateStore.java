@@ -0,0 +1,189 @@
+package org.example.bookingservice.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.bookingservice.entity.OutboxMessage;
+import org.example.bookingservice.entity.SagaInstance;
+import org.example.bookingservice.entity.SagaPayload;
+import org.example.bookingservice.entity.SagaStateTransition;
+import org.example.bookingservice.entity.StateTransition;
+import org.example.bookingservice.repository.OutboxMessageRepository;
+import org.example.bookingservice.repository.SagaInstanceRepository;
+import org.example.bookingservice.repository.SagaPayloadRepository;
+import org.example.bookingservice.repository.SagaStateTransitionRepository;
+import org.example.bookingservice.timer.SagaDeadlineScheduler;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Owns the short transactions that record saga progress. The orchestrator keeps working on a detached
+ * {@link SagaInstance} between remote calls and hands it here whenever a state change has to be committed.
+ */
+@Service
+@RequiredArgsConstructor
+public class SagaStateStore {
+
+    private final SagaInstanceRepository sagaRepository;
+    private final SagaPayloadRepository payloadRepository;
+    private final SagaStateTransitionRepository transitionRepository;
+    private final OutboxMessageRepository outboxRepository;
+    private final SagaDeadlineScheduler deadlineScheduler;
+    private final RetryBackoffPolicy retryBackoffPolicy;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Commits a new saga together with its encoded payload. The payload is never written again,
+     * later saves only update the saga row.
+     */
+    @Transactional
+    public SagaInstance create(SagaInstance saga, byte[] payload) {
+        payloadRepository.save(new SagaPayload(saga.getSagaId(), payload));
+        return save(saga);
+    }
+
+    /**
+     * Commits a batch of new sagas together with their encoded payloads, {@code payloads} in the order of
+     * {@code sagas}. With hibernate.jdbc.batch_size the rows of each table go out as one JDBC batch.
+     */
+    @Transactional
+    public List<SagaInstance> createAll(List<SagaInstance> sagas, List<byte[]> payloads) {
+        List<SagaPayload> sagaPayloads = new ArrayList<>(sagas.size());
+        for (int i = 0; i < sagas.size(); i++) {
+            sagaPayloads.add(new SagaPayload(sagas.get(i).getSagaId(), payloads.get(i)));
+        }
+        payloadRepository.saveAll(sagaPayloads);
+
+        // New sagas are persisted rather than merged, so the given instances are the managed ones
+        sagas.forEach(this::applySchedules);
+        sagaRepository.saveAll(sagas);
+        sagaRepository.flush();
+        sagas.forEach(this::trackDeadline);
+        appendTransitions(sagas);
+        return sagas;
+    }
+
+    /**
+     * Commits the saga in its own transaction, together with the transitions it recorded since the last save.
+     * Merging a detached entity returns a new managed copy, so the generated values are copied back to keep the
+     * caller's instance usable for the next save. The merge is flushed right away, so the version copied back is
+     * already the new one when a surrounding transaction is open. Every save of an active saga restarts the deadline
+     * for its current state.
+     */
+    @Transactional
+    public SagaInstance save(SagaInstance saga) {
+        applySchedules(saga);
+
+        SagaInstance saved = sagaRepository.saveAndFlush(saga);
+        if (saved != saga) {
+            saga.setVersion(saved.getVersion());
+            saga.setCreatedAt(saved.getCreatedAt());
+            saga.setUpdatedAt(saved.getUpdatedAt());
+            saga.setExpiresAt(saved.getExpiresAt());
+            saga.setNextRetryAt(saved.getNextRetryAt());
+        }
+
+        trackDeadline(saga);
+        appendTransitions(List.of(saga));
+        return saga;
+    }
+
+    /**
+     * Commits the saga together with the outbox entries of the commands its new state issues,
+     * so a command is queued if and only if the state change that sends it is.
+     */
+    @Transactional
+    public SagaInstance save(SagaInstance saga, List<OutboxMessage> commands) {
+        outboxRepository.saveAll(commands);
+        return save(saga);
+    }
+
+    /**
+     * Schedules another attempt of a saga whose step failed without a definite answer, backing off
+     * further with every retry already made.
+     */
+    public SagaInstance scheduleRetry(SagaInstance saga) {
+        saga.setNextRetryAt(retryBackoffPolicy.nextRetryAt(saga.getRetryCount()));
+        return save(saga);
+    }
+
+    /**
+     * Puts a claimed retry back without using it up, e.g. when the downstream is out of retry budget.
+     * Deferrals are counted on the saga, so the caller can stop deferring a saga that keeps being starved.
+     */
+    public SagaInstance deferRetry(SagaInstance saga) {
+        saga.setRetryCount(Math.max(0, saga.getRetryCount() - 1));
+        saga.setDeferredRetries(saga.getDeferredRetries() + 1);
+        return scheduleRetry(saga);
+    }
+
+    /**
+     * Locks the saga row just long enough to bump the retry counter, the retry itself runs after commit.
+     * {@code due} is checked under the lock, a saga another node claimed meanwhile is not due any more and is
+     * left alone. The saga gets a fresh deadline for its state and its retry is moved out, so neither the retry
+     * poller nor a deadline check reading the saga before this claim retries it again.
+     */
+    @Transactional
+    public Optional<RetryClaim> claimRetry(String sagaId, Predicate<SagaInstance> due) {
+        return sagaRepository.findByIdForUpdate(sagaId).filter(due).map(saga -> {
+            boolean retryAllowed = saga.canRetry();
+            if (retryAllowed) {
+                saga.incrementRetry();
+            }
+            // A failed state always keeps a retry scheduled, it is moved out by the backoff and replaced by the
+            // outcome of this attempt. In any other state the claimed retry is no longer scheduled.
+            saga.setNextRetryAt(SagaInstance.RETRYABLE_STATES.contains(saga.getState())
+                    ? retryBackoffPolicy.nextRetryAt(saga.getRetryCount())
+                    : null);
+            if (isActive(saga)) {
+                saga.setExpiresAt(deadlineScheduler.deadlineFor(saga.getState()));
+            }
+            SagaInstance claimed = sagaRepository.saveAndFlush(saga);
+            trackDeadline(claimed);
+            return new RetryClaim(claimed, retryAllowed);
+        });
+    }
+
+    private void applySchedules(SagaInstance saga) {
+        if (isActive(saga)) {
+            saga.setExpiresAt(deadlineScheduler.deadlineFor(saga.getState()));
+        }
+        if (SagaInstance.RETRYABLE_STATES.contains(saga.getState()) && saga.getNextRetryAt() == null) {
+            saga.setNextRetryAt(retryBackoffPolicy.nextRetryAt(saga.getRetryCount()));
+        }
+    }
+
+    private void trackDeadline(SagaInstance saga) {
+        if (isActive(saga)) {
+            deadlineScheduler.schedule(saga.getSagaId(), saga.getExpiresAt());
+        } else {
+            deadlineScheduler.cancel(saga.getSagaId());
+        }
+    }
+
+    // One insert per transition, the events are delivered once the surrounding transaction commits, see SagaEventStreams
+    private void appendTransitions(List<SagaInstance> sagas) {
+        List<SagaStateTransition> rows = new ArrayList<>();
+        List<SagaTransitionsEvent> events = new ArrayList<>();
+        for (SagaInstance saga : sagas) {
+            List<StateTransition> transitions = saga.takeUnsavedTransitions();
+            if (!transitions.isEmpty()) {
+                transitions.forEach(transition -> rows.add(new SagaStateTransition(saga.getSagaId(), transition)));
+                events.add(new SagaTransitionsEvent(saga.getSagaId(), transitions));
+            }
+        }
+        transitionRepository.saveAll(rows);
+        events.forEach(eventPublisher::publishEvent);
+    }
+
+    private static boolean isActive(SagaInstance saga) {
+        return !SagaDeadlineScheduler.FINAL_STATES.contains(saga.getState());
+    }
+
+    public record RetryClaim(SagaInstance saga, boolean retryAllowed) {
+    }
+}
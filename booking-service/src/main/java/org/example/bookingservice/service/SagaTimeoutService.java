@@ -2,16 +2,22 @@ package org.example.bookingservice.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.bookingservice.config.SagaDeadlineProperties;
 import org.example.bookingservice.entity.SagaInstance;
 import org.example.bookingservice.repository.SagaInstanceRepository;
+import org.example.bookingservice.timer.SagaDeadlineExpiredEvent;
+import org.example.bookingservice.timer.SagaDeadlineScheduler;
 import org.example.common.enumerations.SagaState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
 
 @Service
 @RequiredArgsConstructor
@@ -20,45 +26,102 @@ public class SagaTimeoutService {
 
     private final SagaInstanceRepository sagaRepository;
     private final SagaOrchestrator sagaOrchestrator;
+    private final OrchestratorNodeRegistry nodeRegistry;
+    private final SagaDeadlineProperties deadlineProperties;
 
-    private static final List<SagaState> FINAL_STATES = Arrays.asList(
-            SagaState.BOOKING_COMPLETED,
-            SagaState.BOOKING_CANCELLED,
-            SagaState.COMPENSATION_FAILED
-    );
+    @Value("${saga.timeout.scan-page-size:100}")
+    private int scanPageSize;
 
-    @Scheduled(fixedDelay = 30000) // Check every 30 seconds
-    @Transactional
+    @Value("${saga.retry.batch-size:50}")
+    private int retryBatchSize;
+
+    private static final List<SagaState> FINAL_STATES = List.copyOf(SagaDeadlineScheduler.FINAL_STATES);
+
+    /**
+     * Deadline fired by the timing wheel. The saga is re-read because it may have moved on since, and it is left
+     * to the node owning its partition, which may be another one than the node that scheduled the deadline.
+     */
+    @EventListener
+    public void onDeadlineExpired(SagaDeadlineExpiredEvent event) {
+        OrchestratorNodeRegistry.Partition partition = nodeRegistry.currentPartition();
+        // The wheel may fire up to a tick early
+        Predicate<SagaInstance> missedDeadline = missedDeadline(partition,
+                LocalDateTime.now().plus(deadlineProperties.getTick()));
+
+        Optional<SagaInstance> sagaOpt = sagaRepository.findById(event.sagaId());
+        if (sagaOpt.isEmpty() || !missedDeadline.test(sagaOpt.get())) {
+            return; // progressed and got a new deadline, or not ours
+        }
+
+        SagaInstance saga = sagaOpt.get();
+        log.warn("Saga {} missed its deadline, state: {}", saga.getSagaId(), saga.getState());
+        try {
+            sagaOrchestrator.retrySaga(saga.getSagaId(), missedDeadline);
+        } catch (Exception e) {
+            log.error("Error handling deadline for saga: " + saga.getSagaId(), e);
+        }
+    }
+
+    /*
+     * Safety net behind the timing wheel, for sagas whose deadline no live node holds in memory.
+     * Walks this node's share of the expired sagas in keyset pages. Each page is a short read of its own and
+     * every retry commits its own short transactions, so no transaction spans the scan however large the backlog.
+     */
+    @Scheduled(fixedDelayString = "${saga.timeout.scan-interval:300000}",
+            initialDelayString = "${saga.timeout.scan-initial-delay:0}") // Check every 5 minutes by default
     public void handleTimeouts() {
-        log.debug("Checking for timed-out sagas");
+        OrchestratorNodeRegistry.Partition partition = nodeRegistry.currentPartition();
+        log.debug("Checking for timed-out sagas in partition {} of {}", partition.index(), partition.count());
 
-        List<SagaInstance> expiredSagas = sagaRepository.findExpiredSagas(LocalDateTime.now(), FINAL_STATES);
+        LocalDateTime now = LocalDateTime.now();
+        Predicate<SagaInstance> missedDeadline = missedDeadline(partition, now);
+        String afterSagaId = "";
+        List<SagaInstance> page;
+        do {
+            page = sagaRepository.findExpiredSagasPage(now, FINAL_STATES, partition.index(), partition.count(),
+                    afterSagaId, Limit.of(scanPageSize));
 
-        for (SagaInstance saga : expiredSagas) {
-            log.warn("Saga {} has timed out, state: {}", saga.getSagaId(), saga.getState());
+            for (SagaInstance saga : page) {
+                log.warn("Saga {} has timed out, state: {}", saga.getSagaId(), saga.getState());
 
-            try {
-                sagaOrchestrator.retrySaga(saga.getSagaId());
-            } catch (Exception e) {
-                log.error("Error handling timeout for saga: " + saga.getSagaId(), e);
+                try {
+                    sagaOrchestrator.retrySaga(saga.getSagaId(), missedDeadline);
+                } catch (Exception e) {
+                    log.error("Error handling timeout for saga: " + saga.getSagaId(), e);
+                }
             }
-        }
+
+            if (!page.isEmpty()) {
+                afterSagaId = page.get(page.size() - 1).getSagaId();
+            }
+        } while (page.size() == scanPageSize);
     }
 
-    @Scheduled(fixedDelay = 60000) // Check every minute
-    @Transactional
-    public void retryFailedSagas() {
-        log.debug("Checking for retryable sagas");
+    /*
+     * Checked again while the retry claim holds the saga row: another node may have retried the saga since it was
+     * read, which gave it a new deadline, or taken over its partition.
+     */
+    private static Predicate<SagaInstance> missedDeadline(OrchestratorNodeRegistry.Partition partition,
+                                                          LocalDateTime cutoff) {
+        return saga -> partition.owns(saga.getPartitionBucket())
+                && !FINAL_STATES.contains(saga.getState())
+                && !saga.getExpiresAt().isAfter(cutoff);
+    }
 
-        List<SagaState> retryableStates = Arrays.asList(
-                SagaState.ROOM_RESERVATION_FAILED,
-                SagaState.PAYMENT_AUTHORIZATION_FAILED,
-                SagaState.COMPENSATION_FAILED
-        );
+    /*
+     * Picks up the sagas of this node's partition whose backoff has elapsed, oldest first and at most one batch per
+     * poll. Each claim moves nextRetryAt out and a failed attempt schedules the next one further out.
+     */
+    @Scheduled(fixedDelayString = "${saga.retry.poll-interval:5000}") // Check every 5 seconds by default
+    public void retryFailedSagas() {
+        log.debug("Checking for sagas due for retry");
 
-        List<SagaInstance> retryableSagas = sagaRepository.findRetryableSagas(retryableStates);
+        OrchestratorNodeRegistry.Partition partition = nodeRegistry.currentPartition();
+        LocalDateTime now = LocalDateTime.now();
+        List<SagaInstance> dueSagas = sagaRepository.findDueRetries(now, partition.index(), partition.count(),
+                Limit.of(retryBatchSize));
 
-        for (SagaInstance saga : retryableSagas) {
+        for (SagaInstance saga : dueSagas) {
             if (saga.isExpired()) {
                 continue; // Will be handled by timeout processor
             }
@@ -66,10 +129,18 @@ public class SagaTimeoutService {
             log.info("Retrying failed saga: {}", saga.getSagaId());
 
             try {
-                sagaOrchestrator.retrySaga(saga.getSagaId());
+                sagaOrchestrator.retrySaga(saga.getSagaId(), retryDue(partition, now));
             } catch (Exception e) {
                 log.error("Error retrying saga: " + saga.getSagaId(), e);
             }
         }
     }
+
+    // Checked again while the retry claim holds the saga row, a saga claimed meanwhile has its retry moved out
+    private static Predicate<SagaInstance> retryDue(OrchestratorNodeRegistry.Partition partition, LocalDateTime now) {
+        return saga -> partition.owns(saga.getPartitionBucket())
+                && saga.getNextRetryAt() != null
+                && !saga.getNextRetryAt().isAfter(now)
+                && saga.canRetry();
+    }
 }
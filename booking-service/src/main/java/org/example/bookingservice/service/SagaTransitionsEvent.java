@@ -0,0 +1,11 @@
+package org.example.bookingservice.service;
+
+import org.example.bookingservice.entity.StateTransition;
+
+import java.util.List;
+
+/**
+ * Published by {@link SagaStateStore} for the transitions a save wrote, oldest first.
+ */
+public record SagaTransitionsEvent(String sagaId, List<StateTransition> transitions) {
+}
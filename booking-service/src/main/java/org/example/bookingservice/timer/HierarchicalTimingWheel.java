@@ -0,0 +1,250 @@
+package org.example.bookingservice.timer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hierarchical timing wheel for deadlines that are mostly cancelled or rescheduled before they fire.
+ * Scheduling and cancelling are O(1); each level covers {@code wheelSize} times the span of the level below,
+ * and entries cascade down as their level's clock catches up with them. Only non-empty buckets are queued
+ * for expiry, so advancing the wheel costs nothing while no deadline is due. Buckets are doubly linked lists,
+ * as Kafka's TimerTaskList, so a cancelled timeout is unlinked right away instead of being held until its
+ * deadline.
+ * <p>
+ * The wheel keeps no thread of its own: the owner calls {@link #advance(long)} with the current time and
+ * handles the returned timeouts. A timeout never fires early and at most one tick late.
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private final PriorityQueue<Bucket<T>> scheduledBuckets =
+            new PriorityQueue<>(Comparator.comparingLong(bucket -> bucket.expiration));
+    private final List<Timeout<T>> overdue = new ArrayList<>();
+    private final AtomicInteger bucketed = new AtomicInteger();
+    private final Level<T> root;
+
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 1) {
+            throw new IllegalArgumentException("Tick must be positive and the wheel must have more than one bucket");
+        }
+        this.root = new Level<>(tickMillis, wheelSize, startMillis, scheduledBuckets, bucketed);
+    }
+
+    public synchronized Timeout<T> schedule(T item, long deadlineMillis) {
+        Timeout<T> timeout = new Timeout<>(item, deadlineMillis);
+        if (!root.add(timeout)) {
+            // Already due, handed out on the next advance
+            overdue.add(timeout);
+        }
+        return timeout;
+    }
+
+    /**
+     * Moves the wheel clock to {@code nowMillis} and returns every timeout that fell due on the way.
+     */
+    public synchronized List<Timeout<T>> advance(long nowMillis) {
+        Bucket<T> bucket;
+        while ((bucket = scheduledBuckets.peek()) != null && bucket.expiration <= nowMillis) {
+            scheduledBuckets.poll();
+            root.advanceClock(bucket.expiration);
+            for (Timeout<T> timeout : bucket.drain()) {
+                // Entries from upper levels cascade into finer buckets until they are due
+                if (!timeout.isCancelled() && !root.add(timeout)) {
+                    overdue.add(timeout);
+                }
+            }
+        }
+        root.advanceClock(nowMillis);
+
+        // A bucket covers a whole tick, so anything not yet due waits for the next advance
+        List<Timeout<T>> expired = new ArrayList<>();
+        Iterator<Timeout<T>> pending = overdue.iterator();
+        while (pending.hasNext()) {
+            Timeout<T> timeout = pending.next();
+            if (timeout.isCancelled()) {
+                pending.remove();
+            } else if (timeout.deadlineMillis <= nowMillis) {
+                expired.add(timeout);
+                pending.remove();
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Number of timeouts held by the wheel, cancelled timeouts no longer count once they left their bucket.
+     */
+    public synchronized int size() {
+        return bucketed.get() + overdue.size();
+    }
+
+    public static final class Timeout<T> {
+
+        private final T item;
+        private final long deadlineMillis;
+        private volatile boolean cancelled;
+        // The bucket linking the timeout, null while it is being cascaded or overdue
+        private volatile Bucket<T> bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(T item, long deadlineMillis) {
+            this.item = item;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        public T item() {
+            return item;
+        }
+
+        public long deadlineMillis() {
+            return deadlineMillis;
+        }
+
+        /**
+         * Unlinks the timeout from its bucket. A timeout being cascaded meanwhile is not linked again, an
+         * overdue one is dropped on the next advance.
+         */
+        public void cancel() {
+            cancelled = true;
+            Bucket<T> current;
+            while ((current = bucket) != null) {
+                current.remove(this);
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private static final class Level<T> {
+
+        private final long tickMillis;
+        private final int wheelSize;
+        private final long intervalMillis;
+        private final Bucket<T>[] buckets;
+        private final PriorityQueue<Bucket<T>> scheduledBuckets;
+        private final AtomicInteger bucketed;
+        private long currentTime;
+        private Level<T> overflow;
+
+        @SuppressWarnings("unchecked")
+        private Level(long tickMillis, int wheelSize, long startMillis, PriorityQueue<Bucket<T>> scheduledBuckets,
+                      AtomicInteger bucketed) {
+            this.tickMillis = tickMillis;
+            this.wheelSize = wheelSize;
+            this.intervalMillis = tickMillis * wheelSize;
+            this.scheduledBuckets = scheduledBuckets;
+            this.bucketed = bucketed;
+            this.currentTime = startMillis - (startMillis % tickMillis);
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Bucket<>(bucketed);
+            }
+        }
+
+        /**
+         * Returns {@code false} if the timeout is already due on this level's clock.
+         */
+        private boolean add(Timeout<T> timeout) {
+            long deadline = timeout.deadlineMillis;
+            if (deadline < currentTime + tickMillis) {
+                return false;
+            }
+            if (deadline < currentTime + intervalMillis) {
+                long virtualId = deadline / tickMillis;
+                Bucket<T> bucket = buckets[(int) (virtualId % wheelSize)];
+                bucket.add(timeout);
+                if (bucket.setExpiration(virtualId * tickMillis)) {
+                    scheduledBuckets.offer(bucket);
+                }
+                return true;
+            }
+            if (overflow == null) {
+                overflow = new Level<>(intervalMillis, wheelSize, currentTime, scheduledBuckets, bucketed);
+            }
+            return overflow.add(timeout);
+        }
+
+        private void advanceClock(long timeMillis) {
+            if (timeMillis >= currentTime + tickMillis) {
+                currentTime = timeMillis - (timeMillis % tickMillis);
+                if (overflow != null) {
+                    overflow.advanceClock(currentTime);
+                }
+            }
+        }
+    }
+
+    /*
+     * Circular doubly linked list around a sentinel. Its own lock guards the links, as cancel() unlinks a timeout
+     * without holding the wheel's lock.
+     */
+    private static final class Bucket<T> {
+
+        private final Timeout<T> sentinel = new Timeout<>(null, -1L);
+        private final AtomicInteger bucketed;
+        private long expiration = -1L;
+
+        private Bucket(AtomicInteger bucketed) {
+            this.bucketed = bucketed;
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+        }
+
+        /**
+         * Returns {@code true} if the bucket now covers a new time slot and has to be queued again.
+         */
+        private boolean setExpiration(long expiration) {
+            boolean changed = this.expiration != expiration;
+            this.expiration = expiration;
+            return changed;
+        }
+
+        // A timeout cancelled before it is linked stays out, cancel() sees the link otherwise
+        private synchronized void add(Timeout<T> timeout) {
+            if (timeout.isCancelled()) {
+                return;
+            }
+            Timeout<T> tail = sentinel.prev;
+            timeout.prev = tail;
+            timeout.next = sentinel;
+            tail.next = timeout;
+            sentinel.prev = timeout;
+            timeout.bucket = this;
+            bucketed.incrementAndGet();
+        }
+
+        private synchronized void remove(Timeout<T> timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            unlink(timeout);
+            bucketed.decrementAndGet();
+        }
+
+        private synchronized List<Timeout<T>> drain() {
+            List<Timeout<T>> drained = new ArrayList<>();
+            while (sentinel.next != sentinel) {
+                Timeout<T> timeout = sentinel.next;
+                unlink(timeout);
+                drained.add(timeout);
+            }
+            bucketed.addAndGet(-drained.size());
+            expiration = -1L;
+            return drained;
+        }
+
+        private void unlink(Timeout<T> timeout) {
+            timeout.prev.next = timeout.next;
+            timeout.next.prev = timeout.prev;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package org.example.bookingservice.timer;
+
+/**
+ * Published when a saga has not left its current state before the deadline for that state.
+ */
+public record SagaDeadlineExpiredEvent(String sagaId) {
+}
@@ -0,0 +1,150 @@
+package org.example.bookingservice.timer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.bookingservice.config.SagaDeadlineProperties;
+import org.example.bookingservice.repository.SagaInstanceRepository;
+import org.example.bookingservice.service.OrchestratorNodeRegistry;
+import org.example.common.enumerations.SagaState;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Fires saga deadlines from an in-memory timing wheel instead of waiting for the next database sweep.
+ * Every committed state change reschedules the saga's deadline, so the wheel only ever holds one entry per
+ * active saga. The wheel is rebuilt from saga_instances at startup; the periodic sweep in SagaTimeoutService
+ * stays as a safety net for deadlines this node does not know about.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SagaDeadlineScheduler {
+
+    public static final EnumSet<SagaState> FINAL_STATES = EnumSet.of(
+            SagaState.BOOKING_COMPLETED,
+            SagaState.BOOKING_CANCELLED,
+            SagaState.COMPENSATION_FAILED
+    );
+
+    private static final int LOAD_PAGE_SIZE = 500;
+
+    private final SagaDeadlineProperties deadlineProperties;
+    private final SagaInstanceRepository sagaRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OrchestratorNodeRegistry nodeRegistry;
+
+    @Qualifier("sagaExecutor")
+    private final TaskExecutor sagaExecutor;
+
+    private final Map<String, HierarchicalTimingWheel.Timeout<String>> deadlines = new ConcurrentHashMap<>();
+
+    private HierarchicalTimingWheel<String> wheel;
+    private ScheduledExecutorService ticker;
+
+    @PostConstruct
+    public void start() {
+        long tickMillis = deadlineProperties.getTick().toMillis();
+        wheel = new HierarchicalTimingWheel<>(tickMillis, deadlineProperties.getWheelSize(), System.currentTimeMillis());
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "saga-deadline-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * Loads the deadline of every active saga in this node's partition in keyset pages, so a restarted node picks
+     * up where it left off. The other partitions are loaded by the nodes owning them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadActiveSagas() {
+        OrchestratorNodeRegistry.Partition partition = nodeRegistry.currentPartition();
+        List<SagaInstanceRepository.SagaDeadline> page;
+        String afterSagaId = "";
+        int loaded = 0;
+        do {
+            page = sagaRepository.findActiveSagaDeadlines(List.copyOf(FINAL_STATES), partition.index(),
+                    partition.count(), afterSagaId, Limit.of(LOAD_PAGE_SIZE));
+            for (SagaInstanceRepository.SagaDeadline saga : page) {
+                schedule(saga.getSagaId(), saga.getExpiresAt());
+                afterSagaId = saga.getSagaId();
+            }
+            loaded += page.size();
+        } while (page.size() == LOAD_PAGE_SIZE);
+
+        log.info("Loaded {} saga deadlines of partition {} of {} into the timing wheel", loaded, partition.index(),
+                partition.count());
+    }
+
+    public LocalDateTime deadlineFor(SagaState state) {
+        return LocalDateTime.now().plus(deadlineProperties.deadlineFor(state));
+    }
+
+    /**
+     * Replaces any earlier deadline of the saga.
+     */
+    public void schedule(String sagaId, LocalDateTime deadline) {
+        long deadlineMillis = deadline.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        HierarchicalTimingWheel.Timeout<String> previous = deadlines.put(sagaId, wheel.schedule(sagaId, deadlineMillis));
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    public void cancel(String sagaId) {
+        HierarchicalTimingWheel.Timeout<String> previous = deadlines.remove(sagaId);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    public int trackedSagas() {
+        return deadlines.size();
+    }
+
+    public boolean isTracked(String sagaId) {
+        return deadlines.containsKey(sagaId);
+    }
+
+    private void tick() {
+        try {
+            for (HierarchicalTimingWheel.Timeout<String> timeout : wheel.advance(System.currentTimeMillis())) {
+                if (!deadlines.remove(timeout.item(), timeout)) {
+                    continue; // rescheduled in the meantime
+                }
+                try {
+                    sagaExecutor.execute(() -> eventPublisher.publishEvent(new SagaDeadlineExpiredEvent(timeout.item())));
+                } catch (TaskRejectedException e) {
+                    log.warn("Saga executor saturated, deadline of saga {} left to the timeout sweep", timeout.item());
+                }
+            }
+        } catch (Exception e) {
+            // An exception would cancel the periodic ticker
+            log.error("Error advancing saga deadline wheel", e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.common.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * {@link PayloadCodec} on top of a Jackson data format, JSON, Smile or CBOR, with optional deflate compression.
+ * <p>
+ * Every value starts with one header byte naming the format it was written in and whether it is compressed, so
+ * values written under an earlier configuration keep decoding after the format or compression is changed. Values
+ * smaller than {@code compressionThreshold} are never compressed, deflate only pays off on larger payloads.
+ */
+public class JacksonPayloadCodec implements PayloadCodec {
+
+    private static final int COMPRESSED = 0x80;
+
+    private final PayloadFormat format;
+    private final boolean compress;
+    private final int compressionThreshold;
+    private final Map<PayloadFormat, ObjectMapper> mappers = new EnumMap<>(PayloadFormat.class);
+
+    /**
+     * The mappers of all formats copy the configuration and modules of {@code objectMapper}.
+     */
+    public JacksonPayloadCodec(ObjectMapper objectMapper, PayloadFormat format, boolean compress,
+                               int compressionThreshold) {
+        this.format = format;
+        this.compress = compress;
+        this.compressionThreshold = compressionThreshold;
+        for (PayloadFormat candidate : PayloadFormat.values()) {
+            mappers.put(candidate, objectMapper.copyWith(candidate.newFactory()));
+        }
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        byte[] encoded;
+        try {
+            encoded = mappers.get(format).writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode " + value.getClass().getSimpleName(), e);
+        }
+
+        boolean compressed = compress && encoded.length >= compressionThreshold;
+        byte[] body = compressed ? deflate(encoded) : encoded;
+        byte[] data = new byte[body.length + 1];
+        data[0] = (byte) (format.ordinal() | (compressed ? COMPRESSED : 0));
+        System.arraycopy(body, 0, data, 1, body.length);
+        return data;
+    }
+
+    @Override
+    public <T> T decode(byte[] data, Class<T> type) {
+        int header = data[0] & 0xff;
+        PayloadFormat written = PayloadFormat.values()[header & ~COMPRESSED];
+        byte[] body = Arrays.copyOfRange(data, 1, data.length);
+        if ((header & COMPRESSED) != 0) {
+            body = inflate(body);
+        }
+        try {
+            return mappers.get(written).readValue(body, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode " + type.getSimpleName(), e);
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 2);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new UncheckedIOException(new IOException("Truncated compressed payload"));
+                }
+                out.write(buffer, 0, inflated);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException("Corrupt compressed payload", e));
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.common.codec;
+
+/**
+ * Turns payloads stored in binary columns, such as saga data and idempotency results, into bytes and back.
+ */
+public interface PayloadCodec {
+
+    byte[] encode(Object value);
+
+    <T> T decode(byte[] data, Class<T> type);
+}
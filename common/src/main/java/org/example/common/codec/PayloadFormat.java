@@ -0,0 +1,23 @@
+package org.example.common.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.util.function.Supplier;
+
+public enum PayloadFormat {
+    JSON(JsonFactory::new),
+    SMILE(SmileFactory::new),
+    CBOR(CBORFactory::new);
+
+    private final Supplier<JsonFactory> factory;
+
+    PayloadFormat(Supplier<JsonFactory> factory) {
+        this.factory = factory;
+    }
+
+    JsonFactory newFactory() {
+        return factory.get();
+    }
+}
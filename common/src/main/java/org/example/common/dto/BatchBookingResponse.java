@@ -0,0 +1,16 @@
+package org.example.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchBookingResponse {
+    private String batchId;
+    // On creation one per booking in the order of the request, on status lookups one per saga of the batch
+    private List<BookingResponse> bookings;
+}
@@ -1,5 +1,6 @@
 package org.example.common.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
 import java.time.LocalDateTime;
@@ -12,6 +13,10 @@ public class BookingResponse {
     private String message;
     private LocalDateTime timestamp;
 
+    // Set when the saga was handed to the saga executor rather than run before responding
+    @JsonIgnore
+    private boolean accepted;
+
     public static BookingResponse success(String bookingId, String sagaId) {
         BookingResponse response = new BookingResponse();
         response.setBookingId(bookingId);
@@ -22,6 +27,12 @@ public class BookingResponse {
         return response;
     }
 
+    public static BookingResponse accepted(String bookingId, String sagaId) {
+        BookingResponse response = success(bookingId, sagaId);
+        response.setAccepted(true);
+        return response;
+    }
+
     public static BookingResponse failure(String sagaId, String message) {
         BookingResponse response = new BookingResponse();
         response.setSagaId(sagaId);
@@ -0,0 +1,18 @@
+package org.example.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.common.enumerations.SagaState;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SagaStateEvent {
+    private String sagaId;
+    private SagaState state;
+    // When the saga entered the state
+    private LocalDateTime timestamp;
+}
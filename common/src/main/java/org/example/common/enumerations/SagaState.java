@@ -2,10 +2,13 @@ package org.example.common.enumerations;
 
 public enum SagaState {
     STARTED,
+    ROOM_AND_PAYMENT_PENDING,
     ROOM_RESERVED,
     ROOM_RESERVATION_FAILED,
     PAYMENT_AUTHORIZED,
     PAYMENT_AUTHORIZATION_FAILED,
+    ROOM_RESERVED_PAYMENT_FAILED,
+    PAYMENT_AUTHORIZED_ROOM_FAILED,
     BOOKING_COMPLETED,
     BOOKING_CANCELLED,
     COMPENSATING,
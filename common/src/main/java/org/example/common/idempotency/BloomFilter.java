@@ -0,0 +1,74 @@
+package org.example.common.idempotency;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size Bloom filter over strings. {@link #mightContain(String)} never returns {@code false} for a key that
+ * was put, and returns {@code true} for a key that was not with roughly the configured false positive rate
+ * while no more than {@code capacity} keys have been put.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final long capacity;
+    private volatile long insertions;
+
+    public BloomFilter(long capacity, double falsePositiveRate) {
+        if (capacity < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Capacity must be positive and the false positive rate lie in (0, 1)");
+        }
+        long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray((int) Math.max(1, (optimalBits + 63) / 64));
+        this.bitCount = bits.length() * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+        this.capacity = capacity;
+    }
+
+    public void put(String key) {
+        long hash1 = hash(key, 0);
+        long hash2 = hash(key, hash1);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = bits.get(word)) & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                // Another key set a bit in the same word, retry
+            }
+        }
+        insertions++;
+    }
+
+    public boolean mightContain(String key) {
+        long hash1 = hash(key, 0);
+        long hash2 = hash(key, hash1);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isFull() {
+        return insertions >= capacity;
+    }
+
+    // FNV-1a over the characters, finished with the MurmurHash3 mixer so every bit depends on every character
+    private static long hash(String key, long seed) {
+        long hash = 0xcbf29ce484222325L ^ seed;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash | 1; // odd, so the probe sequence visits distinct bits
+    }
+}
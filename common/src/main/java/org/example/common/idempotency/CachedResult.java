@@ -0,0 +1,8 @@
+package org.example.common.idempotency;
+
+/**
+ * Result of an already processed command. {@code value} is {@code null} for commands without a result,
+ * such as releasing a room or cancelling a payment.
+ */
+public record CachedResult<T>(T value) {
+}
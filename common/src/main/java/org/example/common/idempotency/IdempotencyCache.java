@@ -0,0 +1,123 @@
+package org.example.common.idempotency;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Bounded in-memory cache of recent idempotency results, kept as deserialized objects, in front of a service's
+ * idempotency table. Entries expire {@code ttl} after they were cached and the least recently used entry is evicted
+ * once {@code maxEntries} is reached. Publishes the usual {@code cache.gets}, {@code cache.evictions} and
+ * {@code cache.size} meters tagged with the cache name.
+ */
+public class IdempotencyCache {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Clock clock;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+
+    public IdempotencyCache(String name, int maxEntries, Duration ttl, MeterRegistry meterRegistry) {
+        this(name, maxEntries, ttl, meterRegistry, Clock.SYSTEM);
+    }
+
+    public IdempotencyCache(String name, int maxEntries, Duration ttl, MeterRegistry meterRegistry, Clock clock) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Idempotency cache needs room for at least one entry");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.hits = Counter.builder("cache.gets").tag("cache", name).tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", name).tag("result", "miss").register(meterRegistry);
+        this.sizeEvictions = Counter.builder("cache.evictions").tag("cache", name).tag("cause", "size")
+                .register(meterRegistry);
+        this.expiredEvictions = Counter.builder("cache.evictions").tag("cache", name).tag("cause", "expired")
+                .register(meterRegistry);
+        Gauge.builder("cache.size", this, IdempotencyCache::size).tag("cache", name).register(meterRegistry);
+    }
+
+    /**
+     * Looks the key up in memory only.
+     */
+    public <T> Optional<CachedResult<T>> get(String key, Class<T> type) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && entry.isExpired(clock.monotonicTime())) {
+                entries.remove(key);
+                expiredEvictions.increment();
+                entry = null;
+            }
+        }
+        if (entry == null || (entry.value != null && !type.isInstance(entry.value))) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(new CachedResult<>(type.cast(entry.value)));
+    }
+
+    /**
+     * Looks the key up in memory and falls back to {@code loader}, typically the idempotency table.
+     * A result found by the loader is cached for the next duplicate.
+     */
+    public <T> Optional<CachedResult<T>> get(String key, Class<T> type,
+                                             Function<String, Optional<CachedResult<T>>> loader) {
+        Optional<CachedResult<T>> cached = get(key, type);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        Optional<CachedResult<T>> loaded = loader.apply(key);
+        loaded.ifPresent(result -> put(key, result.value()));
+        return loaded;
+    }
+
+    public synchronized void put(String key, Object value) {
+        entries.put(key, new Entry(value, clock.monotonicTime() + ttlNanos));
+        if (entries.size() > maxEntries) {
+            evictEldest();
+        }
+    }
+
+    public synchronized void invalidate(String key) {
+        entries.remove(key);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void evictEldest() {
+        // Access order puts the least recently used entry first
+        long now = clock.monotonicTime();
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        Map.Entry<String, Entry> eldest = iterator.next();
+        iterator.remove();
+        if (eldest.getValue().isExpired(now)) {
+            expiredEvictions.increment();
+        } else {
+            sizeEvictions.increment();
+        }
+    }
+
+    private record Entry(Object value, long expiresAtNanos) {
+
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
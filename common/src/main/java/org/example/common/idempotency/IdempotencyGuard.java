@@ -0,0 +1,283 @@
+package org.example.common.idempotency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.common.command.CommandResult;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs a command at most once per idempotency key. Keys are turned into 16 byte UUIDs with
+ * {@link IdempotencyKeys#toUuid(String)} on the way in, memory and the store only ever see the UUID.
+ * <p>
+ * A processed key is answered from {@link IdempotencyCache}, or from the store unless {@link RotatingBloomFilter}
+ * rules the key out. Otherwise the command runs under a claim: concurrent duplicates within the process wait for
+ * the first caller's result, and the first caller inserts an {@link IdempotencyStatus#IN_PROGRESS} record before
+ * doing any work. A duplicate that finds the key claimed by another process polls the store for the result for up
+ * to {@code claimWait} and then answers {@link #REQUEST_IN_PROGRESS}, which the caller retries later.
+ * <p>
+ * The command marks the key completed with {@link #complete(String, Object)} in the transaction that does its work.
+ * A command that fails, or never completes the key, releases the claim so a retry runs it again. A claim left
+ * behind by a crashed process is taken over once it is older than {@code claimLease}.
+ * <p>
+ * {@link #executeAll} does the same for a batch of commands, running all commands that still need to run with a
+ * single call so the command can write them together.
+ */
+@Slf4j
+public class IdempotencyGuard {
+
+    public static final String REQUEST_IN_PROGRESS = "REQUEST_IN_PROGRESS";
+
+    private final IdempotencyCache cache;
+    private final RotatingBloomFilter keyFilter;
+    private final IdempotencyStore store;
+    private final Duration claimLease;
+    private final long claimWaitNanos;
+    private final long pollIntervalMillis;
+    private final ConcurrentMap<UUID, CompletableFuture<CommandResult<?>>> inFlight = new ConcurrentHashMap<>();
+    private final Counter joinedInProcess;
+    private final Counter waitedOnClaim;
+
+    public IdempotencyGuard(String name, IdempotencyCache cache, RotatingBloomFilter keyFilter, IdempotencyStore store,
+                            Duration claimLease, Duration claimWait, Duration pollInterval,
+                            MeterRegistry meterRegistry) {
+        this.cache = cache;
+        this.keyFilter = keyFilter;
+        this.store = store;
+        this.claimLease = claimLease;
+        this.claimWaitNanos = claimWait.toNanos();
+        this.pollIntervalMillis = Math.max(1, pollInterval.toMillis());
+        this.joinedInProcess = Counter.builder("idempotency.concurrent.duplicates").tag("guard", name)
+                .tag("outcome", "joined").register(meterRegistry);
+        this.waitedOnClaim = Counter.builder("idempotency.concurrent.duplicates").tag("guard", name)
+                .tag("outcome", "claimed-elsewhere").register(meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> CommandResult<T> execute(String idempotencyKey, Class<T> type, Supplier<CommandResult<T>> command) {
+        UUID key = IdempotencyKeys.toUuid(idempotencyKey);
+        Optional<CachedResult<T>> processed = findProcessedResult(key, type);
+        if (processed.isPresent()) {
+            log.info("Idempotent request detected for key: {}", idempotencyKey);
+            return CommandResult.success(processed.get().value());
+        }
+
+        CompletableFuture<CommandResult<?>> flight = new CompletableFuture<>();
+        CompletableFuture<CommandResult<?>> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            log.info("Concurrent duplicate for key {}, waiting for the first request", idempotencyKey);
+            joinedInProcess.increment();
+            try {
+                return (CommandResult<T>) leader.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            CommandResult<T> result = claimAndExecute(key, type, command);
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Runs a batch of commands at most once per idempotency key. Processed keys are answered as by
+     * {@link #execute}, and a key repeated within the batch runs once. A key in flight in this process is answered
+     * by that request. A key claimed by another process is answered with {@link #REQUEST_IN_PROGRESS} right away,
+     * as waiting for it would hold up the whole batch. The remaining commands are claimed and passed to
+     * {@code batch} together, which returns their results in the same order and completes the keys of those that
+     * succeed with {@link #completeAll(Map)}. Claims of the commands that fail are released.
+     */
+    @SuppressWarnings("unchecked")
+    public <C, T> List<CommandResult<T>> executeAll(List<C> commands, Function<C, String> idempotencyKey,
+                                                    Class<T> type,
+                                                    Function<List<C>, List<CommandResult<T>>> batch) {
+        List<CommandResult<T>> results = new ArrayList<>(Collections.nCopies(commands.size(), null));
+        Map<UUID, Integer> firstIndex = new HashMap<>();
+        Map<Integer, Integer> repeated = new HashMap<>();
+        Map<Integer, CompletableFuture<CommandResult<?>>> joined = new HashMap<>();
+        Map<UUID, CompletableFuture<CommandResult<?>>> flights = new LinkedHashMap<>();
+        List<Integer> claimed = new ArrayList<>();
+        List<UUID> claimedKeys = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < commands.size(); i++) {
+                UUID key = IdempotencyKeys.toUuid(idempotencyKey.apply(commands.get(i)));
+                Integer first = firstIndex.putIfAbsent(key, i);
+                if (first != null) {
+                    repeated.put(i, first);
+                    continue;
+                }
+
+                Optional<CachedResult<T>> processed = findProcessedResult(key, type);
+                if (processed.isPresent()) {
+                    results.set(i, CommandResult.success(processed.get().value()));
+                    continue;
+                }
+
+                CompletableFuture<CommandResult<?>> flight = new CompletableFuture<>();
+                CompletableFuture<CommandResult<?>> leader = inFlight.putIfAbsent(key, flight);
+                if (leader != null) {
+                    joinedInProcess.increment();
+                    joined.put(i, leader);
+                } else {
+                    flights.put(key, flight);
+                    if (claim(key)) {
+                        claimed.add(i);
+                        claimedKeys.add(key);
+                    } else {
+                        waitedOnClaim.increment();
+                        results.set(i, CommandResult.failure(
+                                "A request with the same idempotency key is still in progress", REQUEST_IN_PROGRESS));
+                    }
+                }
+            }
+
+            if (!claimed.isEmpty()) {
+                List<CommandResult<T>> ran = batch.apply(claimed.stream().map(commands::get).toList());
+                if (ran.size() != claimed.size()) {
+                    throw new IllegalStateException("Batch returned " + ran.size() + " results for "
+                            + claimed.size() + " commands");
+                }
+                for (int j = 0; j < claimed.size(); j++) {
+                    results.set(claimed.get(j), ran.get(j));
+                }
+            }
+        } catch (RuntimeException e) {
+            flights.values().forEach(flight -> flight.completeExceptionally(e));
+            flights.forEach(inFlight::remove);
+            claimedKeys.forEach(this::release);
+            throw e;
+        }
+
+        for (int j = 0; j < claimed.size(); j++) {
+            if (!results.get(claimed.get(j)).isSuccess()) {
+                release(claimedKeys.get(j));
+            }
+        }
+        flights.forEach((key, flight) -> {
+            flight.complete(results.get(firstIndex.get(key)));
+            inFlight.remove(key, flight);
+        });
+
+        joined.forEach((i, leader) -> {
+            try {
+                results.set(i, (CommandResult<T>) leader.join());
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        });
+        repeated.forEach((i, first) -> results.set(i, results.get(first)));
+        return results;
+    }
+
+    /**
+     * Records the command's result. Called by the command, inside the transaction that does its work.
+     */
+    public void complete(String idempotencyKey, Object result) {
+        store.complete(IdempotencyKeys.toUuid(idempotencyKey), result);
+    }
+
+    /**
+     * Records the results of a batch of commands by idempotency key, inside the transaction that does their work.
+     */
+    public void completeAll(Map<String, ?> results) {
+        Map<UUID, Object> stored = new LinkedHashMap<>();
+        results.forEach((idempotencyKey, result) -> stored.put(IdempotencyKeys.toUuid(idempotencyKey), result));
+        store.completeAll(stored);
+    }
+
+    // Memory first, then the store unless the key filter rules the key out
+    private <T> Optional<CachedResult<T>> findProcessedResult(UUID key, Class<T> type) {
+        return cache.get(key.toString(), type,
+                k -> keyFilter.mightContain(k) ? store.findCompleted(key, type) : Optional.empty());
+    }
+
+    private <T> CommandResult<T> claimAndExecute(UUID key, Class<T> type, Supplier<CommandResult<T>> command) {
+        long deadline = System.nanoTime() + claimWaitNanos;
+        boolean waiting = false;
+        while (true) {
+            if (claim(key)) {
+                return executeClaimed(key, command);
+            }
+            if (!waiting) {
+                log.info("Idempotency key {} is claimed by another request, waiting for its result", key);
+                waitedOnClaim.increment();
+                waiting = true;
+            }
+
+            Optional<CachedResult<T>> completed = store.findCompleted(key, type);
+            if (completed.isPresent()) {
+                cache.put(key.toString(), completed.get().value());
+                return CommandResult.success(completed.get().value());
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                return CommandResult.failure("A request with the same idempotency key is still in progress",
+                        REQUEST_IN_PROGRESS);
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(pollIntervalMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return CommandResult.failure("Interrupted while waiting for a concurrent request",
+                        REQUEST_IN_PROGRESS);
+            }
+        }
+    }
+
+    private boolean claim(UUID key) {
+        // Added before the claim is written, so the filter never rules out a stored key
+        keyFilter.put(key.toString());
+        try {
+            return store.claim(key, LocalDateTime.now().minus(claimLease));
+        } catch (RuntimeException e) {
+            // Two inserts racing for the same key, the loser treats the key as claimed
+            log.warn("Failed to claim idempotency key {}: {}", key, e.getMessage());
+            return false;
+        }
+    }
+
+    private <T> CommandResult<T> executeClaimed(UUID key, Supplier<CommandResult<T>> command) {
+        boolean succeeded = false;
+        try {
+            CommandResult<T> result = command.get();
+            succeeded = result.isSuccess();
+            return result;
+        } finally {
+            if (!succeeded) {
+                release(key);
+            }
+        }
+    }
+
+    private void release(UUID key) {
+        try {
+            store.release(key);
+        } catch (RuntimeException e) {
+            log.error("Failed to release idempotency key " + key + ", it is retried once the claim is stale", e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.common.idempotency;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Idempotency keys are stored as a fixed 16 byte UUID whatever key a client sent, which keeps the primary key index
+ * of idempotency_records small. The random UUID the orchestrator generates is stored as is, any other key is hashed.
+ * Hashes are name based (version 3) UUIDs, so they never collide with a random (version 4) one.
+ */
+public final class IdempotencyKeys {
+
+    private static final int UUID_LENGTH = 36;
+
+    private IdempotencyKeys() {
+    }
+
+    public static UUID toUuid(String key) {
+        if (key.length() == UUID_LENGTH) {
+            try {
+                UUID uuid = UUID.fromString(key);
+                if (uuid.version() == 4 && uuid.toString().equals(key)) {
+                    return uuid;
+                }
+            } catch (IllegalArgumentException e) {
+                // Not a UUID, hashed below
+            }
+        }
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8));
+    }
+}
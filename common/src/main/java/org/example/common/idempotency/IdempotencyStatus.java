@@ -0,0 +1,6 @@
+package org.example.common.idempotency;
+
+public enum IdempotencyStatus {
+    IN_PROGRESS,
+    COMPLETED
+}
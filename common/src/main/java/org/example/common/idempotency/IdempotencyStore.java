@@ -0,0 +1,42 @@
+package org.example.common.idempotency;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * A service's table of idempotency records as seen by {@link IdempotencyGuard}, keyed by the UUID
+ * from {@link IdempotencyKeys#toUuid(String)}.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Returns the result of a completed command, empty while the key is unknown or only claimed.
+     */
+    <T> Optional<CachedResult<T>> findCompleted(UUID key, Class<T> type);
+
+    /**
+     * Atomically inserts an in-progress claim for the key, or takes over a claim made before
+     * {@code staleBefore} by a process that never finished it. Commits on its own, so other processes see the
+     * claim right away. Returns {@code false} if someone else holds or completed the key.
+     */
+    boolean claim(UUID key, LocalDateTime staleBefore);
+
+    /**
+     * Stores the result and marks the key completed, within the caller's transaction.
+     */
+    void complete(UUID key, Object result);
+
+    /**
+     * Stores the results of a batch of commands and marks their keys completed, within the caller's transaction.
+     */
+    default void completeAll(Map<UUID, Object> results) {
+        results.forEach(this::complete);
+    }
+
+    /**
+     * Drops an in-progress claim, so the command can be tried again. Commits on its own.
+     */
+    void release(UUID key);
+}
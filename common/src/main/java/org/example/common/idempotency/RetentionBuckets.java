@@ -0,0 +1,20 @@
+package org.example.common.idempotency;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Idempotency records are grouped into hourly retention buckets by the time they were processed, so expired
+ * records can be removed a whole bucket at a time. On a database with declarative partitioning the bucket is the
+ * range partition key, and a partition whose buckets have all expired is dropped instead of deleted row by row.
+ */
+public final class RetentionBuckets {
+
+    private RetentionBuckets() {
+    }
+
+    public static long bucketOf(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / ChronoUnit.HOURS.getDuration().getSeconds();
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.common.idempotency;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Bloom filter of recently stored idempotency keys, so a lookup for a key that was certainly never stored
+ * can skip the idempotency table.
+ * <p>
+ * Keys are added to the current generation, and a new generation starts every {@code rotationInterval}. Only the
+ * last {@code generations} are kept, so the filter remembers keys for at least
+ * {@code (generations - 1) * rotationInterval} and never grows without bound. Each generation is scalable: once
+ * its newest slice holds its capacity a slice twice as large with half the false positive rate is added.
+ * <p>
+ * Until {@link #markReady()} is called, e.g. while the filter is rebuilt from the table at startup, every key
+ * is reported as possibly present.
+ */
+public class RotatingBloomFilter {
+
+    private static final double TIGHTENING_RATIO = 0.5;
+
+    private final long initialCapacity;
+    private final double falsePositiveRate;
+    private final long rotationIntervalNanos;
+    private final int maxGenerations;
+    private final Clock clock;
+    private final Deque<List<BloomFilter>> generations = new ArrayDeque<>();
+    private final Counter definiteMisses;
+    private final Counter possibleHits;
+    private long currentGenerationStart;
+    private volatile boolean ready;
+
+    public RotatingBloomFilter(String name, long initialCapacity, double falsePositiveRate,
+                               Duration rotationInterval, int generations, MeterRegistry meterRegistry) {
+        this(name, initialCapacity, falsePositiveRate, rotationInterval, generations, meterRegistry, Clock.SYSTEM);
+    }
+
+    public RotatingBloomFilter(String name, long initialCapacity, double falsePositiveRate,
+                               Duration rotationInterval, int generations, MeterRegistry meterRegistry, Clock clock) {
+        if (generations < 2) {
+            throw new IllegalArgumentException("At least two generations are needed to rotate without forgetting recent keys");
+        }
+        this.initialCapacity = initialCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rotationIntervalNanos = rotationInterval.toNanos();
+        this.maxGenerations = generations;
+        this.clock = clock;
+        this.definiteMisses = Counter.builder("idempotency.bloom.lookups").tag("filter", name)
+                .tag("result", "definite-miss").register(meterRegistry);
+        this.possibleHits = Counter.builder("idempotency.bloom.lookups").tag("filter", name)
+                .tag("result", "possible-hit").register(meterRegistry);
+        startGeneration(clock.monotonicTime());
+    }
+
+    public synchronized void put(String key) {
+        long now = clock.monotonicTime();
+        if (now - currentGenerationStart >= rotationIntervalNanos) {
+            startGeneration(now);
+        }
+        List<BloomFilter> slices = generations.peekFirst();
+        BloomFilter newest = slices.get(slices.size() - 1);
+        if (newest.isFull()) {
+            int slice = slices.size();
+            newest = new BloomFilter(initialCapacity << slice, falsePositiveRate * Math.pow(TIGHTENING_RATIO, slice));
+            slices.add(newest);
+        }
+        newest.put(key);
+    }
+
+    /**
+     * Returns {@code false} only if the key was certainly not put within the remembered generations.
+     */
+    public boolean mightContain(String key) {
+        boolean result = !ready || contains(key);
+        (result ? possibleHits : definiteMisses).increment();
+        return result;
+    }
+
+    public void markReady() {
+        ready = true;
+    }
+
+    private synchronized boolean contains(String key) {
+        for (List<BloomFilter> slices : generations) {
+            for (BloomFilter slice : slices) {
+                if (slice.mightContain(key)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void startGeneration(long now) {
+        List<BloomFilter> slices = new ArrayList<>();
+        slices.add(new BloomFilter(initialCapacity, falsePositiveRate));
+        generations.addFirst(slices);
+        while (generations.size() > maxGenerations) {
+            generations.removeLast();
+        }
+        currentGenerationStart = now;
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.common.messaging;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A saga command delivered from the orchestrator's outbox to a service's inbox. The message id is the
+ * command's idempotency key, so a redelivered command and its reply are matched to the same outbox entry.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommandEnvelope {
+    private String messageId;
+    private String sagaId;
+    private String commandType;
+    private JsonNode command;
+}
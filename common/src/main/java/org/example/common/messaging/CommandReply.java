@@ -0,0 +1,20 @@
+package org.example.common.messaging;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.common.command.CommandResult;
+
+/**
+ * The result of an inbox command, posted back to the orchestrator under the message id of the command.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommandReply {
+    private String messageId;
+    private String sagaId;
+    private String commandType;
+    private CommandResult<JsonNode> result;
+}
@@ -0,0 +1,15 @@
+package org.example.common.messaging;
+
+/**
+ * Command types carried in a {@link CommandEnvelope}, named after the saga steps that send them.
+ */
+public final class CommandTypes {
+
+    public static final String RESERVE_ROOM = "reserve-room";
+    public static final String RELEASE_ROOM = "release-room";
+    public static final String AUTHORIZE_PAYMENT = "authorize-payment";
+    public static final String CANCEL_PAYMENT = "cancel-payment";
+
+    private CommandTypes() {
+    }
+}
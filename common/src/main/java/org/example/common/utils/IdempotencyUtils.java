@@ -4,11 +4,8 @@ import java.util.UUID;
 
 public class IdempotencyUtils {
 
-    public static String generateKey(String sagaId, String operation) {
-        return sagaId + "-" + operation + "-" + UUID.randomUUID();
+    // A random UUID, which services store as is, see IdempotencyKeys
+    public static String newKey() {
+        return UUID.randomUUID().toString();
     }
-
-    public static String generateKey(String sagaId, String operation, String suffix) {
-        return sagaId + "-" + operation + "-" + suffix;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,51 @@
+package org.example.hotelservice.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.common.idempotency.RotatingBloomFilter;
+import org.example.hotelservice.repository.IdempotencyRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+/*
+ * Rebuilds the key filter from idempotency_records at startup. Until it is done the filter answers
+ * "maybe" for every key, so lookups fall through to the table and no stored key is missed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyKeyFilterLoader {
+
+    // Hashed keys are version 3 UUIDs, so no stored key sorts at or before this one
+    private static final UUID FIRST_KEY = new UUID(0L, 0L);
+
+    private final IdempotencyRepository idempotencyRepository;
+    private final RotatingBloomFilter idempotencyKeyFilter;
+
+    @Value("${idempotency.key-filter.load-page-size:1000}")
+    private int pageSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long loaded = 0;
+        UUID afterKey = FIRST_KEY;
+        List<UUID> keys;
+        do {
+            keys = idempotencyRepository.findKeysAfter(afterKey, Limit.of(pageSize));
+            keys.forEach(key -> idempotencyKeyFilter.put(key.toString()));
+            loaded += keys.size();
+            if (!keys.isEmpty()) {
+                afterKey = keys.get(keys.size() - 1);
+            }
+        } while (keys.size() == pageSize);
+
+        idempotencyKeyFilter.markReady();
+        log.info("Idempotency key filter loaded with {} keys", loaded);
+    }
+}
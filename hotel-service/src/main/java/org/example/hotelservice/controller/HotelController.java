@@ -5,16 +5,21 @@ import org.example.common.command.CommandResult;
 import org.example.common.command.ReleaseRoomCommand;
 import org.example.common.command.ReserveRoomCommand;
 import org.example.common.dto.ReservationDto;
+import org.example.common.messaging.CommandEnvelope;
+import org.example.hotelservice.service.CommandInbox;
 import org.example.hotelservice.service.HotelService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/hotel")
 @RequiredArgsConstructor
 public class HotelController {
 
     private final HotelService hotelService;
+    private final CommandInbox commandInbox;
 
     @PostMapping("/reserve")
     public ResponseEntity<CommandResult<ReservationDto>> reserveRoom(
@@ -23,10 +28,25 @@ public class HotelController {
         return ResponseEntity.ok(result);
     }
 
+    // Reservations of concurrent sagas collected by the orchestrator, results in the order of the commands
+    @PostMapping("/reserve/batch")
+    public ResponseEntity<List<CommandResult<ReservationDto>>> reserveRooms(
+            @RequestBody List<ReserveRoomCommand> commands) {
+        List<CommandResult<ReservationDto>> results = hotelService.reserveRooms(commands);
+        return ResponseEntity.ok(results);
+    }
+
     @PostMapping("/release")
     public ResponseEntity<CommandResult<Void>> releaseRoom(
             @RequestBody ReleaseRoomCommand command) {
         CommandResult<Void> result = hotelService.releaseRoom(command);
         return ResponseEntity.ok(result);
     }
-}
\ No newline at end of file
+
+    // Commands queued in booking-service's outbox, the result is posted back once processed
+    @PostMapping("/inbox")
+    public ResponseEntity<Void> acceptCommand(@RequestBody CommandEnvelope envelope) {
+        commandInbox.accept(envelope);
+        return ResponseEntity.accepted().build();
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.hotelservice.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.example.hotelservice.enumeration.InboxStatus;
+import org.hibernate.annotations.DynamicUpdate;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * A command delivered by booking-service's outbox relay, kept until it is processed and its reply delivered.
+ * The message id is the command's idempotency key, so a redelivered command finds its earlier entry.
+ */
+@Entity
+@DynamicUpdate
+@Table(name = "command_inbox", indexes = {
+        @Index(name = "idx_command_inbox_due", columnList = "status, availableAt")
+})
+@Getter
+@Setter
+@ToString(exclude = "command")
+@NoArgsConstructor
+public class InboxMessage implements Persistable<String> {
+
+    @Id
+    private String messageId;
+
+    private String sagaId;
+    private String commandType;
+
+    // The command, encoded by the PayloadCodec
+    @Column(length = 65536, nullable = false)
+    private byte[] command;
+
+    @Enumerated(EnumType.STRING)
+    private InboxStatus status;
+
+    private int attempts;
+
+    // When a consumer may (re)process it next
+    private LocalDateTime availableAt;
+
+    private LocalDateTime receivedAt;
+
+    public InboxMessage(String messageId, String sagaId, String commandType, byte[] command) {
+        this.messageId = messageId;
+        this.sagaId = sagaId;
+        this.commandType = commandType;
+        this.command = command;
+        this.status = InboxStatus.PENDING;
+    }
+
+    /**
+     * A command delivered again after it was answered: the reply did not arrive, so it is answered again.
+     * The command itself is deduplicated by its idempotency key.
+     */
+    public void redeliver() {
+        if (status == InboxStatus.DONE) {
+            status = InboxStatus.PENDING;
+            availableAt = LocalDateTime.now();
+        }
+    }
+
+    @Override
+    public String getId() {
+        return messageId;
+    }
+
+    // The id is assigned, so without this every new entry would be selected before it is inserted
+    @Override
+    public boolean isNew() {
+        return receivedAt == null;
+    }
+
+    @PrePersist
+    public void prePersist() {
+        receivedAt = LocalDateTime.now();
+        if (availableAt == null) {
+            availableAt = receivedAt;
+        }
+    }
+}
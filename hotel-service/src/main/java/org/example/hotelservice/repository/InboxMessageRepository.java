@@ -0,0 +1,35 @@
+package org.example.hotelservice.repository;
+
+import org.example.hotelservice.entity.InboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface InboxMessageRepository extends JpaRepository<InboxMessage, String> {
+
+    /*
+     * Locks a batch of due commands. Rows another consumer has locked are skipped rather than waited for,
+     * so consumers on several threads or nodes work on disjoint batches.
+     * Not ordered, as sorting makes H2 lock every due row rather than the batch. Must run inside a transaction.
+     */
+    @Query(value = "SELECT * FROM command_inbox WHERE status = 'PENDING' AND available_at <= :now " +
+            "LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<InboxMessage> lockDueMessages(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE InboxMessage m SET m.status = org.example.hotelservice.enumeration.InboxStatus.DONE " +
+            "WHERE m.messageId = :messageId")
+    int markDone(@Param("messageId") String messageId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE InboxMessage m SET m.availableAt = :availableAt WHERE m.messageId = :messageId " +
+            "AND m.status = org.example.hotelservice.enumeration.InboxStatus.PENDING")
+    int postpone(@Param("messageId") String messageId, @Param("availableAt") LocalDateTime availableAt);
+}
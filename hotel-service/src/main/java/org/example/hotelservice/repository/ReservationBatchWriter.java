@@ -0,0 +1,66 @@
+package org.example.hotelservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.example.hotelservice.entity.Reservation;
+import org.example.hotelservice.entity.RoomAvailability;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Set-based writes for batches of reservations: the booked nights of a whole batch are read with one query and
+ * its reservations and availability records are inserted with one JDBC batch each. Must run inside a transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReservationBatchWriter {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public record RoomNight(Long hotelId, String roomType, LocalDate date) {
+    }
+
+    /**
+     * Booked nights among the given hotels and room types within [from, to). May return nights of other
+     * combinations of the given hotels and room types, which callers simply never look up.
+     */
+    public Set<RoomNight> findBookedNights(Collection<Long> hotelIds, Collection<String> roomTypes,
+                                           LocalDate from, LocalDate to) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("hotelIds", hotelIds)
+                .addValue("roomTypes", roomTypes)
+                .addValue("from", from)
+                .addValue("to", to);
+        return new HashSet<>(namedJdbcTemplate.query("SELECT hotel_id, room_type, date FROM room_availability " +
+                        "WHERE hotel_id IN (:hotelIds) AND room_type IN (:roomTypes) AND date >= :from AND date < :to",
+                params, (rs, row) -> new RoomNight(rs.getLong("hotel_id"), rs.getString("room_type"),
+                        rs.getObject("date", LocalDate.class))));
+    }
+
+    // A night booked meanwhile fails the whole batch with a DataIntegrityViolationException on uk_room_date
+    public void insert(List<Reservation> reservations, List<RoomAvailability> availabilityRecords) {
+        jdbcTemplate.batchUpdate("INSERT INTO reservations (reservation_id, hotel_id, room_type, check_in, " +
+                        "check_out, guest_name, room_price, status, created_at, updated_at, version) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                reservations.stream().map(reservation -> new Object[]{
+                        reservation.getReservationId(), reservation.getHotelId(), reservation.getRoomType(),
+                        reservation.getCheckIn(), reservation.getCheckOut(), reservation.getGuestName(),
+                        reservation.getRoomPrice(), reservation.getStatus().name(), reservation.getCreatedAt(),
+                        reservation.getUpdatedAt(), reservation.getVersion()
+                }).toList());
+        jdbcTemplate.batchUpdate("INSERT INTO room_availability (hotel_id, room_type, date, reservation_id, version) " +
+                        "VALUES (?, ?, ?, ?, ?)",
+                availabilityRecords.stream().map(availability -> new Object[]{
+                        availability.getHotelId(), availability.getRoomType(), availability.getDate(),
+                        availability.getReservationId(), availability.getVersion()
+                }).toList());
+    }
+}
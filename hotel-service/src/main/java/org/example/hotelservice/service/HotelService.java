@@ -1,29 +1,34 @@
 package org.example.hotelservice.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.common.command.CommandResult;
 import org.example.common.command.ReleaseRoomCommand;
 import org.example.common.command.ReserveRoomCommand;
 import org.example.common.dto.ReservationDto;
-import org.example.hotelservice.entity.IdempotencyRecord;
+import org.example.common.idempotency.IdempotencyGuard;
 import org.example.hotelservice.entity.Reservation;
 import org.example.hotelservice.entity.RoomAvailability;
 import org.example.hotelservice.enumeration.ReservationStatus;
-import org.example.hotelservice.repository.IdempotencyRepository;
+import org.example.hotelservice.repository.ReservationBatchWriter;
+import org.example.hotelservice.repository.ReservationBatchWriter.RoomNight;
 import org.example.hotelservice.repository.ReservationRepository;
 import org.example.hotelservice.repository.RoomAvailabilityRepository;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -33,8 +38,9 @@ public class HotelService {
 
     private final ReservationRepository reservationRepository;
     private final RoomAvailabilityRepository roomAvailabilityRepository;
-    private final IdempotencyRepository idempotencyRepository;
-    private final ObjectMapper objectMapper;
+    private final ReservationBatchWriter reservationBatchWriter;
+    private final IdempotencyGuard idempotencyGuard;
+    private final TransactionTemplate transactionTemplate;
     private final Random random = new Random();
 
     @Value("${hotel.simulation.delay:0}")
@@ -46,29 +52,24 @@ public class HotelService {
     public CommandResult<ReservationDto> reserveRoom(ReserveRoomCommand command) {
         log.info("Processing room reservation for saga: {}", command.getSagaId());
 
-        // Check idempotency first (outside transaction)
-        Optional<IdempotencyRecord> existingRecord =
-                idempotencyRepository.findById(command.getIdempotencyKey());
+        // Duplicates are answered, or wait for the first request, outside any transaction
+        return idempotencyGuard.execute(command.getIdempotencyKey(), ReservationDto.class, () -> reserve(command));
+    }
 
-        if (existingRecord.isPresent()) {
-            log.info("Idempotent request detected for key: {}", command.getIdempotencyKey());
-            try {
-                ReservationDto cachedResult = objectMapper.readValue(
-                        existingRecord.get().getResultData(), ReservationDto.class);
-                return CommandResult.success(cachedResult);
-            } catch (Exception e) {
-                log.error("Failed to deserialize cached result", e);
-            }
-        }
-        
+    private CommandResult<ReservationDto> reserve(ReserveRoomCommand command) {
         // Simulate delay and failures
         simulateDelay();
         if (shouldSimulateFailure()) {
             return CommandResult.failure("Simulated hotel service failure", "HOTEL_SERVICE_ERROR");
         }
 
+        return tryReservation(command);
+    }
+
+    private CommandResult<ReservationDto> tryReservation(ReserveRoomCommand command) {
         try {
-            return attemptReservation(command);
+            // The reservation, its nights and the idempotency key commit or roll back together
+            return transactionTemplate.execute(status -> attemptReservation(command));
         } catch (DataIntegrityViolationException e) {
             log.warn("Room not available for saga: {} - constraint violation", command.getSagaId());
             return CommandResult.failure("Room not available for the requested dates", "ROOM_NOT_AVAILABLE");
@@ -78,60 +79,121 @@ public class HotelService {
         }
     }
 
-    @Transactional
     private CommandResult<ReservationDto> attemptReservation(ReserveRoomCommand command) {
         // Create reservation first
-        Reservation reservation = new Reservation();
-        reservation.setReservationId(UUID.randomUUID().toString());
-        reservation.setHotelId(command.getHotelId());
-        reservation.setRoomType(command.getRoomType());
-        reservation.setCheckIn(command.getCheckIn());
-        reservation.setCheckOut(command.getCheckOut());
-        reservation.setGuestName(command.getGuestName());
-        reservation.setRoomPrice(command.getRoomPrice());
-        reservation.setStatus(ReservationStatus.PENDING);
-
-        reservation = reservationRepository.save(reservation);
+        Reservation reservation = reservationRepository.save(newReservation(command));
 
         // Create availability records for each date
-        List<RoomAvailability> availabilityRecords = new ArrayList<>();
-        LocalDate currentDate = command.getCheckIn();
-
-        while (currentDate.isBefore(command.getCheckOut())) {
-            RoomAvailability availability = new RoomAvailability();
-            availability.setHotelId(command.getHotelId());
-            availability.setRoomType(command.getRoomType());
-            availability.setDate(currentDate);
-            availability.setReservationId(reservation.getReservationId());
-            availabilityRecords.add(availability);
-            currentDate = currentDate.plusDays(1);
-        }
+        List<RoomAvailability> availabilityRecords = availabilityRecords(reservation);
 
         // This will fail with DataIntegrityViolationException if room is already booked
         roomAvailabilityRepository.saveAll(availabilityRecords);
 
         ReservationDto result = mapToDto(reservation);
 
-        // Store idempotency record
-        storeIdempotencyRecord(command.getIdempotencyKey(), result);
+        // Completes the idempotency key in the same transaction
+        idempotencyGuard.complete(command.getIdempotencyKey(), result);
 
         log.info("Room reserved successfully: {}", reservation.getReservationId());
         return CommandResult.success(result);
     }
 
-    @Transactional
-    public CommandResult<Void> releaseRoom(ReleaseRoomCommand command) {
-        log.info("Processing room release for reservation: {}", command.getReservationId());
+    /**
+     * Reserves the rooms of a batch of commands, collected from concurrent sagas by the orchestrator.
+     * The results are returned in the order of the commands.
+     */
+    public List<CommandResult<ReservationDto>> reserveRooms(List<ReserveRoomCommand> commands) {
+        log.info("Processing batch of {} room reservations", commands.size());
+
+        return idempotencyGuard.executeAll(commands, ReserveRoomCommand::getIdempotencyKey, ReservationDto.class,
+                this::reserveBatch);
+    }
 
-        // Check idempotency
-        Optional<IdempotencyRecord> existingRecord =
-                idempotencyRepository.findById(command.getIdempotencyKey());
+    private List<CommandResult<ReservationDto>> reserveBatch(List<ReserveRoomCommand> commands) {
+        // One simulated delay for the whole batch, simulated failures still hit single commands
+        simulateDelay();
+        List<CommandResult<ReservationDto>> results = new ArrayList<>(Collections.nCopies(commands.size(), null));
+        List<Integer> attempted = new ArrayList<>();
+        for (int i = 0; i < commands.size(); i++) {
+            if (shouldSimulateFailure()) {
+                results.set(i, CommandResult.failure("Simulated hotel service failure", "HOTEL_SERVICE_ERROR"));
+            } else {
+                attempted.add(i);
+            }
+        }
+        if (attempted.isEmpty()) {
+            return results;
+        }
 
-        if (existingRecord.isPresent()) {
-            log.info("Idempotent request detected for key: {}", command.getIdempotencyKey());
-            return CommandResult.success(null);
+        try {
+            transactionTemplate.executeWithoutResult(status -> attemptReservations(commands, attempted, results));
+        } catch (DataIntegrityViolationException e) {
+            // A night was booked by a concurrent request after the batch checked it, so nothing was written
+            log.warn("Batch of {} reservations conflicted with a concurrent reservation, reserving one by one",
+                    attempted.size());
+            attempted.forEach(i -> results.set(i, tryReservation(commands.get(i))));
+        } catch (Exception e) {
+            log.error("Failed to reserve batch of " + attempted.size() + " rooms", e);
+            attempted.forEach(i -> results.set(i, CommandResult.failure("Internal server error", "INTERNAL_ERROR")));
         }
+        return results;
+    }
+
+    private void attemptReservations(List<ReserveRoomCommand> commands, List<Integer> attempted,
+                                     List<CommandResult<ReservationDto>> results) {
+        List<ReserveRoomCommand> batch = attempted.stream().map(commands::get).toList();
+        Set<RoomNight> booked = reservationBatchWriter.findBookedNights(
+                batch.stream().map(ReserveRoomCommand::getHotelId).distinct().toList(),
+                batch.stream().map(ReserveRoomCommand::getRoomType).distinct().toList(),
+                batch.stream().map(ReserveRoomCommand::getCheckIn).min(LocalDate::compareTo).orElseThrow(),
+                batch.stream().map(ReserveRoomCommand::getCheckOut).max(LocalDate::compareTo).orElseThrow());
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Reservation> reservations = new ArrayList<>();
+        List<RoomAvailability> availabilityRecords = new ArrayList<>();
+        Map<String, ReservationDto> completed = new LinkedHashMap<>();
+        for (int i : attempted) {
+            ReserveRoomCommand command = commands.get(i);
+            Reservation reservation = newReservation(command);
+            List<RoomAvailability> nights = availabilityRecords(reservation);
+
+            // Also rejects a command asking for a night taken by an earlier command of the same batch
+            if (nights.stream().map(HotelService::roomNight).anyMatch(booked::contains)) {
+                log.warn("Room not available for saga: {}", command.getSagaId());
+                results.set(i, CommandResult.failure("Room not available for the requested dates",
+                        "ROOM_NOT_AVAILABLE"));
+                continue;
+            }
+            nights.forEach(night -> booked.add(roomNight(night)));
+
+            reservation.setCreatedAt(now);
+            reservation.setUpdatedAt(now);
+            reservation.setVersion(0L);
+            nights.forEach(night -> night.setVersion(0L));
+            reservations.add(reservation);
+            availabilityRecords.addAll(nights);
+
+            ReservationDto result = mapToDto(reservation);
+            completed.put(command.getIdempotencyKey(), result);
+            results.set(i, CommandResult.success(result));
+        }
+
+        if (!reservations.isEmpty()) {
+            reservationBatchWriter.insert(reservations, availabilityRecords);
+            // Completes the idempotency keys in the same transaction
+            idempotencyGuard.completeAll(completed);
+            log.info("Reserved {} rooms in one batch", reservations.size());
+        }
+    }
+
+    public CommandResult<Void> releaseRoom(ReleaseRoomCommand command) {
+        log.info("Processing room release for reservation: {}", command.getReservationId());
 
+        return idempotencyGuard.execute(command.getIdempotencyKey(), Void.class,
+                () -> transactionTemplate.execute(status -> release(command)));
+    }
+
+    private CommandResult<Void> release(ReleaseRoomCommand command) {
         try {
             Optional<Reservation> reservationOpt =
                     reservationRepository.findById(command.getReservationId());
@@ -144,7 +206,7 @@ public class HotelService {
 
             if (reservation.getStatus() == ReservationStatus.RELEASED) {
                 log.info("Reservation already released: {}", command.getReservationId());
-                storeIdempotencyRecord(command.getIdempotencyKey(), null);
+                idempotencyGuard.complete(command.getIdempotencyKey(), null);
                 return CommandResult.success(null);
             }
 
@@ -155,8 +217,8 @@ public class HotelService {
             // Remove availability records
             roomAvailabilityRepository.deleteByReservationId(command.getReservationId());
 
-            // Store idempotency record
-            storeIdempotencyRecord(command.getIdempotencyKey(), null);
+            // Completes the idempotency key
+            idempotencyGuard.complete(command.getIdempotencyKey(), null);
 
             log.info("Room released successfully: {}", command.getReservationId());
             return CommandResult.success(null);
@@ -181,15 +243,39 @@ public class HotelService {
         return random.nextDouble() < failureRate;
     }
 
-    private void storeIdempotencyRecord(String key, Object result) {
-        try {
-            IdempotencyRecord record = new IdempotencyRecord();
-            record.setIdempotencyKey(key);
-            record.setResultData(result != null ? objectMapper.writeValueAsString(result) : "null");
-            idempotencyRepository.save(record);
-        } catch (Exception e) {
-            log.error("Failed to store idempotency record", e);
+
+    private static Reservation newReservation(ReserveRoomCommand command) {
+        Reservation reservation = new Reservation();
+        reservation.setReservationId(UUID.randomUUID().toString());
+        reservation.setHotelId(command.getHotelId());
+        reservation.setRoomType(command.getRoomType());
+        reservation.setCheckIn(command.getCheckIn());
+        reservation.setCheckOut(command.getCheckOut());
+        reservation.setGuestName(command.getGuestName());
+        reservation.setRoomPrice(command.getRoomPrice());
+        reservation.setStatus(ReservationStatus.PENDING);
+        return reservation;
+    }
+
+    // One record per night, the unique constraint on them is what prevents double bookings
+    private static List<RoomAvailability> availabilityRecords(Reservation reservation) {
+        List<RoomAvailability> availabilityRecords = new ArrayList<>();
+        LocalDate currentDate = reservation.getCheckIn();
+
+        while (currentDate.isBefore(reservation.getCheckOut())) {
+            RoomAvailability availability = new RoomAvailability();
+            availability.setHotelId(reservation.getHotelId());
+            availability.setRoomType(reservation.getRoomType());
+            availability.setDate(currentDate);
+            availability.setReservationId(reservation.getReservationId());
+            availabilityRecords.add(availability);
+            currentDate = currentDate.plusDays(1);
         }
+        return availabilityRecords;
+    }
+
+    private static RoomNight roomNight(RoomAvailability availability) {
+        return new RoomNight(availability.getHotelId(), availability.getRoomType(), availability.getDate());
     }
 
     private ReservationDto mapToDto(Reservation reservation) {
@@ -0,0 +1,170 @@
+package org.example.integration;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.example.bookingservice.BookingServiceApplication;
+import org.example.bookingservice.entity.SagaInstance;
+import org.example.bookingservice.repository.SagaInstanceRepository;
+import org.example.bookingservice.service.BookingService;
+import org.example.common.command.CommandResult;
+import org.example.common.dto.BookingRequest;
+import org.example.common.dto.BookingResponse;
+import org.example.common.dto.PaymentAuthorizationDto;
+import org.example.common.dto.ReservationDto;
+import org.example.common.enumerations.SagaState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(classes = BookingServiceApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class AsyncSagaExecutionIT {
+
+    private static final int DOWNSTREAM_DELAY_MS = 1000;
+
+    private static final WireMockServer hotelService = new WireMockServer(8081);
+    private static final WireMockServer paymentService = new WireMockServer(8082);
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private SagaInstanceRepository sagaRepository;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("services.hotel.url", () -> "http://localhost:8081");
+        registry.add("services.payment.url", () -> "http://localhost:8082");
+        registry.add("saga.execution.async", () -> "true");
+    }
+
+    @BeforeEach
+    void setup() {
+        hotelService.start();
+        paymentService.start();
+        hotelService.resetAll();
+        paymentService.resetAll();
+    }
+
+    @AfterEach
+    void teardown() {
+        hotelService.stop();
+        paymentService.stop();
+    }
+
+    /*
+     * With async execution the booking call must not wait for the downstream round-trips:
+     * the saga is returned in STARTED and completes later on the saga executor.
+     */
+    @Test
+    void createBooking_AsyncExecution_ReturnsBeforeSagaCompletes() throws Exception {
+        hotelService.stubFor(post(urlEqualTo("/api/hotel/reserve"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(DOWNSTREAM_DELAY_MS)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(mockHotelReservationResponse())));
+
+        paymentService.stubFor(post(urlEqualTo("/api/payment/authorize"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(DOWNSTREAM_DELAY_MS)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(mockPaymentAuthorizationResponse())));
+
+        long start = System.currentTimeMillis();
+        BookingResponse response = bookingService.createBooking(createValidBookingRequest());
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertNotNull(response.getSagaId());
+        assertEquals("PROCESSING", response.getStatus());
+        assertTrue(elapsed < DOWNSTREAM_DELAY_MS, "createBooking blocked for " + elapsed + " ms");
+
+        await().atMost(10, SECONDS).untilAsserted(() -> {
+            SagaInstance saga = sagaRepository.findById(response.getSagaId()).orElseThrow();
+            assertEquals(SagaState.BOOKING_COMPLETED, saga.getState());
+        });
+    }
+
+    @Test
+    void postBooking_AsyncExecution_RespondsAccepted() throws Exception {
+        hotelService.stubFor(post(urlEqualTo("/api/hotel/reserve"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(mockHotelReservationResponse())));
+        paymentService.stubFor(post(urlEqualTo("/api/payment/authorize"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(mockPaymentAuthorizationResponse())));
+
+        ResponseEntity<BookingResponse> response = restTemplate.postForEntity("/api/booking",
+                createValidBookingRequest(), BookingResponse.class);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        String sagaId = response.getBody().getSagaId();
+        await().atMost(10, SECONDS).untilAsserted(() ->
+                assertEquals(SagaState.BOOKING_COMPLETED, sagaRepository.findById(sagaId).orElseThrow().getState()));
+    }
+
+    private String mockHotelReservationResponse() throws JsonProcessingException {
+        ReservationDto reservationDto = new ReservationDto();
+        reservationDto.setReservationId("hotel-reservation-123");
+        reservationDto.setHotelId(1L);
+        reservationDto.setRoomType("STANDARD");
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        return objectMapper.writeValueAsString(CommandResult.success(reservationDto));
+    }
+
+    private String mockPaymentAuthorizationResponse() throws JsonProcessingException {
+        PaymentAuthorizationDto paymentDto = new PaymentAuthorizationDto();
+        paymentDto.setAuthorizationId("auth-456");
+        paymentDto.setStatus("AUTHORIZED");
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        return objectMapper.writeValueAsString(CommandResult.success(paymentDto));
+    }
+
+    private BookingRequest createValidBookingRequest() {
+        BookingRequest request = new BookingRequest();
+        request.setHotelId(1L);
+        request.setRoomType("STANDARD");
+        request.setCheckIn(LocalDate.now().plusDays(1));
+        request.setCheckOut(LocalDate.now().plusDays(3));
+        request.setGuestName("John Doe");
+        request.setRoomPrice(new BigDecimal("199.99"));
+        request.setCardNumber("4111111111111111");
+        request.setCardHolderName("John Doe");
+        request.setExpiryMonth("12");
+        request.setExpiryYear("2025");
+        request.setCvv("123");
+        return request;
+    }
+}
@@ -0,0 +1,218 @@
+package org.example.integration;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.example.bookingservice.BookingServiceApplication;
+import org.example.bookingservice.service.BookingService;
+import org.example.common.command.CommandResult;
+import org.example.common.dto.BatchBookingResponse;
+import org.example.common.dto.BookingRequest;
+import org.example.common.dto.BookingResponse;
+import org.example.common.dto.PaymentAuthorizationDto;
+import org.example.common.dto.ReservationDto;
+import org.example.common.enumerations.SagaState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A batch of bookings created with one call: the valid ones get a saga each and complete in the background,
+ * an invalid one is rejected without failing the others. The saga executor is kept smaller than the number of
+ * concurrent batches, which must neither stall it nor let a batch run more sagas at a time than its parallelism.
+ */
+@SpringBootTest(classes = BookingServiceApplication.class)
+@DirtiesContext
+public class BatchBookingIT {
+
+    private static final int BATCH_SIZE = 20;
+    private static final int INVALID_POSITION = 7;
+    private static final int RESERVATION_DELAY_MS = 50;
+    private static final int EXECUTOR_THREADS = 2;
+
+    private static final WireMockServer hotelService = new WireMockServer(8081);
+    private static final WireMockServer paymentService = new WireMockServer(8082);
+
+    @Autowired
+    private BookingService bookingService;
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("services.hotel.url", () -> "http://localhost:8081");
+        registry.add("services.payment.url", () -> "http://localhost:8082");
+        registry.add("saga.execution.async", () -> "true");
+        registry.add("saga.executor.core-pool-size", () -> String.valueOf(EXECUTOR_THREADS));
+        registry.add("saga.executor.max-pool-size", () -> String.valueOf(EXECUTOR_THREADS));
+        registry.add("saga.booking-batch.parallelism", () -> "1");
+    }
+
+    @BeforeEach
+    void setup() throws Exception {
+        hotelService.start();
+        paymentService.start();
+        hotelService.resetAll();
+        paymentService.resetAll();
+        hotelService.stubFor(post(urlEqualTo("/api/hotel/reserve"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(RESERVATION_DELAY_MS)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(mockHotelReservationResponse())));
+        paymentService.stubFor(post(urlEqualTo("/api/payment/authorize"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(mockPaymentAuthorizationResponse())));
+    }
+
+    @AfterEach
+    void teardown() {
+        hotelService.stop();
+        paymentService.stop();
+    }
+
+    @Test
+    void createBookings_ValidBookingsCompleteAndInvalidOneIsRejected() throws Exception {
+        List<BookingRequest> requests = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            BookingRequest request = createValidBookingRequest();
+            if (i == INVALID_POSITION) {
+                request.setCvv("12");
+            }
+            requests.add(request);
+        }
+
+        BatchBookingResponse created = bookingService.createBookings(requests);
+
+        assertNotNull(created.getBatchId());
+        assertEquals(BATCH_SIZE, created.getBookings().size());
+        BookingResponse rejected = created.getBookings().get(INVALID_POSITION);
+        assertEquals("FAILED", rejected.getStatus());
+        assertNull(rejected.getSagaId());
+        assertTrue(rejected.getMessage().contains("cvv"), rejected.getMessage());
+        List<String> sagaIds = created.getBookings().stream()
+                .map(BookingResponse::getSagaId)
+                .filter(Objects::nonNull)
+                .toList();
+        assertEquals(BATCH_SIZE - 1, sagaIds.size());
+
+        await().atMost(20, SECONDS).untilAsserted(() -> {
+            BatchBookingResponse status = bookingService.getBatchStatus(created.getBatchId());
+            assertEquals(BATCH_SIZE - 1, status.getBookings().size());
+            status.getBookings().forEach(booking ->
+                    assertEquals(SagaState.BOOKING_COMPLETED.name(), booking.getStatus()));
+        });
+
+        assertEquals(sagaIds.stream().sorted().toList(),
+                bookingService.getBatchStatus(created.getBatchId()).getBookings().stream()
+                        .map(BookingResponse::getSagaId)
+                        .toList());
+        hotelService.verify(BATCH_SIZE - 1, postRequestedFor(urlEqualTo("/api/hotel/reserve")));
+    }
+
+    /*
+     * More concurrent batches than executor threads, followed by a single booking. Each batch's reservations
+     * take RESERVATION_DELAY_MS, so with a parallelism of 1 none of them may start before the previous one of the
+     * same batch was answered.
+     */
+    @Test
+    void createBookings_MoreBatchesThanExecutorThreads_AllCompleteOneSagaAtATimePerBatch() throws Exception {
+        int batches = EXECUTOR_THREADS * 2;
+        int sagasPerBatch = 3;
+        List<BatchBookingResponse> created = new ArrayList<>();
+        for (int batch = 0; batch < batches; batch++) {
+            List<BookingRequest> requests = new ArrayList<>();
+            for (int i = 0; i < sagasPerBatch; i++) {
+                BookingRequest request = createValidBookingRequest();
+                request.setGuestName("Batch Guest " + batch);
+                requests.add(request);
+            }
+            created.add(bookingService.createBookings(requests));
+        }
+        String single = bookingService.createBooking(createValidBookingRequest()).getSagaId();
+
+        await().atMost(20, SECONDS).untilAsserted(() -> {
+            assertEquals(SagaState.BOOKING_COMPLETED.name(), bookingService.getBookingStatus(single).getStatus());
+            for (BatchBookingResponse batch : created) {
+                bookingService.getBatchStatus(batch.getBatchId()).getBookings().forEach(booking ->
+                        assertEquals(SagaState.BOOKING_COMPLETED.name(), booking.getStatus()));
+            }
+        });
+
+        for (int batch = 0; batch < batches; batch++) {
+            List<Long> startedAt = hotelService.findAll(postRequestedFor(urlEqualTo("/api/hotel/reserve"))
+                            .withRequestBody(containing("Batch Guest " + batch))).stream()
+                    .map(request -> request.getLoggedDate().getTime())
+                    .sorted()
+                    .toList();
+            assertEquals(sagasPerBatch, startedAt.size());
+            for (int i = 1; i < startedAt.size(); i++) {
+                assertTrue(startedAt.get(i) - startedAt.get(i - 1) >= RESERVATION_DELAY_MS,
+                        "Batch " + batch + " overlapped its sagas: " + startedAt);
+            }
+        }
+    }
+
+    @Test
+    void getBatchStatus_UnknownBatch_ReturnsNoBookings() {
+        assertTrue(bookingService.getBatchStatus("unknown-batch").getBookings().isEmpty());
+    }
+
+    private String mockHotelReservationResponse() throws JsonProcessingException {
+        ReservationDto reservationDto = new ReservationDto();
+        reservationDto.setReservationId("hotel-reservation-123");
+        reservationDto.setHotelId(1L);
+        reservationDto.setRoomType("STANDARD");
+        return toJson(CommandResult.success(reservationDto));
+    }
+
+    private String mockPaymentAuthorizationResponse() throws JsonProcessingException {
+        PaymentAuthorizationDto paymentDto = new PaymentAuthorizationDto();
+        paymentDto.setAuthorizationId("auth-456");
+        paymentDto.setStatus("AUTHORIZED");
+        return toJson(CommandResult.success(paymentDto));
+    }
+
+    private static String toJson(Object value) throws JsonProcessingException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        return objectMapper.writeValueAsString(value);
+    }
+
+    private BookingRequest createValidBookingRequest() {
+        BookingRequest request = new BookingRequest();
+        request.setHotelId(1L);
+        request.setRoomType("STANDARD");
+        request.setCheckIn(LocalDate.now().plusDays(1));
+        request.setCheckOut(LocalDate.now().plusDays(3));
+        request.setGuestName("John Doe");
+        request.setRoomPrice(new BigDecimal("199.99"));
+        request.setCardNumber("4111111111111111");
+        request.setCardHolderName("John Doe");
+        request.setExpiryMonth("12");
+        request.setExpiryYear("2025");
+        request.setCvv("123");
+        return request;
+    }
+}
@@ -0,0 +1,156 @@
+package org.example.integration;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.example.bookingservice.BookingServiceApplication;
+import org.example.bookingservice.entity.SagaInstance;
+import org.example.bookingservice.repository.SagaInstanceRepository;
+import org.example.bookingservice.service.BookingService;
+import org.example.common.command.CommandResult;
+import org.example.common.dto.BookingRequest;
+import org.example.common.dto.BookingResponse;
+import org.example.common.dto.PaymentAuthorizationDto;
+import org.example.common.dto.ReservationDto;
+import org.example.common.enumerations.SagaState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.matchingJsonPath;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two concurrent bookings with saga.batching enabled: their reservations and their authorizations are each sent
+ * to the services as one batch.
+ */
+@SpringBootTest(classes = BookingServiceApplication.class)
+@DirtiesContext
+public class BatchedCommandsIT {
+
+    private static final WireMockServer hotelService = new WireMockServer(8081);
+    private static final WireMockServer paymentService = new WireMockServer(8082);
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private SagaInstanceRepository sagaRepository;
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("services.hotel.url", () -> "http://localhost:8081");
+        registry.add("services.payment.url", () -> "http://localhost:8082");
+        registry.add("saga.batching.enabled", () -> "true");
+        registry.add("saga.batching.max-size", () -> "2");
+        // Long enough for both bookings to join, a full batch is sent without waiting for it
+        registry.add("saga.batching.max-delay", () -> "5s");
+    }
+
+    @BeforeEach
+    void setup() {
+        hotelService.start();
+        paymentService.start();
+        hotelService.resetAll();
+        paymentService.resetAll();
+    }
+
+    @AfterEach
+    void teardown() {
+        hotelService.stop();
+        paymentService.stop();
+    }
+
+    @Test
+    void concurrentBookings_ForwardCommandsSentAsOneBatchEach() throws Exception {
+        hotelService.stubFor(post(urlEqualTo("/api/hotel/reserve/batch"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(toJson(List.of(
+                                CommandResult.success(reservation("hotel-reservation-1")),
+                                CommandResult.success(reservation("hotel-reservation-2")))))));
+        paymentService.stubFor(post(urlEqualTo("/api/payment/authorize/batch"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(toJson(List.of(
+                                CommandResult.success(authorization("auth-1")),
+                                CommandResult.success(authorization("auth-2")))))));
+
+        CompletableFuture<BookingResponse> first =
+                CompletableFuture.supplyAsync(() -> bookingService.createBooking(createValidBookingRequest()));
+        CompletableFuture<BookingResponse> second =
+                CompletableFuture.supplyAsync(() -> bookingService.createBooking(createValidBookingRequest()));
+
+        List<SagaInstance> sagas = List.of(
+                sagaRepository.findById(first.get().getSagaId()).orElseThrow(),
+                sagaRepository.findById(second.get().getSagaId()).orElseThrow());
+
+        sagas.forEach(saga -> assertEquals(SagaState.BOOKING_COMPLETED, saga.getState()));
+        assertEquals(Set.of("hotel-reservation-1", "hotel-reservation-2"),
+                sagas.stream().map(SagaInstance::getReservationId).collect(Collectors.toSet()));
+        assertEquals(Set.of("auth-1", "auth-2"),
+                sagas.stream().map(SagaInstance::getAuthorizationId).collect(Collectors.toSet()));
+
+        hotelService.verify(1, postRequestedFor(urlEqualTo("/api/hotel/reserve/batch"))
+                .withRequestBody(matchingJsonPath("$[1].idempotencyKey")));
+        paymentService.verify(1, postRequestedFor(urlEqualTo("/api/payment/authorize/batch")));
+        hotelService.verify(0, postRequestedFor(urlEqualTo("/api/hotel/reserve")));
+        paymentService.verify(0, postRequestedFor(urlEqualTo("/api/payment/authorize")));
+    }
+
+    private static ReservationDto reservation(String reservationId) {
+        ReservationDto reservation = new ReservationDto();
+        reservation.setReservationId(reservationId);
+        reservation.setHotelId(1L);
+        reservation.setRoomType("STANDARD");
+        return reservation;
+    }
+
+    private static PaymentAuthorizationDto authorization(String authorizationId) {
+        PaymentAuthorizationDto authorization = new PaymentAuthorizationDto();
+        authorization.setAuthorizationId(authorizationId);
+        authorization.setStatus("AUTHORIZED");
+        return authorization;
+    }
+
+    private static String toJson(Object value) throws JsonProcessingException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        return objectMapper.writeValueAsString(value);
+    }
+
+    private BookingRequest createValidBookingRequest() {
+        BookingRequest request = new BookingRequest();
+        request.setHotelId(1L);
+        request.setRoomType("STANDARD");
+        request.setCheckIn(LocalDate.now().plusDays(1));
+        request.setCheckOut(LocalDate.now().plusDays(3));
+        request.setGuestName("John Doe");
+        request.setRoomPrice(new BigDecimal("199.99"));
+        request.setCardNumber("4111111111111111");
+        request.setCardHolderName("John Doe");
+        request.setExpiryMonth("12");
+        request.setExpiryYear("2025");
+        request.setCvv("123");
+        return request;
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.integration;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.bookingservice.BookingServiceApplication;
+import org.example.bookingservice.controller.BookingController;
+import org.example.bookingservice.service.SagaOrchestrator;
+import org.example.common.dto.BookingRequest;
+import org.example.common.dto.BookingResponse;
+import org.example.common.enumerations.SagaState;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Looks up the statuses of several sagas at once through the streaming status endpoint and checks that they are
+ * resolved with IN projection queries that leave the state history, idempotency keys and payloads unread.
+ */
+@SpringBootTest(classes = BookingServiceApplication.class)
+@TestPropertySource(properties = {
+        "saga.status.chunk-size=2",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+                "org.example.integration.BookingStatusQueryTest$RecordingStatementInspector"
+})
+@DirtiesContext
+public class BookingStatusQueryTest {
+
+    private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    private BookingController bookingController;
+
+    @Autowired
+    private SagaOrchestrator sagaOrchestrator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void getBookingStatuses_ManySagas_StreamedInRequestOrderFromProjectionQueries() throws Exception {
+        List<String> sagaIds = sagaOrchestrator.createBookingSagas(UUID.randomUUID().toString(),
+                List.of(createValidBookingRequest(), createValidBookingRequest(), createValidBookingRequest()));
+        List<String> requested = List.of(sagaIds.get(2), "unknown-saga", sagaIds.get(0), sagaIds.get(1));
+
+        STATEMENTS.clear();
+        ResponseEntity<StreamingResponseBody> response = bookingController.getBookingStatuses(requested);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        List<BookingResponse> statuses = objectMapper.readValue(out.toByteArray(), new TypeReference<>() {
+        });
+        assertEquals(requested, statuses.stream().map(BookingResponse::getSagaId).toList());
+        assertEquals("FAILED", statuses.get(1).getStatus());
+        assertEquals("Booking not found", statuses.get(1).getMessage());
+        for (int i : new int[]{0, 2, 3}) {
+            assertEquals(SagaState.STARTED.name(), statuses.get(i).getStatus());
+            assertNotNull(statuses.get(i).getTimestamp());
+        }
+
+        // Four ids in chunks of two
+        List<String> lookups = STATEMENTS.stream()
+                .filter(sql -> sql.contains("from saga_instances") && sql.contains("saga_id in"))
+                .toList();
+        assertEquals(2, lookups.size(), lookups.toString());
+        lookups.forEach(sql -> assertFalse(sql.contains("idempotency_keys"), sql));
+        assertTrue(STATEMENTS.stream().noneMatch(sql -> sql.contains("saga_payloads")), STATEMENTS.toString());
+        assertTrue(STATEMENTS.stream().noneMatch(sql -> sql.contains("saga_state_transitions")), STATEMENTS.toString());
+    }
+
+    private BookingRequest createValidBookingRequest() {
+        BookingRequest request = new BookingRequest();
+        request.setHotelId(1L);
+        request.setRoomType("STANDARD");
+        request.setCheckIn(LocalDate.now().plusDays(1));
+        request.setCheckOut(LocalDate.now().plusDays(3));
+        request.setGuestName("John Doe");
+        request.setRoomPrice(new BigDecimal("199.99"));
+        request.setCardNumber("4111111111111111");
+        request.setCardHolderName("John Doe");
+        request.setExpiryMonth("12");
+        request.setExpiryYear("2025");
+        request.setCvv("123");
+        return request;
+    }
+
+    public static class RecordingStatementInspector implements StatementInspector {
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql.toLowerCase(Locale.ROOT));
+            return sql;
+        }
+    }
+}
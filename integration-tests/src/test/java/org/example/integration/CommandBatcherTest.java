@@ -0,0 +1,77 @@
+package org.example.integration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.bookingservice.saga.CommandBatcher;
+import org.example.common.command.CommandResult;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommandBatcherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void submit_ConcurrentCommands_SentInFullBatchesWithResultsInPlace() {
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+        CommandBatcher<String, String> batcher = new CommandBatcher<>("test", commands -> {
+            batches.add(List.copyOf(commands));
+            return commands.stream().map(command -> CommandResult.success("result-" + command)).toList();
+        }, 4, Duration.ofSeconds(10), meterRegistry);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<CompletableFuture<CommandResult<String>>> calls = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String command = "command-" + i;
+                calls.add(CompletableFuture.supplyAsync(() -> batcher.submit(command), executor));
+            }
+
+            for (int i = 0; i < 8; i++) {
+                assertEquals("result-command-" + i, calls.get(i).join().getData());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        // Full batches do not wait for the delay
+        assertEquals(2, batches.size());
+        batches.forEach(batch -> assertEquals(4, batch.size()));
+        assertEquals(2, meterRegistry.get("saga.batch.size").summary().count());
+    }
+
+    @Test
+    void submit_LoneCommand_SentAfterMaxDelay() {
+        CommandBatcher<String, String> batcher = new CommandBatcher<>("test",
+                commands -> List.of(CommandResult.success("result")), 50, Duration.ofMillis(20), meterRegistry);
+
+        long start = System.nanoTime();
+        CommandResult<String> result = batcher.submit("command");
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("result", result.getData());
+        assertTrue(elapsedMillis >= 15, "Sent after " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void submit_FailedBatch_FailsEveryCommand() {
+        CommandBatcher<String, String> batcher = new CommandBatcher<>("test", commands -> {
+            throw new IllegalStateException("hotel-service unavailable");
+        }, 2, Duration.ofSeconds(10), meterRegistry);
+
+        CompletableFuture<CommandResult<String>> first = CompletableFuture.supplyAsync(() -> batcher.submit("a"));
+        CompletableFuture<CommandResult<String>> second = CompletableFuture.supplyAsync(() -> batcher.submit("b"));
+
+        for (CompletableFuture<CommandResult<String>> call : List.of(first, second)) {
+            Exception e = assertThrows(Exception.class, call::join);
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package org.example.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.example.common.command.ReserveRoomCommand;
+import org.example.common.messaging.CommandEnvelope;
+import org.example.common.messaging.CommandReply;
+import org.example.common.messaging.CommandTypes;
+import org.example.hotelservice.HotelServiceApplication;
+import org.example.hotelservice.entity.InboxMessage;
+import org.example.hotelservice.enumeration.InboxStatus;
+import org.example.hotelservice.repository.InboxMessageRepository;
+import org.example.hotelservice.service.CommandInbox;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = HotelServiceApplication.class)
+@TestPropertySource(properties = {
+        "services.booking.url=http://localhost:8089",
+        // the inbox poller is off by default, the test drives the consumer itself
+        "spring.datasource.url=jdbc:h2:mem:hotel-inbox;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+@DirtiesContext
+public class CommandInboxTest {
+
+    private static final WireMockServer bookingService = new WireMockServer(8089);
+
+    @Autowired
+    private CommandInbox commandInbox;
+
+    @Autowired
+    private InboxMessageRepository inboxRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setup() {
+        bookingService.start();
+        bookingService.resetAll();
+        bookingService.stubFor(post(urlEqualTo("/api/booking/replies")).willReturn(aResponse().withStatus(202)));
+    }
+
+    @AfterEach
+    void teardown() {
+        bookingService.stop();
+        inboxRepository.deleteAll();
+    }
+
+    @Test
+    void consume_ReserveCommand_RepliesOnceAndReplaysResultOnRedelivery() throws Exception {
+        CommandEnvelope envelope = createReserveEnvelope();
+
+        commandInbox.accept(envelope);
+        commandInbox.consume();
+
+        List<CommandReply> replies = replies();
+        assertEquals(1, replies.size());
+        assertEquals(envelope.getMessageId(), replies.get(0).getMessageId());
+        assertTrue(replies.get(0).getResult().isSuccess());
+        String reservationId = replies.get(0).getResult().getData().get("reservationId").asText();
+        assertEquals(InboxStatus.DONE, inboxRepository.findById(envelope.getMessageId()).orElseThrow().getStatus());
+
+        // The relay delivers again when it never learned of the first delivery
+        commandInbox.accept(envelope);
+        commandInbox.consume();
+
+        replies = replies();
+        assertEquals(2, replies.size());
+        assertEquals(reservationId, replies.get(1).getResult().getData().get("reservationId").asText());
+    }
+
+    @Test
+    void consume_ReplyNotDelivered_CommandStaysQueued() {
+        bookingService.stop();
+        CommandEnvelope envelope = createReserveEnvelope();
+
+        commandInbox.accept(envelope);
+        commandInbox.consume();
+
+        InboxMessage message = inboxRepository.findById(envelope.getMessageId()).orElseThrow();
+        assertEquals(InboxStatus.PENDING, message.getStatus());
+        assertEquals(1, message.getAttempts());
+        assertTrue(message.getAvailableAt().isAfter(LocalDateTime.now()));
+    }
+
+    @Test
+    void lockDueMessages_RowsLockedByAnotherConsumer_AreSkipped() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            inboxRepository.save(new InboxMessage("message-" + i, "saga-" + i, "unknown", new byte[]{0}));
+        }
+
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<List<String>> first = CompletableFuture.supplyAsync(() ->
+                transactionTemplate.execute(status -> {
+                    List<String> ids = messageIds(inboxRepository.lockDueMessages(LocalDateTime.now(), 2));
+                    locked.countDown();
+                    await(release);
+                    return ids;
+                }));
+
+        assertTrue(locked.await(10, TimeUnit.SECONDS));
+        List<String> second = transactionTemplate.execute(status ->
+                messageIds(inboxRepository.lockDueMessages(LocalDateTime.now(), 10)));
+        release.countDown();
+
+        assertEquals(2, second.size());
+        assertEquals(2, first.get(10, TimeUnit.SECONDS).size());
+        assertTrue(second.stream().noneMatch(first.get()::contains));
+    }
+
+    private List<CommandReply> replies() throws Exception {
+        List<CommandReply> replies = new ArrayList<>();
+        for (var request : bookingService.findAll(postRequestedFor(urlEqualTo("/api/booking/replies")))) {
+            replies.add(objectMapper.readValue(request.getBodyAsString(), CommandReply.class));
+        }
+        return replies;
+    }
+
+    private static List<String> messageIds(List<InboxMessage> messages) {
+        return messages.stream().map(InboxMessage::getMessageId).toList();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CommandEnvelope createReserveEnvelope() {
+        String key = UUID.randomUUID().toString();
+        ReserveRoomCommand command = new ReserveRoomCommand();
+        command.setSagaId("inbox-saga-" + key);
+        command.setIdempotencyKey(key);
+        command.setTimestamp(LocalDateTime.now());
+        command.setHotelId(7L);
+        command.setRoomType("INBOX-" + key);
+        command.setCheckIn(LocalDate.now().plusDays(1));
+        command.setCheckOut(LocalDate.now().plusDays(3));
+        command.setGuestName("Inbox Guest");
+        command.setRoomPrice(new BigDecimal("99.00"));
+        return new CommandEnvelope(key, command.getSagaId(), CommandTypes.RESERVE_ROOM, objectMapper.valueToTree(command));
+    }
+}
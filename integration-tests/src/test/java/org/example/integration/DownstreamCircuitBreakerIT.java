@@ -0,0 +1,107 @@
+package org.example.integration;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.example.bookingservice.BookingServiceApplication;
+import org.example.bookingservice.entity.SagaInstance;
+import org.example.bookingservice.repository.SagaInstanceRepository;
+import org.example.bookingservice.resilience.CircuitBreaker;
+import org.example.bookingservice.resilience.DownstreamGuard;
+import org.example.bookingservice.resilience.DownstreamsEndpoint;
+import org.example.bookingservice.service.BookingService;
+import org.example.common.dto.BookingRequest;
+import org.example.common.dto.BookingResponse;
+import org.example.common.enumerations.SagaState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(classes = BookingServiceApplication.class)
+public class DownstreamCircuitBreakerIT {
+
+    private static final WireMockServer hotelService = new WireMockServer(8081);
+    private static final WireMockServer paymentService = new WireMockServer(8082);
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private SagaInstanceRepository sagaRepository;
+
+    @Autowired
+    private DownstreamsEndpoint downstreamsEndpoint;
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("services.hotel.url", () -> "http://localhost:8081");
+        registry.add("services.payment.url", () -> "http://localhost:8082");
+        registry.add("saga.downstream.circuit-breaker.sliding-window-size", () -> "2");
+        registry.add("saga.downstream.circuit-breaker.minimum-calls", () -> "2");
+        registry.add("saga.downstream.circuit-breaker.open-duration", () -> "1m");
+    }
+
+    @BeforeEach
+    void setup() {
+        hotelService.start();
+        paymentService.start();
+        hotelService.resetAll();
+        paymentService.resetAll();
+    }
+
+    @AfterEach
+    void teardown() {
+        hotelService.stop();
+        paymentService.stop();
+    }
+
+    /*
+     * Two 503s open the hotel-service circuit. The next booking is not sent at all and ends cancelled
+     * right away instead of waiting on a downstream that is known to be failing.
+     */
+    @Test
+    void createBooking_HotelServiceFailing_OpenCircuitFailsFastIntoCancellation() {
+        hotelService.stubFor(post(urlEqualTo("/api/hotel/reserve"))
+                .willReturn(aResponse().withStatus(503)));
+
+        bookingService.createBooking(createValidBookingRequest());
+        bookingService.createBooking(createValidBookingRequest());
+        BookingResponse rejected = bookingService.createBooking(createValidBookingRequest());
+
+        SagaInstance saga = sagaRepository.findById(rejected.getSagaId()).orElseThrow();
+        assertEquals(SagaState.BOOKING_CANCELLED, saga.getState());
+        hotelService.verify(2, postRequestedFor(urlEqualTo("/api/hotel/reserve")));
+
+        DownstreamGuard.Snapshot hotel = downstreamsEndpoint.downstreams().get("hotel-service");
+        assertEquals(CircuitBreaker.State.OPEN, hotel.circuitState());
+        assertEquals(1, hotel.rejectedByCircuit());
+        assertEquals(0, hotel.inFlight());
+    }
+
+    private BookingRequest createValidBookingRequest() {
+        BookingRequest request = new BookingRequest();
+        request.setHotelId(1L);
+        request.setRoomType("STANDARD");
+        request.setCheckIn(LocalDate.now().plusDays(1));
+        request.setCheckOut(LocalDate.now().plusDays(3));
+        request.setGuestName("John Doe");
+        request.setRoomPrice(new BigDecimal("199.99"));
+        request.setCardNumber("4111111111111111");
+        request.setCardHolderName("John Doe");
+        request.setExpiryMonth("12");
+        request.setExpiryYear("2025");
+        request.setCvv("123");
+        return request;
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.integration;
+
+import io.micrometer.core.instrument.MockClock;
+import org.example.bookingservice.resilience.AdaptiveConcurrencyLimiter;
+import org.example.bookingservice.resilience.CircuitBreaker;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DownstreamGuardTest {
+
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    private static final long SLOW = Duration.ofSeconds(5).toNanos();
+
+    @Test
+    void limiter_CallsOverLimit_AreRejected() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 0.5, Duration.ofSeconds(1).toNanos());
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.release(true, FAST);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void limiter_GrowsWhileBusyAndBacksOffOnSlowCalls() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 10, 0.5, Duration.ofSeconds(1).toNanos());
+
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+        limiter.release(true, FAST);
+        assertEquals(5, limiter.limit());
+
+        limiter.release(true, SLOW);
+        assertEquals(2, limiter.limit());
+
+        limiter.tryAcquire();
+        limiter.release(false, FAST);
+        limiter.tryAcquire();
+        limiter.release(false, FAST);
+        assertEquals(1, limiter.limit(), "never below the minimum");
+    }
+
+    @Test
+    void circuitBreaker_FailureRateReached_OpensAndRejects() {
+        CircuitBreaker breaker = new CircuitBreaker(50, 4, 4, Duration.ofMinutes(1), 1);
+
+        for (boolean success : new boolean[]{true, false, true}) {
+            assertTrue(breaker.tryAcquire());
+            breaker.record(success);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state(), "below the minimum number of calls");
+
+        breaker.tryAcquire();
+        breaker.record(false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void circuitBreaker_AfterOpenDuration_TrialCallsDecide() {
+        MockClock clock = new MockClock();
+        CircuitBreaker breaker = new CircuitBreaker(50, 2, 2, Duration.ofMillis(50), 2, clock);
+        breaker.tryAcquire();
+        breaker.record(false);
+        breaker.tryAcquire();
+        breaker.record(false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        clock.add(Duration.ofMillis(49));
+        assertFalse(breaker.tryAcquire(), "still open");
+
+        clock.add(Duration.ofMillis(1));
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire(), "only the trial calls are let through");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+
+        breaker.record(true);
+        breaker.record(true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.integration;
+
+import org.example.bookingservice.timer.HierarchicalTimingWheel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HierarchicalTimingWheelTest {
+
+    private static final long START = 1_000_000L;
+
+    @Test
+    void advance_DeadlinesWithinFirstLevel_FireInOrderAndNeverEarly() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 8, START);
+        wheel.schedule("b", START + 45);
+        wheel.schedule("a", START + 25);
+
+        assertTrue(wheel.advance(START + 24).isEmpty());
+        assertEquals(List.of("a"), items(wheel.advance(START + 25)));
+        assertTrue(wheel.advance(START + 44).isEmpty());
+        assertEquals(List.of("b"), items(wheel.advance(START + 50)));
+    }
+
+    @Test
+    void advance_DeadlineBeyondFirstLevel_CascadesDownAndFires() {
+        // 10 ms x 8 buckets covers 80 ms, a 5 second deadline needs three levels
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 8, START);
+        wheel.schedule("far", START + 5_000);
+
+        for (long now = START; now < START + 5_000; now += 10) {
+            assertTrue(wheel.advance(now).isEmpty(), "fired early at " + (now - START) + " ms");
+        }
+        assertEquals(List.of("far"), items(wheel.advance(START + 5_010)));
+    }
+
+    @Test
+    void advance_CancelledOrOverdueTimeouts_AreHandledOnNextAdvance() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 8, START);
+        HierarchicalTimingWheel.Timeout<String> cancelled = wheel.schedule("cancelled", START + 30);
+        wheel.schedule("overdue", START - 5);
+        cancelled.cancel();
+
+        assertEquals(List.of("overdue"), items(wheel.advance(START)));
+        assertTrue(wheel.advance(START + 100).isEmpty());
+    }
+
+    @Test
+    void cancel_ScheduledTimeouts_AreUnlinkedRightAway() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 8, START);
+        List<HierarchicalTimingWheel.Timeout<String>> timeouts = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            // Spread over all three levels
+            timeouts.add(wheel.schedule("deadline-" + i, START + 10 + i * 5L));
+        }
+        HierarchicalTimingWheel.Timeout<String> kept = wheel.schedule("kept", START + 3_000);
+        assertEquals(1_001, wheel.size());
+
+        timeouts.forEach(HierarchicalTimingWheel.Timeout::cancel);
+
+        // Nothing is held until the cancelled deadlines would have passed
+        assertEquals(1, wheel.size());
+        assertTrue(wheel.advance(START + 2_990).isEmpty());
+        assertEquals(List.of(kept.item()), items(wheel.advance(START + 3_000)));
+        assertEquals(0, wheel.size());
+    }
+
+    private List<String> items(List<HierarchicalTimingWheel.Timeout<String>> timeouts) {
+        return timeouts.stream().map(HierarchicalTimingWheel.Timeout::item).toList();
+    }
+}
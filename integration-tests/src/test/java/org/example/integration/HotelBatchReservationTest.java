@@ -0,0 +1,93 @@
+package org.example.integration;
+
+import org.example.common.command.CommandResult;
+import org.example.common.command.ReserveRoomCommand;
+import org.example.common.dto.ReservationDto;
+import org.example.hotelservice.HotelServiceApplication;
+import org.example.hotelservice.repository.ReservationRepository;
+import org.example.hotelservice.repository.RoomAvailabilityRepository;
+import org.example.hotelservice.service.HotelService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = HotelServiceApplication.class)
+@DirtiesContext
+public class HotelBatchReservationTest {
+
+    private static final LocalDate CHECK_IN = LocalDate.now().plusDays(10);
+
+    @Autowired
+    private HotelService hotelService;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private RoomAvailabilityRepository roomAvailabilityRepository;
+
+    @Test
+    void reserveRooms_BatchWithOverlappingCommands_FirstCommandWins() {
+        String roomA = "BATCH-" + UUID.randomUUID();
+        String roomB = "BATCH-" + UUID.randomUUID();
+        List<ReserveRoomCommand> batch = List.of(
+                createCommand(roomA, CHECK_IN, CHECK_IN.plusDays(2)),
+                createCommand(roomB, CHECK_IN, CHECK_IN.plusDays(2)),
+                createCommand(roomA, CHECK_IN.plusDays(1), CHECK_IN.plusDays(3)));
+
+        List<CommandResult<ReservationDto>> results = hotelService.reserveRooms(batch);
+
+        assertTrue(results.get(0).isSuccess());
+        assertTrue(results.get(1).isSuccess());
+        assertEquals("ROOM_NOT_AVAILABLE", results.get(2).getErrorCode());
+        assertTrue(reservationRepository.existsById(results.get(0).getData().getReservationId()));
+        assertTrue(reservationRepository.existsById(results.get(1).getData().getReservationId()));
+        assertEquals(2, roomAvailabilityRepository.countConflictingDates(7L, roomA, CHECK_IN, CHECK_IN.plusDays(3)));
+
+        // A resent batch is answered from the idempotency records
+        List<CommandResult<ReservationDto>> resent = hotelService.reserveRooms(batch);
+
+        assertEquals(results.get(0).getData().getReservationId(), resent.get(0).getData().getReservationId());
+        assertEquals(results.get(1).getData().getReservationId(), resent.get(1).getData().getReservationId());
+        assertEquals("ROOM_NOT_AVAILABLE", resent.get(2).getErrorCode());
+        assertEquals(2, roomAvailabilityRepository.countConflictingDates(7L, roomA, CHECK_IN, CHECK_IN.plusDays(3)));
+    }
+
+    @Test
+    void reserveRooms_NightBookedBySingleReservation_OnlyThatCommandFails() {
+        String room = "BATCH-" + UUID.randomUUID();
+        String otherRoom = "BATCH-" + UUID.randomUUID();
+        assertTrue(hotelService.reserveRoom(createCommand(room, CHECK_IN, CHECK_IN.plusDays(1))).isSuccess());
+
+        List<CommandResult<ReservationDto>> results = hotelService.reserveRooms(List.of(
+                createCommand(room, CHECK_IN.minusDays(1), CHECK_IN.plusDays(1)),
+                createCommand(otherRoom, CHECK_IN, CHECK_IN.plusDays(1))));
+
+        assertEquals("ROOM_NOT_AVAILABLE", results.get(0).getErrorCode());
+        assertTrue(results.get(1).isSuccess());
+        assertEquals(0, roomAvailabilityRepository.countConflictingDates(7L, room, CHECK_IN.minusDays(1), CHECK_IN));
+    }
+
+    private static ReserveRoomCommand createCommand(String roomType, LocalDate checkIn, LocalDate checkOut) {
+        ReserveRoomCommand command = new ReserveRoomCommand();
+        command.setSagaId(UUID.randomUUID().toString());
+        command.setIdempotencyKey(UUID.randomUUID().toString());
+        command.setTimestamp(LocalDateTime.now());
+        command.setHotelId(7L);
+        command.setRoomType(roomType);
+        command.setCheckIn(checkIn);
+        command.setCheckOut(checkOut);
+        command.setGuestName("Batch Guest");
+        command.setRoomPrice(new BigDecimal("120.00"));
+        return command;
+    }
+}
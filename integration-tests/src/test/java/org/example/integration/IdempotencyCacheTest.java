@@ -0,0 +1,66 @@
+package org.example.integration;
+
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.common.idempotency.CachedResult;
+import org.example.common.idempotency.IdempotencyCache;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void get_SecondLookup_IsServedFromMemory() {
+        IdempotencyCache cache = new IdempotencyCache("test", 10, Duration.ofMinutes(1), meterRegistry);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            Optional<CachedResult<String>> result = cache.get("key", String.class, key -> {
+                loads.incrementAndGet();
+                return Optional.of(new CachedResult<>("reservation-1"));
+            });
+            assertEquals("reservation-1", result.orElseThrow().value());
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void put_OverCapacity_EvictsLeastRecentlyUsed() {
+        IdempotencyCache cache = new IdempotencyCache("test", 2, Duration.ofMinutes(1), meterRegistry);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.get("a", String.class);
+        cache.put("c", "C");
+
+        assertTrue(cache.get("a", String.class).isPresent());
+        assertTrue(cache.get("b", String.class).isEmpty());
+        assertTrue(cache.get("c", String.class).isPresent());
+        assertEquals(1.0, meterRegistry.get("cache.evictions").tag("cause", "size").counter().count());
+    }
+
+    @Test
+    void get_EntryOlderThanTtl_IsAMiss() {
+        MockClock clock = new MockClock();
+        IdempotencyCache cache = new IdempotencyCache("test", 10, Duration.ofMillis(20), meterRegistry, clock);
+        cache.put("release", null);
+        assertNull(cache.get("release", Void.class).orElseThrow().value());
+
+        clock.add(Duration.ofMillis(19));
+        assertTrue(cache.get("release", Void.class).isPresent());
+
+        clock.add(Duration.ofMillis(1));
+
+        assertTrue(cache.get("release", Void.class).isEmpty());
+        assertEquals(0, cache.size());
+    }
+}
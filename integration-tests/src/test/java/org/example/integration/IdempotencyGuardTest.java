@@ -0,0 +1,188 @@
+package org.example.integration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.common.command.CommandResult;
+import org.example.common.idempotency.CachedResult;
+import org.example.common.idempotency.IdempotencyCache;
+import org.example.common.idempotency.IdempotencyGuard;
+import org.example.common.idempotency.IdempotencyKeys;
+import org.example.common.idempotency.IdempotencyStore;
+import org.example.common.idempotency.RotatingBloomFilter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyGuardTest {
+
+    private static final Object IN_PROGRESS = new Object();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InMemoryStore store = new InMemoryStore();
+    private final IdempotencyGuard guard = createGuard(Duration.ofMillis(500));
+
+    @Test
+    void execute_ConcurrentDuplicates_RunCommandOnce() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<CompletableFuture<CommandResult<String>>> calls = new ArrayList<>();
+        calls.add(CompletableFuture.supplyAsync(() -> guard.execute("key", String.class, () -> {
+            runs.incrementAndGet();
+            running.countDown();
+            await(release);
+            guard.complete("key", "authorization-1");
+            return CommandResult.success("authorization-1");
+        })));
+        running.await();
+        for (int i = 0; i < 3; i++) {
+            calls.add(CompletableFuture.supplyAsync(() -> guard.execute("key", String.class, () -> {
+                runs.incrementAndGet();
+                return CommandResult.success("authorization-2");
+            })));
+        }
+        Thread.sleep(50);
+        release.countDown();
+
+        for (CompletableFuture<CommandResult<String>> call : calls) {
+            assertEquals("authorization-1", call.join().getData());
+        }
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void execute_FailedCommand_ReleasesClaimForRetry() {
+        CommandResult<String> failed = guard.execute("key", String.class,
+                () -> CommandResult.failure("Insufficient funds", "INSUFFICIENT_FUNDS"));
+        assertFalse(failed.isSuccess());
+        assertFalse(store.records.containsKey(IdempotencyKeys.toUuid("key")));
+
+        CommandResult<String> retried = guard.execute("key", String.class, () -> {
+            guard.complete("key", "authorization-1");
+            return CommandResult.success("authorization-1");
+        });
+        assertEquals("authorization-1", retried.getData());
+    }
+
+    @Test
+    void execute_ClaimedByAnotherProcess_WaitsForItsResult() {
+        store.records.put(IdempotencyKeys.toUuid("key"), IN_PROGRESS);
+        CompletableFuture.runAsync(() -> {
+            sleep(100);
+            store.records.put(IdempotencyKeys.toUuid("key"), "authorization-1");
+        });
+
+        CommandResult<String> result = guard.execute("key", String.class,
+                () -> fail("A claimed command must not run twice"));
+
+        assertEquals("authorization-1", result.getData());
+    }
+
+    @Test
+    void execute_ClaimNeverCompleted_AnswersInProgress() {
+        IdempotencyGuard impatientGuard = createGuard(Duration.ofMillis(50));
+        store.records.put(IdempotencyKeys.toUuid("key"), IN_PROGRESS);
+
+        CommandResult<String> result = impatientGuard.execute("key", String.class,
+                () -> fail("A claimed command must not run twice"));
+
+        assertEquals(IdempotencyGuard.REQUEST_IN_PROGRESS, result.getErrorCode());
+    }
+
+    @Test
+    void executeAll_RunsOnlyCommandsStillToRunInOneBatch() {
+        store.records.put(IdempotencyKeys.toUuid("processed"), "authorization-0");
+        store.records.put(IdempotencyKeys.toUuid("claimed"), IN_PROGRESS);
+        List<List<String>> batches = new ArrayList<>();
+
+        List<CommandResult<String>> results = guard.executeAll(
+                List.of("processed", "new", "claimed", "declined", "new"), key -> key, String.class, batch -> {
+                    batches.add(batch);
+                    guard.completeAll(Map.of("new", "authorization-1"));
+                    return List.of(CommandResult.success("authorization-1"),
+                            CommandResult.failure("Insufficient funds", "INSUFFICIENT_FUNDS"));
+                });
+
+        assertEquals(List.of(List.of("new", "declined")), batches);
+        assertEquals("authorization-0", results.get(0).getData());
+        assertEquals("authorization-1", results.get(1).getData());
+        assertEquals(IdempotencyGuard.REQUEST_IN_PROGRESS, results.get(2).getErrorCode());
+        assertEquals("INSUFFICIENT_FUNDS", results.get(3).getErrorCode());
+        assertEquals("authorization-1", results.get(4).getData());
+        // The declined command may run again, the claim held elsewhere is left alone
+        assertFalse(store.records.containsKey(IdempotencyKeys.toUuid("declined")));
+        assertSame(IN_PROGRESS, store.records.get(IdempotencyKeys.toUuid("claimed")));
+    }
+
+    @Test
+    void executeAll_FailedBatch_ReleasesItsClaims() {
+        assertThrows(IllegalStateException.class, () -> guard.executeAll(List.of("a", "b"), key -> key,
+                String.class, batch -> {
+                    throw new IllegalStateException("connection lost");
+                }));
+
+        assertTrue(store.records.isEmpty());
+    }
+
+    private IdempotencyGuard createGuard(Duration claimWait) {
+        IdempotencyCache cache = new IdempotencyCache("test", 100, Duration.ofMinutes(1), meterRegistry);
+        RotatingBloomFilter keyFilter = new RotatingBloomFilter("test", 100, 0.01, Duration.ofHours(1), 2,
+                meterRegistry);
+        return new IdempotencyGuard("test", cache, keyFilter, store, Duration.ofSeconds(30), claimWait,
+                Duration.ofMillis(10), meterRegistry);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class InMemoryStore implements IdempotencyStore {
+
+        private final Map<UUID, Object> records = new ConcurrentHashMap<>();
+
+        @Override
+        public <T> Optional<CachedResult<T>> findCompleted(UUID key, Class<T> type) {
+            Object value = records.get(key);
+            return value == null || value == IN_PROGRESS ? Optional.empty() : Optional.of(new CachedResult<>(type.cast(value)));
+        }
+
+        @Override
+        public boolean claim(UUID key, LocalDateTime staleBefore) {
+            return records.putIfAbsent(key, IN_PROGRESS) == null;
+        }
+
+        @Override
+        public void complete(UUID key, Object result) {
+            records.put(key, result);
+        }
+
+        @Override
+        public void release(UUID key) {
+            records.remove(key, IN_PROGRESS);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.integration;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import org.example.bookingservice.BookingServiceApplication;
+import org.example.bookingservice.entity.SagaInstance;
+import org.example.bookingservice.repository.SagaInstanceRepository;
+import org.example.bookingservice.service.BookingService;
+import org.example.bookingservice.service.SagaOrchestrator;
+import org.example.common.command.CommandResult;
+import org.example.common.dto.BookingRequest;
+import org.example.common.dto.BookingResponse;
+import org.example.common.dto.PaymentAuthorizationDto;
+import org.example.common.dto.ReservationDto;
+import org.example.common.enumerations.SagaState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(classes = BookingServiceApplication.class)
+public class IdempotencyKeyReuseIT {
+
+    private static final WireMockServer hotelService = new WireMockServer(8081);
+    private static final WireMockServer paymentService = new WireMockServer(8082);
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private SagaOrchestrator sagaOrchestrator;
+
+    @Autowired
+    private SagaInstanceRepository sagaRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("services.hotel.url", () -> "http://localhost:8081");
+        registry.add("services.payment.url", () -> "http://localhost:8082");
+    }
+
+    @BeforeEach
+    void setup() {
+        hotelService.start();
+        paymentService.start();
+        hotelService.resetAll();
+        paymentService.resetAll();
+    }
+
+    @AfterEach
+    void teardown() {
+        hotelService.stop();
+        paymentService.stop();
+    }
+
+    /*
+     * The first reservation attempt fails without a definite answer. The retry has to send the key of the
+     * first attempt, otherwise hotel-service cannot tell it apart from a new reservation.
+     */
+    @Test
+    void retrySaga_ReservationOutcomeUnknown_RetryReusesPersistedKey() throws Exception {
+        hotelService.stubFor(post(urlEqualTo("/api/hotel/reserve"))
+                .inScenario("flaky-reservation").whenScenarioStateIs(STARTED).willSetStateTo("recovered")
+                .willReturn(aResponse().withStatus(503)));
+        hotelService.stubFor(post(urlEqualTo("/api/hotel/reserve"))
+                .inScenario("flaky-reservation").whenScenarioStateIs("recovered")
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(mockHotelReservationResponse())));
+        paymentService.stubFor(post(urlEqualTo("/api/payment/authorize"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(mockPaymentAuthorizationResponse())));
+
+        BookingResponse response = bookingService.createBooking(createValidBookingRequest());
+        SagaInstance failed = sagaRepository.findById(response.getSagaId()).orElseThrow();
+        String reserveKey = failed.idempotencyKeyFor("reserve-room");
+
+        sagaOrchestrator.retrySaga(response.getSagaId());
+
+        SagaInstance saga = sagaRepository.findById(response.getSagaId()).orElseThrow();
+        assertEquals(SagaState.BOOKING_COMPLETED, saga.getState());
+        assertEquals(reserveKey, saga.idempotencyKeyFor("reserve-room"));
+
+        List<LoggedRequest> reservations = hotelService.findAll(postRequestedFor(urlEqualTo("/api/hotel/reserve")));
+        assertEquals(2, reservations.size());
+        assertEquals(reserveKey, idempotencyKey(reservations.get(0)));
+        assertEquals(reserveKey, idempotencyKey(reservations.get(1)));
+    }
+
+    private String idempotencyKey(LoggedRequest request) throws JsonProcessingException {
+        return objectMapper.readTree(request.getBodyAsString()).get("idempotencyKey").asText();
+    }
+
+    private String mockHotelReservationResponse() throws JsonProcessingException {
+        ReservationDto reservationDto = new ReservationDto();
+        reservationDto.setReservationId("hotel-reservation-123");
+        reservationDto.setHotelId(1L);
+        reservationDto.setRoomType("STANDARD");
+        return objectMapper.writeValueAsString(CommandResult.success(reservationDto));
+    }
+
+    private String mockPaymentAuthorizationResponse() throws JsonProcessingException {
+        PaymentAuthorizationDto paymentDto = new PaymentAuthorizationDto();
+        paymentDto.setAuthorizationId("auth-456");
+        paymentDto.setStatus("AUTHORIZED");
+        return objectMapper.writeValueAsString(CommandResult.success(paymentDto));
+    }
+
+    private BookingRequest createValidBookingRequest() {
+        BookingRequest request = new BookingRequest();
+        request.setHotelId(1L);
+        request.setRoomType("STANDARD");
+        request.setCheckIn(LocalDate.now().plusDays(1));
+        request.setCheckOut(LocalDate.now().plusDays(3));
+        request.setGuestName("John Doe");
+        request.setRoomPrice(new BigDecimal("199.99"));
+        request.setCardNumber("4111111111111111");
+        request.setCardHolderName("John Doe");
+        request.setExpiryMonth("12");
+        request.setExpiryYear("2025");
+        request.setCvv("123");
+        return request;
+    }
+}
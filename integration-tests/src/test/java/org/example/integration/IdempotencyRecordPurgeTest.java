@@ -0,0 +1,57 @@
+package org.example.integration;
+
+import org.example.common.idempotency.IdempotencyKeys;
+import org.example.common.idempotency.IdempotencyStatus;
+import org.example.hotelservice.HotelServiceApplication;
+import org.example.hotelservice.entity.IdempotencyRecord;
+import org.example.hotelservice.repository.IdempotencyRepository;
+import org.example.hotelservice.service.IdempotencyRecordPurger;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(classes = HotelServiceApplication.class)
+@TestPropertySource(properties = {
+        "idempotency.retention.window=24h",
+        "idempotency.retention.batch-size=2"
+})
+public class IdempotencyRecordPurgeTest {
+
+    @Autowired
+    private IdempotencyRepository idempotencyRepository;
+
+    @Autowired
+    private IdempotencyRecordPurger idempotencyRecordPurger;
+
+    @Test
+    void purgeExpiredRecords_RemovesOnlyBucketsOlderThanRetention() {
+        // Given - five expired records spread over two buckets, and one recent record
+        for (int i = 0; i < 5; i++) {
+            storeRecord("purge-expired-" + i, LocalDateTime.now().minusDays(2).minusHours(i % 2));
+        }
+        storeRecord("purge-recent", LocalDateTime.now().minusHours(1));
+
+        // When
+        idempotencyRecordPurger.purgeExpiredRecords();
+
+        // Then
+        for (int i = 0; i < 5; i++) {
+            assertFalse(idempotencyRepository.existsById(IdempotencyKeys.toUuid("purge-expired-" + i)));
+        }
+        assertTrue(idempotencyRepository.existsById(IdempotencyKeys.toUuid("purge-recent")));
+    }
+
+    private void storeRecord(String key, LocalDateTime processedAt) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setIdempotencyKey(IdempotencyKeys.toUuid(key));
+        record.setStatus(IdempotencyStatus.COMPLETED);
+                record.setProcessedAt(processedAt);
+        idempotencyRepository.save(record);
+    }
+}
@@ -3,23 +3,37 @@ package org.example.integration;
 import org.example.common.command.CommandResult;
 import org.example.common.command.ReserveRoomCommand;
 import org.example.common.dto.ReservationDto;
+import org.example.common.idempotency.IdempotencyKeys;
+import org.example.common.idempotency.IdempotencyStatus;
 import org.example.hotelservice.HotelServiceApplication;
 import org.example.hotelservice.entity.IdempotencyRecord;
 import org.example.hotelservice.repository.IdempotencyRepository;
+import org.example.hotelservice.repository.ReservationRepository;
 import org.example.hotelservice.service.HotelService;
+import org.example.hotelservice.service.IdempotencyRecordStore;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
 
 @SpringBootTest(classes = HotelServiceApplication.class)
 @TestPropertySource(properties = {
@@ -34,6 +48,12 @@ public class IdempotencyTest {
     @Autowired
     private IdempotencyRepository idempotencyRepository;
 
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @MockitoSpyBean
+    private IdempotencyRecordStore idempotencyRecordStore;
+
     /**
      * Tests that executing the same ReserveRoomCommand twice with the same idempotency key
      * will return the cached result, ensuring idempotency is implemented correctly.
@@ -60,7 +80,7 @@ public class IdempotencyTest {
         String reservationId1 = result1.getData().getReservationId();
 
         // Verify idempotency record exists
-        Optional<IdempotencyRecord> record = idempotencyRepository.findById(command.getIdempotencyKey());
+        Optional<IdempotencyRecord> record = idempotencyRepository.findById(IdempotencyKeys.toUuid(command.getIdempotencyKey()));
         assertTrue(record.isPresent());
 
         // When - Execute same command again
@@ -72,6 +92,68 @@ public class IdempotencyTest {
         assertEquals(reservationId1, result2.getData().getReservationId());
     }
 
+    @Test
+    void reserveRoomCommand_ConcurrentDuplicates_ReserveOnce() {
+        // Given - a different room type, so the reservation does not collide with the other test
+        ReserveRoomCommand command = createReserveRoomCommand();
+        command.setIdempotencyKey("test-saga-456-reserve-room-001");
+        command.setRoomType("DELUXE");
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When - the same command arrives eight times at once
+        List<CompletableFuture<CommandResult<ReservationDto>>> calls = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            calls.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return hotelService.reserveRoom(command);
+            }));
+        }
+        start.countDown();
+
+        // Then - every duplicate gets the one reservation instead of failing on the room constraint
+        String reservationId = calls.get(0).join().getData().getReservationId();
+        for (CompletableFuture<CommandResult<ReservationDto>> call : calls) {
+            CommandResult<ReservationDto> result = call.join();
+            assertTrue(result.isSuccess());
+            assertEquals(reservationId, result.getData().getReservationId());
+        }
+        assertEquals(IdempotencyStatus.COMPLETED,
+                idempotencyRepository.findById(IdempotencyKeys.toUuid(command.getIdempotencyKey())).orElseThrow().getStatus());
+    }
+
+    @Test
+    void reserveRoomCommand_CompletingKeyFails_RollsBackReservationAndReleasesClaim() {
+        // Given - a room of its own, and a store that fails to complete the key once
+        ReserveRoomCommand command = createReserveRoomCommand();
+        command.setIdempotencyKey("test-saga-789-reserve-room-001");
+        command.setRoomType("SUITE");
+        command.setGuestName("Rollback Guest");
+        doThrow(new IllegalStateException("Idempotency store unavailable")).when(idempotencyRecordStore)
+                .complete(eq(IdempotencyKeys.toUuid(command.getIdempotencyKey())), any());
+
+        // When
+        CommandResult<ReservationDto> failed = hotelService.reserveRoom(command);
+
+        // Then - neither the reservation nor its nights were committed, and the claim was released
+        assertFalse(failed.isSuccess());
+        assertTrue(reservationRepository.findAll().stream()
+                .noneMatch(reservation -> "Rollback Guest".equals(reservation.getGuestName())));
+        assertTrue(idempotencyRepository.findById(IdempotencyKeys.toUuid(command.getIdempotencyKey())).isEmpty());
+
+        // When - the retry finds the room free again
+        doCallRealMethod().when(idempotencyRecordStore).complete(any(), any());
+        CommandResult<ReservationDto> retried = hotelService.reserveRoom(command);
+
+        // Then
+        assertTrue(retried.isSuccess());
+        assertEquals(IdempotencyStatus.COMPLETED,
+                idempotencyRepository.findById(IdempotencyKeys.toUuid(command.getIdempotencyKey())).orElseThrow().getStatus());
+    }
+
     private ReserveRoomCommand createReserveRoomCommand() {
         ReserveRoomCommand command = new ReserveRoomCommand();
         command.setSagaId("test-saga-123");
@@ -0,0 +1,225 @@
+package org.example.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import org.example.bookingservice.BookingServiceApplication;
+import org.example.bookingservice.entity.OutboxMessage;
+import org.example.bookingservice.entity.SagaInstance;
+import org.example.bookingservice.enumeration.OutboxStatus;
+import org.example.bookingservice.repository.OutboxMessageRepository;
+import org.example.bookingservice.repository.SagaInstanceRepository;
+import org.example.bookingservice.saga.SagaDefinition;
+import org.example.bookingservice.saga.SagaEngine;
+import org.example.bookingservice.service.BookingService;
+import org.example.bookingservice.service.SagaOrchestrator;
+import org.example.common.command.CommandResult;
+import org.example.common.dto.BookingRequest;
+import org.example.common.dto.BookingResponse;
+import org.example.common.dto.PaymentAuthorizationDto;
+import org.example.common.dto.ReservationDto;
+import org.example.common.enumerations.SagaState;
+import org.example.common.messaging.CommandEnvelope;
+import org.example.common.messaging.CommandReply;
+import org.example.common.messaging.CommandTypes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs bookings with saga.transport=outbox. The services' inboxes are stubbed, their replies are handed to the
+ * orchestrator the way the reply endpoint does.
+ */
+@SpringBootTest(classes = BookingServiceApplication.class)
+@DirtiesContext
+public class OutboxTransportIT {
+
+    private static final WireMockServer hotelService = new WireMockServer(8081);
+    private static final WireMockServer paymentService = new WireMockServer(8082);
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private SagaOrchestrator sagaOrchestrator;
+
+    @Autowired
+    private SagaEngine sagaEngine;
+
+    @Autowired
+    private SagaDefinition<BookingRequest> bookingSaga;
+
+    @Autowired
+    private SagaInstanceRepository sagaRepository;
+
+    @Autowired
+    private OutboxMessageRepository outboxRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("services.hotel.url", () -> "http://localhost:8081");
+        registry.add("services.payment.url", () -> "http://localhost:8082");
+        registry.add("saga.transport", () -> "outbox");
+        registry.add("saga.outbox.relay-interval", () -> "50");
+        registry.add("saga.outbox.retry-delay", () -> "100ms");
+    }
+
+    @BeforeEach
+    void setup() {
+        hotelService.start();
+        paymentService.start();
+        hotelService.resetAll();
+        paymentService.resetAll();
+        hotelService.stubFor(post(urlEqualTo("/api/hotel/inbox")).willReturn(aResponse().withStatus(202)));
+        paymentService.stubFor(post(urlEqualTo("/api/payment/inbox")).willReturn(aResponse().withStatus(202)));
+    }
+
+    @AfterEach
+    void teardown() {
+        hotelService.stop();
+        paymentService.stop();
+    }
+
+    @Test
+    void booking_OutboxTransport_CompletesFromReplies() throws Exception {
+        BookingResponse response = bookingService.createBooking(createValidBookingRequest());
+        String sagaId = response.getSagaId();
+
+        // The reservation is queued with the saga's first write and relayed to the hotel inbox
+        SagaInstance saga = sagaRepository.findById(sagaId).orElseThrow();
+        assertEquals(SagaState.STARTED, saga.getState());
+        String reserveKey = saga.idempotencyKeyFor(CommandTypes.RESERVE_ROOM);
+        CommandEnvelope reserve = awaitDelivery(hotelService, "/api/hotel/inbox", sagaId);
+        assertEquals(reserveKey, reserve.getMessageId());
+        assertEquals(CommandTypes.RESERVE_ROOM, reserve.getCommandType());
+        assertEquals("John Doe", reserve.getCommand().get("guestName").asText());
+        await().untilAsserted(() ->
+                assertEquals(OutboxStatus.SENT, outboxRepository.findById(reserveKey).orElseThrow().getStatus()));
+
+        ReservationDto reservation = new ReservationDto();
+        reservation.setReservationId("hotel-reservation-123");
+        sagaOrchestrator.handleReply(reply(reserve, CommandResult.success(reservation)));
+
+        // The reservation is recorded and the payment is queued in the same write
+        saga = sagaRepository.findById(sagaId).orElseThrow();
+        assertEquals(SagaState.ROOM_RESERVED, saga.getState());
+        assertEquals("hotel-reservation-123", saga.getReservationId());
+        CommandEnvelope authorize = awaitDelivery(paymentService, "/api/payment/inbox", sagaId);
+        assertEquals(saga.idempotencyKeyFor(CommandTypes.AUTHORIZE_PAYMENT), authorize.getMessageId());
+
+        PaymentAuthorizationDto authorization = new PaymentAuthorizationDto();
+        authorization.setAuthorizationId("auth-456");
+        authorization.setStatus("AUTHORIZED");
+        CommandReply authorized = reply(authorize, CommandResult.success(authorization));
+        sagaOrchestrator.handleReply(authorized);
+        // A redelivered reply finds the saga moved on
+        sagaOrchestrator.handleReply(authorized);
+
+        saga = sagaRepository.findById(sagaId).orElseThrow();
+        assertEquals(SagaState.BOOKING_COMPLETED, saga.getState());
+        assertEquals("auth-456", saga.getAuthorizationId());
+        assertEquals(1, deliveries(paymentService, "/api/payment/inbox", sagaId).size());
+    }
+
+    @Test
+    void reply_SettledByConcurrentReply_StaleResumeLeavesSagaAlone() throws Exception {
+        BookingResponse response = bookingService.createBooking(createValidBookingRequest());
+        String sagaId = response.getSagaId();
+        CommandEnvelope reserve = awaitDelivery(hotelService, "/api/hotel/inbox", sagaId);
+
+        // A second reply handler loaded the saga before the first one settled the stage
+        SagaInstance stale = sagaRepository.findById(sagaId).orElseThrow();
+        ReservationDto reservation = new ReservationDto();
+        reservation.setReservationId("hotel-reservation-789");
+        sagaOrchestrator.handleReply(reply(reserve, CommandResult.success(reservation)));
+
+        sagaEngine.resume(bookingSaga, stale);
+
+        // The losing handler neither fails nor schedules a retry from its stale copy
+        SagaInstance saga = sagaRepository.findById(sagaId).orElseThrow();
+        assertEquals(SagaState.ROOM_RESERVED, saga.getState());
+        assertEquals(0, saga.getRetryCount());
+        assertNull(saga.getNextRetryAt());
+    }
+
+    @Test
+    void hotelServiceDown_BookingReturnsAndCommandStaysQueued() {
+        hotelService.stop();
+
+        long start = System.currentTimeMillis();
+        BookingResponse response = bookingService.createBooking(createValidBookingRequest());
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertTrue(elapsed < 2000, "Booking took " + elapsed + " ms");
+        SagaInstance saga = sagaRepository.findById(response.getSagaId()).orElseThrow();
+        assertEquals(SagaState.STARTED, saga.getState());
+
+        String reserveKey = saga.idempotencyKeyFor(CommandTypes.RESERVE_ROOM);
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> {
+            OutboxMessage message = outboxRepository.findById(reserveKey).orElseThrow();
+            assertEquals(OutboxStatus.PENDING, message.getStatus());
+            assertTrue(message.getAttempts() >= 2);
+        });
+    }
+
+    // Commands queued by other tests' sagas may still be relayed, so deliveries are matched by saga
+    private CommandEnvelope awaitDelivery(WireMockServer server, String path, String sagaId) {
+        return await().atMost(Duration.ofSeconds(10)).until(() -> deliveries(server, path, sagaId).stream()
+                .findFirst().orElse(null), Objects::nonNull);
+    }
+
+    private List<CommandEnvelope> deliveries(WireMockServer server, String path, String sagaId) throws Exception {
+        List<CommandEnvelope> envelopes = new ArrayList<>();
+        for (LoggedRequest request : server.findAll(postRequestedFor(urlEqualTo(path)))) {
+            CommandEnvelope envelope = objectMapper.readValue(request.getBodyAsString(), CommandEnvelope.class);
+            if (envelope.getSagaId().equals(sagaId)) {
+                envelopes.add(envelope);
+            }
+        }
+        return envelopes;
+    }
+
+    private CommandReply reply(CommandEnvelope envelope, CommandResult<?> result) {
+        return new CommandReply(envelope.getMessageId(), envelope.getSagaId(), envelope.getCommandType(),
+                new CommandResult<>(result.isSuccess(), objectMapper.valueToTree(result.getData()),
+                        result.getErrorMessage(), result.getErrorCode()));
+    }
+
+    private BookingRequest createValidBookingRequest() {
+        BookingRequest request = new BookingRequest();
+        request.setHotelId(1L);
+        request.setRoomType("STANDARD");
+        request.setCheckIn(LocalDate.now().plusDays(1));
+        request.setCheckOut(LocalDate.now().plusDays(3));
+        request.setGuestName("John Doe");
+        request.setRoomPrice(new BigDecimal("199.99"));
+        request.setCardNumber("4111111111111111");
+        request.setCardHolderName("John Doe");
+        request.setExpiryMonth("12");
+        request.setExpiryYear("2025");
+        request.setCvv("123");
+        return request;
+    }
+}
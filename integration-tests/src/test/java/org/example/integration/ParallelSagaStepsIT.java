@@ -0,0 +1,243 @@
+package org.example.integration;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.bookingservice.BookingServiceApplication;
+import org.example.bookingservice.entity.SagaInstance;
+import org.example.bookingservice.repository.SagaInstanceRepository;
+import org.example.bookingservice.resilience.RetryBudgets;
+import org.example.bookingservice.service.BookingService;
+import org.example.bookingservice.service.SagaOrchestrator;
+import org.example.common.command.CommandResult;
+import org.example.common.dto.BookingRequest;
+import org.example.common.dto.BookingResponse;
+import org.example.common.dto.PaymentAuthorizationDto;
+import org.example.common.dto.ReservationDto;
+import org.example.common.enumerations.SagaState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(classes = BookingServiceApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class ParallelSagaStepsIT {
+
+    private static final int DOWNSTREAM_DELAY_MS = 1000;
+
+    private static final WireMockServer hotelService = new WireMockServer(8081);
+    private static final WireMockServer paymentService = new WireMockServer(8082);
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private SagaInstanceRepository sagaRepository;
+
+    @Autowired
+    private SagaOrchestrator sagaOrchestrator;
+
+    @Autowired
+    private RetryBudgets retryBudgets;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("services.hotel.url", () -> "http://localhost:8081");
+        registry.add("services.payment.url", () -> "http://localhost:8082");
+        registry.add("saga.execution.parallel-steps", () -> "true");
+        // One retry per downstream and no refill, so spent tokens stay spent
+        registry.add("saga.retry.budget.capacity", () -> "1");
+        registry.add("saga.retry.budget.ratio", () -> "0");
+        registry.add("saga.retry.budget.min-per-second", () -> "0");
+        registry.add("saga.retry.budget.max-deferrals", () -> "1");
+    }
+
+    @BeforeEach
+    void setup() {
+        hotelService.start();
+        paymentService.start();
+        hotelService.resetAll();
+        paymentService.resetAll();
+    }
+
+    @AfterEach
+    void teardown() {
+        hotelService.stop();
+        paymentService.stop();
+    }
+
+    /*
+     * Both downstream calls are sent at the same time, so the booking takes one round-trip instead of two.
+     */
+    @Test
+    void createBooking_ParallelSteps_CompletesInSingleRoundTrip() throws Exception {
+        hotelService.stubFor(post(urlEqualTo("/api/hotel/reserve"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(DOWNSTREAM_DELAY_MS)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(mockHotelReservationResponse())));
+
+        paymentService.stubFor(post(urlEqualTo("/api/payment/authorize"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(DOWNSTREAM_DELAY_MS)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(mockPaymentAuthorizationResponse())));
+
+        long start = System.currentTimeMillis();
+        BookingResponse response = bookingService.createBooking(createValidBookingRequest());
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertTrue(elapsed < 2 * DOWNSTREAM_DELAY_MS, "parallel steps took " + elapsed + " ms");
+
+        SagaInstance saga = sagaRepository.findById(response.getSagaId()).orElseThrow();
+        assertEquals(SagaState.BOOKING_COMPLETED, saga.getState());
+        assertEquals("hotel-reservation-123", saga.getReservationId());
+        assertEquals("auth-456", saga.getAuthorizationId());
+    }
+
+    @Test
+    void createBooking_ParallelStepsPaymentFails_ReservedRoomIsReleased() throws Exception {
+        hotelService.stubFor(post(urlEqualTo("/api/hotel/reserve"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(mockHotelReservationResponse())));
+
+        hotelService.stubFor(post(urlEqualTo("/api/hotel/release"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(new ObjectMapper().writeValueAsString(CommandResult.success(null)))));
+
+        paymentService.stubFor(post(urlEqualTo("/api/payment/authorize"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(new ObjectMapper().writeValueAsString(
+                                CommandResult.failure("Simulated payment service failure", "PAYMENT_SERVICE_ERROR")))));
+
+        BookingResponse response = bookingService.createBooking(createValidBookingRequest());
+
+        SagaInstance saga = sagaRepository.findById(response.getSagaId()).orElseThrow();
+        assertEquals(SagaState.BOOKING_CANCELLED, saga.getState());
+        assertNull(saga.getAuthorizationId());
+        hotelService.verify(postRequestedFor(urlEqualTo("/api/hotel/release"))
+                .withRequestBody(containing("hotel-reservation-123")));
+    }
+
+    @Test
+    void retrySaga_OneDownstreamOutOfRetryBudget_OtherDownstreamKeepsItsToken() throws Exception {
+        hotelService.stubFor(post(urlEqualTo("/api/hotel/reserve")).willReturn(aResponse().withStatus(503)));
+        paymentService.stubFor(post(urlEqualTo("/api/payment/authorize")).willReturn(aResponse().withStatus(503)));
+        String sagaId = bookingService.createBooking(createValidBookingRequest()).getSagaId();
+        assertEquals(1, sagaRepository.findById(sagaId).orElseThrow().getRetryCount());
+
+        assertTrue(retryBudgets.tryAcquireRetry("payment-service"));
+        sagaOrchestrator.retrySaga(sagaId);
+
+        // The stage was deferred without being sent, and the hotel token it took was given back
+        assertEquals(1.0, availableRetryTokens("hotel-service"), 0.0001);
+        assertEquals(0.0, availableRetryTokens("payment-service"), 0.0001);
+        hotelService.verify(1, postRequestedFor(urlEqualTo("/api/hotel/reserve")));
+    }
+
+    @Test
+    void retrySaga_DeferredUpToTheCap_RetryIsSpentInstead() throws Exception {
+        hotelService.stubFor(post(urlEqualTo("/api/hotel/reserve")).willReturn(aResponse().withStatus(503)));
+        paymentService.stubFor(post(urlEqualTo("/api/payment/authorize")).willReturn(aResponse().withStatus(503)));
+        String sagaId = bookingService.createBooking(createValidBookingRequest()).getSagaId();
+        while (retryBudgets.tryAcquireRetry("payment-service")) {
+            // Spend whatever the payment budget has left
+        }
+        double deferred = deferredRetries("deferred");
+        double spent = deferredRetries("spent");
+
+        try {
+            sagaOrchestrator.retrySaga(sagaId);
+            SagaInstance saga = sagaRepository.findById(sagaId).orElseThrow();
+            assertEquals(1, saga.getRetryCount(), "a deferred retry is given back");
+            assertEquals(1, saga.getDeferredRetries());
+
+            sagaOrchestrator.retrySaga(sagaId);
+        } finally {
+            // The budgets outlive the test, the other tests start with a full payment budget
+            retryBudgets.refundRetry("payment-service");
+        }
+        SagaInstance saga = sagaRepository.findById(sagaId).orElseThrow();
+        assertEquals(2, saga.getRetryCount(), "past the cap the retry is used up");
+        assertEquals(1, saga.getDeferredRetries());
+
+        assertEquals(deferred + 1, deferredRetries("deferred"));
+        assertEquals(spent + 1, deferredRetries("spent"));
+        hotelService.verify(1, postRequestedFor(urlEqualTo("/api/hotel/reserve")));
+    }
+
+    private double deferredRetries(String outcome) {
+        Counter counter = meterRegistry.find("saga.retry.deferred").tag("outcome", outcome).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private double availableRetryTokens(String downstream) {
+        return meterRegistry.get("saga.retry.budget.available").tag("downstream", downstream).gauge().value();
+    }
+
+    private String mockHotelReservationResponse() throws JsonProcessingException {
+        ReservationDto reservationDto = new ReservationDto();
+        reservationDto.setReservationId("hotel-reservation-123");
+        reservationDto.setHotelId(1L);
+        reservationDto.setRoomType("STANDARD");
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        return objectMapper.writeValueAsString(CommandResult.success(reservationDto));
+    }
+
+    private String mockPaymentAuthorizationResponse() throws JsonProcessingException {
+        PaymentAuthorizationDto paymentDto = new PaymentAuthorizationDto();
+        paymentDto.setAuthorizationId("auth-456");
+        paymentDto.setStatus("AUTHORIZED");
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        return objectMapper.writeValueAsString(CommandResult.success(paymentDto));
+    }
+
+    private BookingRequest createValidBookingRequest() {
+        BookingRequest request = new BookingRequest();
+        request.setHotelId(1L);
+        request.setRoomType("STANDARD");
+        request.setCheckIn(LocalDate.now().plusDays(1));
+        request.setCheckOut(LocalDate.now().plusDays(3));
+        request.setGuestName("John Doe");
+        request.setRoomPrice(new BigDecimal("199.99"));
+        request.setCardNumber("4111111111111111");
+        request.setCardHolderName("John Doe");
+        request.setExpiryMonth("12");
+        request.setExpiryYear("2025");
+        request.setCvv("123");
+        return request;
+    }
+}
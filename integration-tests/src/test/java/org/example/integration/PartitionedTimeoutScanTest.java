@@ -0,0 +1,196 @@
+package org.example.integration;
+
+import org.example.bookingservice.BookingServiceApplication;
+import org.example.bookingservice.entity.OrchestratorNode;
+import org.example.bookingservice.entity.SagaInstance;
+import org.example.bookingservice.entity.SagaPayload;
+import org.example.bookingservice.repository.OrchestratorNodeRepository;
+import org.example.bookingservice.repository.SagaInstanceRepository;
+import org.example.bookingservice.repository.SagaPayloadRepository;
+import org.example.bookingservice.service.SagaStateStore;
+import org.example.bookingservice.service.SagaTimeoutService;
+import org.example.bookingservice.timer.SagaDeadlineExpiredEvent;
+import org.example.bookingservice.timer.SagaDeadlineScheduler;
+import org.example.common.codec.PayloadCodec;
+import org.example.common.dto.BookingRequest;
+import org.example.common.enumerations.SagaState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(classes = BookingServiceApplication.class, properties = {
+        "saga.node.partitioning-enabled=true",
+        "saga.node.id=node-a",
+        "saga.timeout.scan-page-size=2",
+        // the test drives the sweep itself
+        "saga.timeout.scan-initial-delay=3600000",
+        // retry pollers of cached contexts sharing the database would claim the sagas of the other partition
+        "spring.datasource.url=jdbc:h2:mem:booking-partitioned;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+@DirtiesContext
+public class PartitionedTimeoutScanTest {
+
+    @Autowired
+    private SagaInstanceRepository sagaRepository;
+
+    @Autowired
+    private OrchestratorNodeRepository nodeRepository;
+
+    @Autowired
+    private SagaTimeoutService timeoutService;
+
+    @Autowired
+    private SagaPayloadRepository payloadRepository;
+
+    @Autowired
+    private PayloadCodec payloadCodec;
+
+    @Autowired
+    private SagaDeadlineScheduler deadlineScheduler;
+
+    @Autowired
+    private SagaStateStore sagaStateStore;
+
+    @AfterEach
+    void cleanup() {
+        sagaRepository.deleteAll();
+        payloadRepository.deleteAll();
+        nodeRepository.deleteById("node-b");
+    }
+
+    @Test
+    void handleTimeouts_MoreExpiredSagasThanPageSize_AllPagesAreSwept() {
+        List<String> sagaIds = createExpiredSagas(7);
+
+        timeoutService.handleTimeouts();
+
+        for (String sagaId : sagaIds) {
+            assertTrue(sagaRepository.findById(sagaId).orElseThrow().getRetryCount() > 0,
+                    "saga " + sagaId + " was not swept");
+        }
+    }
+
+    @Test
+    void handleTimeouts_SecondLiveNode_OnlyOwnPartitionIsSwept() {
+        nodeRepository.save(new OrchestratorNode("node-b", LocalDateTime.now()));
+        List<String> sagaIds = createExpiredSagas(10);
+
+        timeoutService.handleTimeouts();
+
+        // node-a sorts first among the two live nodes, so it owns the even buckets
+        for (String sagaId : sagaIds) {
+            SagaInstance saga = sagaRepository.findById(sagaId).orElseThrow();
+            boolean ownBucket = saga.getPartitionBucket() % 2 == 0;
+            assertEquals(ownBucket, saga.getRetryCount() > 0, "unexpected sweep result for saga " + sagaId);
+        }
+    }
+
+    @Test
+    void loadActiveSagas_SecondLiveNode_OnlyOwnPartitionIsLoaded() {
+        nodeRepository.save(new OrchestratorNode("node-b", LocalDateTime.now()));
+        // Not expired yet, the wheel would fire and drop expired deadlines right away
+        List<String> sagaIds = createSagas(10, LocalDateTime.now().plusMinutes(10));
+        // Saga ids are reused between tests, earlier retries may have left deadlines behind
+        sagaIds.forEach(deadlineScheduler::cancel);
+
+        deadlineScheduler.loadActiveSagas();
+
+        for (String sagaId : sagaIds) {
+            boolean ownBucket = sagaRepository.findById(sagaId).orElseThrow().getPartitionBucket() % 2 == 0;
+            assertEquals(ownBucket, deadlineScheduler.isTracked(sagaId), "unexpected deadline of saga " + sagaId);
+        }
+    }
+
+    @Test
+    void onDeadlineExpired_SecondLiveNode_OnlyOwnPartitionIsRetried() {
+        nodeRepository.save(new OrchestratorNode("node-b", LocalDateTime.now()));
+        List<String> sagaIds = createExpiredSagas(10);
+
+        sagaIds.forEach(sagaId -> timeoutService.onDeadlineExpired(new SagaDeadlineExpiredEvent(sagaId)));
+
+        for (String sagaId : sagaIds) {
+            SagaInstance saga = sagaRepository.findById(sagaId).orElseThrow();
+            boolean ownBucket = saga.getPartitionBucket() % 2 == 0;
+            assertEquals(ownBucket, saga.getRetryCount() > 0, "unexpected retry of saga " + sagaId);
+        }
+    }
+
+    // Two nodes that both read the saga as expired: the second claim finds the deadline renewed by the first
+    @Test
+    void claimRetry_ClaimedMeanwhile_IsNoLongerDue() {
+        String sagaId = createExpiredSagas(1).get(0);
+
+        assertTrue(sagaStateStore.claimRetry(sagaId, SagaInstance::isExpired).orElseThrow().retryAllowed());
+        assertTrue(sagaStateStore.claimRetry(sagaId, SagaInstance::isExpired).isEmpty());
+        assertEquals(1, sagaRepository.findById(sagaId).orElseThrow().getRetryCount());
+    }
+
+    @Test
+    void retryFailedSagas_SecondLiveNode_OnlyOwnPartitionIsRetried() {
+        nodeRepository.save(new OrchestratorNode("node-b", LocalDateTime.now()));
+        List<String> sagaIds = createDueRetries(10);
+
+        timeoutService.retryFailedSagas();
+
+        for (String sagaId : sagaIds) {
+            SagaInstance saga = sagaRepository.findById(sagaId).orElseThrow();
+            boolean ownBucket = saga.getPartitionBucket() % 2 == 0;
+            assertEquals(ownBucket, saga.getRetryCount() > 0, "unexpected retry of saga " + sagaId);
+        }
+    }
+
+    // Two pollers that both read the retry as due: the second claim finds it moved out by the first
+    @Test
+    void claimRetry_RetryClaimedMeanwhile_IsNoLongerDue() {
+        String sagaId = createDueRetries(1).get(0);
+        LocalDateTime now = LocalDateTime.now();
+        Predicate<SagaInstance> due = saga -> saga.getNextRetryAt() != null && !saga.getNextRetryAt().isAfter(now);
+
+        assertTrue(sagaStateStore.claimRetry(sagaId, due).orElseThrow().retryAllowed());
+        assertTrue(sagaStateStore.claimRetry(sagaId, due).isEmpty());
+        SagaInstance saga = sagaRepository.findById(sagaId).orElseThrow();
+        assertEquals(1, saga.getRetryCount());
+        assertTrue(saga.getNextRetryAt().isAfter(now));
+    }
+
+    private List<String> createDueRetries(int count) {
+        List<String> sagaIds = createSagas(count, LocalDateTime.now().plusMinutes(10));
+        for (String sagaId : sagaIds) {
+            SagaInstance saga = sagaRepository.findById(sagaId).orElseThrow();
+            saga.setState(SagaState.PAYMENT_AUTHORIZATION_FAILED);
+            saga.setNextRetryAt(LocalDateTime.now().minusSeconds(1));
+            sagaRepository.save(saga);
+        }
+        return sagaIds;
+    }
+
+    private List<String> createExpiredSagas(int count) {
+        return createSagas(count, LocalDateTime.now().minusMinutes(1));
+    }
+
+    private List<String> createSagas(int count, LocalDateTime expiresAt) {
+        List<String> sagaIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            SagaInstance saga = new SagaInstance();
+            saga.setSagaId("expired-saga-" + i);
+            payloadRepository.save(new SagaPayload(saga.getSagaId(), payloadCodec.encode(new BookingRequest())));
+            saga.setState(SagaState.STARTED);
+            saga = sagaRepository.save(saga);
+
+            saga.setExpiresAt(expiresAt);
+            sagaRepository.save(saga);
+            sagaIds.add(saga.getSagaId());
+        }
+        return sagaIds;
+    }
+}
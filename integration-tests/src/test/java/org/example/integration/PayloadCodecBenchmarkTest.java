@@ -0,0 +1,112 @@
+package org.example.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.example.common.codec.JacksonPayloadCodec;
+import org.example.common.codec.PayloadCodec;
+import org.example.common.codec.PayloadFormat;
+import org.example.common.dto.BookingRequest;
+import org.example.common.dto.ReservationDto;
+import org.example.common.idempotency.IdempotencyKeys;
+import org.example.common.utils.IdempotencyUtils;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the stored size of saga data and idempotency results in the text JSON they used to be stored as
+ * against the binary codecs.
+ */
+public class PayloadCodecBenchmarkTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    void binaryFormats_AreSmallerThanTextJson() throws Exception {
+        BookingRequest request = createBookingRequest();
+        ReservationDto reservation = createReservation();
+        int jsonRequestSize = objectMapper.writeValueAsString(request).getBytes(StandardCharsets.UTF_8).length;
+        int jsonReservationSize = objectMapper.writeValueAsString(reservation).getBytes(StandardCharsets.UTF_8).length;
+
+        for (PayloadFormat format : PayloadFormat.values()) {
+            for (boolean compress : new boolean[]{false, true}) {
+                PayloadCodec codec = new JacksonPayloadCodec(objectMapper, format, compress, 0);
+                byte[] encodedRequest = codec.encode(request);
+                byte[] encodedReservation = codec.encode(reservation);
+                assertEquals(request, codec.decode(encodedRequest, BookingRequest.class));
+                assertEquals(reservation, codec.decode(encodedReservation, ReservationDto.class));
+
+                if (format != PayloadFormat.JSON && !compress) {
+                    assertTrue(encodedRequest.length < jsonRequestSize);
+                    assertTrue(encodedReservation.length < jsonReservationSize);
+                }
+            }
+        }
+    }
+
+    @Test
+    void generatedIdempotencyKey_IsStoredAsIs() {
+        String key = IdempotencyUtils.newKey();
+
+        assertEquals(UUID.fromString(key), IdempotencyKeys.toUuid(key));
+    }
+
+    @Test
+    void otherIdempotencyKey_IsHashedToSixteenBytes() {
+        String legacyKey = UUID.randomUUID() + "-reserve-room-" + UUID.randomUUID();
+        UUID hashed = IdempotencyKeys.toUuid(legacyKey);
+
+        assertEquals(hashed, IdempotencyKeys.toUuid(legacyKey));
+        assertNotEquals(hashed, IdempotencyKeys.toUuid(legacyKey + "-retry"));
+        assertEquals(3, hashed.version(), "name based, never equal to a generated key");
+        assertTrue(legacyKey.getBytes(StandardCharsets.UTF_8).length > 16);
+    }
+
+    @Test
+    void decode_ValueWrittenInAnotherFormat_StillDecodes() {
+        BookingRequest request = createBookingRequest();
+        byte[] cbor = new JacksonPayloadCodec(objectMapper, PayloadFormat.CBOR, true, 0).encode(request);
+
+        PayloadCodec smile = new JacksonPayloadCodec(objectMapper, PayloadFormat.SMILE, false, 512);
+        assertEquals(request, smile.decode(cbor, BookingRequest.class));
+    }
+
+    private BookingRequest createBookingRequest() {
+        BookingRequest request = new BookingRequest();
+        request.setHotelId(1L);
+        request.setRoomType("DELUXE");
+        request.setCheckIn(LocalDate.now().plusDays(10));
+        request.setCheckOut(LocalDate.now().plusDays(12));
+        request.setGuestName("John Doe");
+        request.setRoomPrice(new BigDecimal("299.99"));
+        request.setCardNumber("4111111111111111");
+        request.setCardHolderName("John Doe");
+        request.setExpiryMonth("12");
+        request.setExpiryYear("2030");
+        request.setCvv("123");
+        return request;
+    }
+
+    private ReservationDto createReservation() {
+        ReservationDto reservation = new ReservationDto();
+        reservation.setReservationId(UUID.randomUUID().toString());
+        reservation.setHotelId(1L);
+        reservation.setRoomType("DELUXE");
+        reservation.setCheckIn(LocalDate.now().plusDays(10));
+        reservation.setCheckOut(LocalDate.now().plusDays(12));
+        reservation.setGuestName("John Doe");
+        reservation.setRoomPrice(new BigDecimal("299.99"));
+        reservation.setStatus("CONFIRMED");
+        reservation.setCreatedAt(LocalDateTime.now());
+        return reservation;
+    }
+}
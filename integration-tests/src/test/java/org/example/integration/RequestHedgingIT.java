@@ -0,0 +1,157 @@
+package org.example.integration;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.bookingservice.BookingServiceApplication;
+import org.example.bookingservice.entity.SagaInstance;
+import org.example.bookingservice.repository.SagaInstanceRepository;
+import org.example.bookingservice.service.BookingService;
+import org.example.common.command.CommandResult;
+import org.example.common.dto.BookingRequest;
+import org.example.common.dto.BookingResponse;
+import org.example.common.dto.PaymentAuthorizationDto;
+import org.example.common.dto.ReservationDto;
+import org.example.common.enumerations.SagaState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(classes = BookingServiceApplication.class)
+public class RequestHedgingIT {
+
+    private static final int SLOW_RESPONSE_MS = 3000;
+
+    private static final WireMockServer hotelService = new WireMockServer(8081);
+    private static final WireMockServer paymentService = new WireMockServer(8082);
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private SagaInstanceRepository sagaRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("services.hotel.url", () -> "http://localhost:8081");
+        registry.add("services.payment.url", () -> "http://localhost:8082");
+        registry.add("saga.hedge.enabled", () -> "true");
+        registry.add("saga.hedge.min-samples", () -> "1");
+    }
+
+    @BeforeEach
+    void setup() {
+        hotelService.start();
+        paymentService.start();
+        hotelService.resetAll();
+        paymentService.resetAll();
+    }
+
+    @AfterEach
+    void teardown() {
+        hotelService.stop();
+        paymentService.stop();
+    }
+
+    /*
+     * The first booking only teaches the hedger how fast hotel-service usually is. The second booking's
+     * reservation hangs, so a copy of the same command is sent and its fast answer completes the booking.
+     */
+    @Test
+    void createBooking_ReservationSlowerThanUsual_HedgedCopyWinsWithSameIdempotencyKey() throws Exception {
+        hotelService.stubFor(post(urlEqualTo("/api/hotel/reserve"))
+                .inScenario("slow-reservation").whenScenarioStateIs(STARTED).willSetStateTo("slow")
+                .willReturn(reservationResponse()));
+        hotelService.stubFor(post(urlEqualTo("/api/hotel/reserve"))
+                .inScenario("slow-reservation").whenScenarioStateIs("slow").willSetStateTo("fast")
+                .willReturn(reservationResponse().withFixedDelay(SLOW_RESPONSE_MS)));
+        hotelService.stubFor(post(urlEqualTo("/api/hotel/reserve"))
+                .inScenario("slow-reservation").whenScenarioStateIs("fast")
+                .willReturn(reservationResponse()));
+        paymentService.stubFor(post(urlEqualTo("/api/payment/authorize"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(mockPaymentAuthorizationResponse())));
+
+        bookingService.createBooking(createValidBookingRequest());
+
+        long start = System.currentTimeMillis();
+        BookingResponse response = bookingService.createBooking(createValidBookingRequest());
+        long elapsed = System.currentTimeMillis() - start;
+
+        SagaInstance saga = sagaRepository.findById(response.getSagaId()).orElseThrow();
+        assertEquals(SagaState.BOOKING_COMPLETED, saga.getState());
+        assertTrue(elapsed < SLOW_RESPONSE_MS, "hedged booking took " + elapsed + " ms");
+
+        List<LoggedRequest> reservations = hotelService.findAll(postRequestedFor(urlEqualTo("/api/hotel/reserve")));
+        assertEquals(3, reservations.size());
+        assertEquals(idempotencyKey(reservations.get(1)), idempotencyKey(reservations.get(2)));
+        assertEquals(1.0, meterRegistry.get("saga.hedge.wins").tag("command", "reserve-room").counter().count());
+    }
+
+    private String idempotencyKey(LoggedRequest request) throws JsonProcessingException {
+        return objectMapper.readTree(request.getBodyAsString()).get("idempotencyKey").asText();
+    }
+
+    private ResponseDefinitionBuilder reservationResponse()
+            throws JsonProcessingException {
+        ReservationDto reservationDto = new ReservationDto();
+        reservationDto.setReservationId("hotel-reservation-123");
+        reservationDto.setHotelId(1L);
+        reservationDto.setRoomType("STANDARD");
+
+        return aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "application/json")
+                .withBody(objectMapper.writeValueAsString(CommandResult.success(reservationDto)));
+    }
+
+    private String mockPaymentAuthorizationResponse() throws JsonProcessingException {
+        PaymentAuthorizationDto paymentDto = new PaymentAuthorizationDto();
+        paymentDto.setAuthorizationId("auth-456");
+        paymentDto.setStatus("AUTHORIZED");
+        return objectMapper.writeValueAsString(CommandResult.success(paymentDto));
+    }
+
+    private BookingRequest createValidBookingRequest() {
+        BookingRequest request = new BookingRequest();
+        request.setHotelId(1L);
+        request.setRoomType("STANDARD");
+        request.setCheckIn(LocalDate.now().plusDays(1));
+        request.setCheckOut(LocalDate.now().plusDays(3));
+        request.setGuestName("John Doe");
+        request.setRoomPrice(new BigDecimal("199.99"));
+        request.setCardNumber("4111111111111111");
+        request.setCardHolderName("John Doe");
+        request.setExpiryMonth("12");
+        request.setExpiryYear("2025");
+        request.setCvv("123");
+        return request;
+    }
+}
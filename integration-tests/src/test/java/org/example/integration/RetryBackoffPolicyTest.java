@@ -0,0 +1,34 @@
+package org.example.integration;
+
+import org.example.bookingservice.service.RetryBackoffPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RetryBackoffPolicyTest {
+
+    private final RetryBackoffPolicy policy =
+            new RetryBackoffPolicy(Duration.ofSeconds(5), 2.0, Duration.ofMinutes(1));
+
+    @Test
+    void delayFor_GrowsExponentiallyWithinJitterBounds() {
+        for (int retry = 0; retry < 3; retry++) {
+            long ceiling = 5_000L << retry;
+            for (int sample = 0; sample < 100; sample++) {
+                long delay = policy.delayFor(retry).toMillis();
+                assertTrue(delay >= ceiling / 2 && delay <= ceiling,
+                        "retry " + retry + " got " + delay + " ms");
+            }
+        }
+    }
+
+    @Test
+    void delayFor_ManyRetries_IsCappedAtMaxDelay() {
+        for (int sample = 0; sample < 100; sample++) {
+            long delay = policy.delayFor(30).toMillis();
+            assertTrue(delay >= 30_000 && delay <= 60_000, "got " + delay + " ms");
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.integration;
+
+import io.micrometer.core.instrument.MockClock;
+import org.example.bookingservice.resilience.RetryBudget;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RetryBudgetTest {
+
+    @Test
+    void tryAcquireRetry_BudgetSpent_DeniesUntilFirstAttemptsEarnTokens() {
+        RetryBudget budget = new RetryBudget(0.5, 0, 2);
+
+        assertTrue(budget.tryAcquireRetry());
+        assertTrue(budget.tryAcquireRetry());
+        assertFalse(budget.tryAcquireRetry());
+
+        budget.recordAttempt();
+        assertFalse(budget.tryAcquireRetry(), "half a token is not enough for a retry");
+        budget.recordAttempt();
+        assertTrue(budget.tryAcquireRetry());
+    }
+
+    @Test
+    void recordAttempt_NeverBanksMoreThanCapacity() {
+        RetryBudget budget = new RetryBudget(1.0, 0, 3);
+
+        for (int i = 0; i < 100; i++) {
+            budget.recordAttempt();
+        }
+
+        assertEquals(3.0, budget.availableTokens(), 0.0001);
+    }
+
+    @Test
+    void refundRetry_RetryNotSent_TokenIsAvailableAgain() {
+        RetryBudget budget = new RetryBudget(0.5, 0, 2);
+        assertTrue(budget.tryAcquireRetry());
+        assertTrue(budget.tryAcquireRetry());
+
+        budget.refundRetry();
+
+        assertEquals(1.0, budget.availableTokens(), 0.0001);
+        assertTrue(budget.tryAcquireRetry());
+        assertFalse(budget.tryAcquireRetry());
+    }
+
+    @Test
+    void availableTokens_TimePasses_RefillsUpToCapacity() {
+        MockClock clock = new MockClock();
+        RetryBudget budget = new RetryBudget(0, 2, 3, clock);
+        assertTrue(budget.tryAcquireRetry());
+        assertTrue(budget.tryAcquireRetry());
+        assertTrue(budget.tryAcquireRetry());
+        assertFalse(budget.tryAcquireRetry());
+
+        clock.add(Duration.ofMillis(500));
+        assertEquals(1.0, budget.availableTokens(), 0.0001);
+        assertTrue(budget.tryAcquireRetry());
+
+        clock.add(Duration.ofMinutes(1));
+        assertEquals(3.0, budget.availableTokens(), 0.0001, "a quiet period banks no more than capacity");
+    }
+}
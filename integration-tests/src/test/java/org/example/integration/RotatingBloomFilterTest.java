@@ -0,0 +1,70 @@
+package org.example.integration;
+
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.common.idempotency.RotatingBloomFilter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RotatingBloomFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void mightContain_BeforeReady_AnswersMaybe() {
+        RotatingBloomFilter filter = new RotatingBloomFilter("test", 100, 0.01, Duration.ofHours(1), 2, meterRegistry);
+
+        assertTrue(filter.mightContain("never-stored"));
+
+        filter.markReady();
+        assertFalse(filter.mightContain("never-stored"));
+        assertEquals(1.0, meterRegistry.get("idempotency.bloom.lookups").tag("result", "definite-miss").counter().count());
+    }
+
+    @Test
+    void put_BeyondCapacity_KeepsEveryKeyAndFewFalsePositives() {
+        RotatingBloomFilter filter = new RotatingBloomFilter("test", 100, 0.01, Duration.ofHours(1), 2, meterRegistry);
+        filter.markReady();
+
+        // Twenty times the initial capacity, served by added slices
+        String[] stored = new String[2000];
+        for (int i = 0; i < stored.length; i++) {
+            stored[i] = UUID.randomUUID().toString();
+            filter.put(stored[i]);
+        }
+
+        for (String key : stored) {
+            assertTrue(filter.mightContain(key));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 500, "False positives: " + falsePositives);
+    }
+
+    @Test
+    void put_AfterRotations_ForgetsOldestGeneration() {
+        MockClock clock = new MockClock();
+        RotatingBloomFilter filter = new RotatingBloomFilter("test", 100, 0.01, Duration.ofMillis(20), 2, meterRegistry,
+                clock);
+        filter.markReady();
+
+        filter.put("old");
+        clock.add(Duration.ofMillis(20));
+        filter.put("recent");
+        assertTrue(filter.mightContain("old"));
+
+        clock.add(Duration.ofMillis(20));
+        filter.put("newest");
+        assertFalse(filter.mightContain("old"));
+        assertTrue(filter.mightContain("recent"));
+        assertTrue(filter.mightContain("newest"));
+    }
+}
@@ -4,9 +4,13 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.github.tomakehurst.wiremock.WireMockServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.example.bookingservice.BookingServiceApplication;
 import org.example.bookingservice.entity.SagaInstance;
 import org.example.bookingservice.repository.SagaInstanceRepository;
+import org.example.bookingservice.saga.SagaDefinition;
+import org.example.bookingservice.saga.SagaEngine;
 import org.example.bookingservice.service.BookingService;
 import org.example.common.command.CommandResult;
 import org.example.common.dto.BookingRequest;
@@ -14,20 +18,27 @@ import org.example.common.dto.BookingResponse;
 import org.example.common.dto.PaymentAuthorizationDto;
 import org.example.common.dto.ReservationDto;
 import org.example.common.enumerations.SagaState;
+import org.example.common.messaging.CommandTypes;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.exactly;
 import static com.github.tomakehurst.wiremock.client.WireMock.post;
 import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
@@ -41,6 +52,9 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 @SpringBootTest(classes = BookingServiceApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 public class SagaCompensationIT {
 
+    private static final int COMPENSATION_TIMEOUT_MS = 3000;
+    private static final int COMPENSATION_DELAY_MS = 1000;
+
     // WireMock servers for our two external services
     private static final WireMockServer hotelService = new WireMockServer(8081);
     private static final WireMockServer paymentService = new WireMockServer(8082);
@@ -51,6 +65,19 @@ public class SagaCompensationIT {
     @Autowired
     private SagaInstanceRepository sagaRepository;
 
+    @Autowired
+    private SagaEngine sagaEngine;
+
+    @Autowired
+    private SagaDefinition<BookingRequest> bookingSaga;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("sagaStepExecutor")
+    private ThreadPoolTaskExecutor sagaStepExecutor;
+
     /**
      * This method dynamically sets the properties for the test.
      * It ensures our BookingService points to the WireMock servers
@@ -66,6 +93,7 @@ public class SagaCompensationIT {
         registry.add("payment.simulation.delay=", () -> "100");
         registry.add("hotel.simulation.failure-rate", () -> "0.0");
         registry.add("payment.simulation.failure-rate", () -> "1.0");
+        registry.add("saga.compensation.timeout", () -> COMPENSATION_TIMEOUT_MS + "ms");
     }
 
     /**
@@ -149,6 +177,111 @@ public class SagaCompensationIT {
         assertEquals("Booking cancelled", finalStatus.getMessage());
     }
 
+    @Test
+    void compensate_RoomAndPaymentToUndo_BranchesRunConcurrently() throws JsonProcessingException {
+        stubRelease(COMPENSATION_DELAY_MS);
+        stubCancel(COMPENSATION_DELAY_MS);
+        SagaInstance saga = createSagaToCompensate();
+        long succeeded = branchCount(CommandTypes.RELEASE_ROOM, "success")
+                + branchCount(CommandTypes.CANCEL_PAYMENT, "success");
+
+        long start = System.currentTimeMillis();
+        sagaEngine.compensate(bookingSaga, saga);
+        long elapsed = System.currentTimeMillis() - start;
+
+        // One after the other would take at least twice the delay
+        assertTrue(elapsed < 2L * COMPENSATION_DELAY_MS, "Compensation took " + elapsed + " ms");
+        assertEquals(SagaState.BOOKING_CANCELLED, sagaRepository.findById(saga.getSagaId()).orElseThrow().getState());
+        hotelService.verify(postRequestedFor(urlEqualTo("/api/hotel/release")).withRequestBody(containing(saga.getSagaId())));
+        paymentService.verify(postRequestedFor(urlEqualTo("/api/payment/cancel")).withRequestBody(containing(saga.getSagaId())));
+        assertEquals(succeeded + 2, branchCount(CommandTypes.RELEASE_ROOM, "success")
+                + branchCount(CommandTypes.CANCEL_PAYMENT, "success"));
+    }
+
+    @Test
+    void compensate_BranchExceedsTimeout_CompensationFailsWithoutWaitingForIt() throws JsonProcessingException {
+        stubRelease(0);
+        stubCancel(3 * COMPENSATION_TIMEOUT_MS);
+        SagaInstance saga = createSagaToCompensate();
+        long timedOut = branchCount(CommandTypes.CANCEL_PAYMENT, "failure");
+
+        long start = System.currentTimeMillis();
+        sagaEngine.compensate(bookingSaga, saga);
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertTrue(elapsed < 2L * COMPENSATION_TIMEOUT_MS, "Compensation took " + elapsed + " ms");
+        assertEquals(SagaState.COMPENSATION_FAILED, sagaRepository.findById(saga.getSagaId()).orElseThrow().getState());
+        assertEquals(timedOut + 1, branchCount(CommandTypes.CANCEL_PAYMENT, "failure"));
+    }
+
+    @Test
+    void compensate_StepExecutorSaturated_BranchesFailInsteadOfRunningOnCaller() throws JsonProcessingException {
+        stubRelease(0);
+        stubCancel(0);
+        SagaInstance saga = createSagaToCompensate();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // Every thread and queue slot is taken by a task that waits for the latch
+            while (true) {
+                sagaStepExecutor.execute(() -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+        } catch (TaskRejectedException expected) {
+            // saturated
+        }
+
+        try {
+            sagaEngine.compensate(bookingSaga, saga);
+        } finally {
+            release.countDown();
+        }
+
+        // Failed compensation is retried later, nothing was sent from the saga thread
+        assertEquals(SagaState.COMPENSATION_FAILED, sagaRepository.findById(saga.getSagaId()).orElseThrow().getState());
+        hotelService.verify(exactly(0), postRequestedFor(urlEqualTo("/api/hotel/release")));
+        paymentService.verify(exactly(0), postRequestedFor(urlEqualTo("/api/payment/cancel")));
+    }
+
+    // Both steps succeeded, retries are used up so the retry poller leaves a failed compensation alone
+    private SagaInstance createSagaToCompensate() {
+        SagaInstance saga = new SagaInstance();
+        saga.setSagaId(UUID.randomUUID().toString());
+        saga.setState(SagaState.PAYMENT_AUTHORIZED_ROOM_FAILED);
+        saga.setReservationId("hotel-reservation-" + saga.getSagaId());
+        saga.setAuthorizationId("auth-" + saga.getSagaId());
+        saga.setRetryCount(saga.getMaxRetries());
+        return sagaRepository.save(saga);
+    }
+
+    private void stubRelease(int delayMs) throws JsonProcessingException {
+        hotelService.stubFor(post(urlEqualTo("/api/hotel/release"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(delayMs)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(mockHotelReleaseResponse())));
+    }
+
+    private void stubCancel(int delayMs) throws JsonProcessingException {
+        paymentService.stubFor(post(urlEqualTo("/api/payment/cancel"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(delayMs)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(new ObjectMapper().writeValueAsString(CommandResult.success(null)))));
+    }
+
+    private long branchCount(String branch, String outcome) {
+        Timer timer = meterRegistry.find("saga.compensation.branch").tag("branch", branch).tag("outcome", outcome)
+                .timer();
+        return timer != null ? timer.count() : 0;
+    }
+
     private String mockHotelReservationResponse() throws JsonProcessingException {
         String mockReservationId = "hotel-reservation-123";
 
@@ -0,0 +1,68 @@
+package org.example.integration;
+
+import org.example.bookingservice.BookingServiceApplication;
+import org.example.bookingservice.entity.SagaInstance;
+import org.example.bookingservice.repository.SagaInstanceRepository;
+import org.example.bookingservice.service.SagaOrchestrator;
+import org.example.common.dto.BookingRequest;
+import org.example.common.enumerations.SagaState;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(classes = BookingServiceApplication.class, properties = {
+        "saga.deadline.states.STARTED=1s",
+        // keep the database sweep out of the way, the timing wheel alone has to pick the saga up
+        "saga.timeout.scan-initial-delay=3600000"
+})
+@DirtiesContext
+public class SagaDeadlineIT {
+
+    @Autowired
+    private SagaOrchestrator sagaOrchestrator;
+
+    @Autowired
+    private SagaInstanceRepository sagaRepository;
+
+    @Test
+    void createBookingSaga_NeverRun_IsRetriedWhenStateDeadlinePasses() {
+        LocalDateTime before = LocalDateTime.now();
+        String sagaId = sagaOrchestrator.createBookingSaga(createValidBookingRequest());
+
+        SagaInstance created = sagaRepository.findById(sagaId).orElseThrow();
+        assertEquals(SagaState.STARTED, created.getState());
+        assertTrue(Duration.between(before, created.getExpiresAt()).toMillis() <= 1_500,
+                "STARTED deadline was not taken from saga.deadline.states");
+
+        // Nothing runs the saga, so only its deadline can trigger the retry
+        await().atMost(5, SECONDS).untilAsserted(() ->
+                assertTrue(sagaRepository.findById(sagaId).orElseThrow().getRetryCount() > 0));
+    }
+
+    private BookingRequest createValidBookingRequest() {
+        BookingRequest request = new BookingRequest();
+        request.setHotelId(1L);
+        request.setRoomType("STANDARD");
+        request.setCheckIn(LocalDate.now().plusDays(1));
+        request.setCheckOut(LocalDate.now().plusDays(3));
+        request.setGuestName("John Doe");
+        request.setRoomPrice(new BigDecimal("199.99"));
+        request.setCardNumber("4111111111111111");
+        request.setCardHolderName("John Doe");
+        request.setExpiryMonth("12");
+        request.setExpiryYear("2025");
+        request.setCvv("123");
+        return request;
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.integration;
+
+import org.example.bookingservice.saga.BookingSaga;
+import org.example.bookingservice.saga.SagaDefinition;
+import org.example.bookingservice.saga.SagaStage;
+import org.example.bookingservice.saga.SagaStep;
+import org.example.bookingservice.saga.SagaTransitions;
+import org.example.common.dto.BookingRequest;
+import org.example.common.enumerations.SagaState;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SagaDefinitionTest {
+
+    @Test
+    void bookingSaga_Sequential_ResumesEachStageFromItsStates() {
+        SagaDefinition<BookingRequest> definition = BookingSaga.sequential(null, null, null, null);
+
+        assertEquals(2, definition.stageCount());
+        assertEquals(0, definition.stageIndexFor(SagaState.STARTED));
+        assertEquals(0, definition.stageIndexFor(SagaState.ROOM_RESERVATION_FAILED));
+        assertEquals(1, definition.stageIndexFor(SagaState.ROOM_RESERVED));
+        assertEquals(1, definition.stageIndexFor(SagaState.PAYMENT_AUTHORIZATION_FAILED));
+        assertEquals(-1, definition.stageIndexFor(SagaState.BOOKING_COMPLETED));
+        assertTrue(definition.isCompensationState(SagaState.COMPENSATION_FAILED));
+    }
+
+    @Test
+    void bookingSaga_Parallel_SendsBothStepsInOneStage() {
+        SagaDefinition<BookingRequest> definition = BookingSaga.parallel(null, null, null, null);
+
+        assertEquals(1, definition.stageCount());
+        assertEquals(2, definition.stage(0).steps().size());
+        assertEquals(0, definition.stageIndexFor(SagaState.ROOM_AND_PAYMENT_PENDING));
+        assertTrue(definition.isFailedState(SagaState.ROOM_RESERVED_PAYMENT_FAILED));
+        assertTrue(definition.isFailedState(SagaState.PAYMENT_AUTHORIZED_ROOM_FAILED));
+    }
+
+    @Test
+    void build_StageNeedsUndeclaredTransition_FailsFast() {
+        SagaTransitions transitions = SagaTransitions.builder()
+                .allow(SagaState.STARTED, SagaState.ROOM_RESERVED)
+                .build();
+
+        SagaStep<BookingRequest, Void> step = SagaStep.<BookingRequest, Void>builder()
+                .name("reserve-room")
+                .failedState(SagaState.ROOM_RESERVATION_FAILED)
+                .completed(saga -> false)
+                .build();
+
+        SagaDefinition.Builder<BookingRequest> builder = SagaDefinition.builder("test", BookingRequest.class, transitions)
+                .stage(SagaStage.of(step, SagaState.ROOM_RESERVED))
+                .completedState(SagaState.BOOKING_COMPLETED)
+                .cancelledState(SagaState.BOOKING_CANCELLED);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, builder::build);
+        assertTrue(e.getMessage().contains("STARTED -> ROOM_RESERVATION_FAILED"));
+    }
+}
@@ -0,0 +1,238 @@
+package org.example.integration;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.example.bookingservice.BookingServiceApplication;
+import org.example.bookingservice.entity.SagaInstance;
+import org.example.bookingservice.entity.SagaStateTransition;
+import org.example.bookingservice.repository.SagaInstanceRepository;
+import org.example.bookingservice.repository.SagaStateTransitionRepository;
+import org.example.bookingservice.service.BookingService;
+import org.example.common.command.CommandResult;
+import org.example.common.dto.BookingRequest;
+import org.example.common.dto.PaymentAuthorizationDto;
+import org.example.common.dto.ReservationDto;
+import org.example.common.dto.SagaStateEvent;
+import org.example.common.enumerations.SagaState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Follows bookings through the Server-Sent Events endpoints. The reservation is delayed, so the streams are open
+ * while the sagas are still in STARTED and every later transition is pushed to them.
+ */
+@SpringBootTest(classes = BookingServiceApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@DirtiesContext
+public class SagaEventStreamIT {
+
+    private static final int RESERVATION_DELAY_MS = 500;
+
+    private static final WireMockServer hotelService = new WireMockServer(8081);
+    private static final WireMockServer paymentService = new WireMockServer(8082);
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private SagaInstanceRepository sagaRepository;
+
+    @Autowired
+    private SagaStateTransitionRepository transitionRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("services.hotel.url", () -> "http://localhost:8081");
+        registry.add("services.payment.url", () -> "http://localhost:8082");
+        registry.add("saga.execution.async", () -> "true");
+        registry.add("saga.events.refresh-interval", () -> "200");
+    }
+
+    @BeforeEach
+    void setup() throws Exception {
+        hotelService.start();
+        paymentService.start();
+        hotelService.resetAll();
+        paymentService.resetAll();
+        hotelService.stubFor(post(urlEqualTo("/api/hotel/reserve"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(RESERVATION_DELAY_MS)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(mockHotelReservationResponse())));
+        paymentService.stubFor(post(urlEqualTo("/api/payment/authorize"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(mockPaymentAuthorizationResponse())));
+    }
+
+    @AfterEach
+    void teardown() {
+        hotelService.stop();
+        paymentService.stop();
+    }
+
+    @Test
+    void streamEvents_PushesEveryTransitionAndClosesOnFinalState() throws Exception {
+        String sagaId = bookingService.createBooking(createValidBookingRequest()).getSagaId();
+
+        HttpResponse<Stream<String>> response = openStream("/api/booking/" + sagaId + "/events");
+        assertEquals(200, response.statusCode());
+        // Only returns once the server completed the stream
+        List<SagaStateEvent> events = readEvents(response);
+
+        events.forEach(event -> assertEquals(sagaId, event.getSagaId()));
+        assertStreamedHistory(sagaId, events);
+        assertEquals(SagaState.STARTED, events.get(0).getState());
+    }
+
+    @Test
+    void streamEvents_ManySagas_ClosesOnceAllReachedFinalState() throws Exception {
+        String first = bookingService.createBooking(createValidBookingRequest()).getSagaId();
+        String second = bookingService.createBooking(createValidBookingRequest()).getSagaId();
+
+        HttpResponse<Stream<String>> response =
+                openStream("/api/booking/events?sagaIds=" + first + "," + second + ",unknown-saga");
+        assertEquals(200, response.statusCode());
+        List<SagaStateEvent> events = readEvents(response);
+
+        for (String sagaId : List.of(first, second)) {
+            assertStreamedHistory(sagaId, events.stream().filter(event -> event.getSagaId().equals(sagaId)).toList());
+        }
+        assertTrue(events.stream().noneMatch(event -> event.getSagaId().equals("unknown-saga")));
+    }
+
+    @Test
+    void streamEvents_TransitionCommittedByAnotherNode_IsCaughtUpByRefresh() throws Exception {
+        // Stands in for a saga driven by another node, its transitions are never published on this one
+        SagaInstance saga = new SagaInstance();
+        saga.setSagaId(UUID.randomUUID().toString());
+        saga.setState(SagaState.STARTED);
+        saga = sagaRepository.save(saga);
+
+        HttpResponse<Stream<String>> response = openStream("/api/booking/" + saga.getSagaId() + "/events");
+        assertEquals(200, response.statusCode());
+        saga.setState(SagaState.BOOKING_CANCELLED);
+        sagaRepository.save(saga);
+        List<SagaStateEvent> events = readEvents(response);
+
+        assertEquals(List.of(SagaState.STARTED, SagaState.BOOKING_CANCELLED),
+                events.stream().map(SagaStateEvent::getState).toList());
+    }
+
+    @Test
+    void streamEvents_MoreSagaIdsThanFitTheQueryString_BadRequest() throws Exception {
+        String sagaIds = IntStream.rangeClosed(0, 100).mapToObj(i -> "saga-" + i).collect(Collectors.joining(","));
+
+        assertEquals(400, openStream("/api/booking/events?sagaIds=" + sagaIds).statusCode());
+    }
+
+    @Test
+    void streamEvents_UnknownSaga_NotFound() throws Exception {
+        assertEquals(404, openStream("/api/booking/unknown-saga/events").statusCode());
+    }
+
+    /*
+     * The stream starts with the state the saga was in when it was opened, which may already be a later one,
+     * and then follows the recorded history to its final state without gaps.
+     */
+    private void assertStreamedHistory(String sagaId, List<SagaStateEvent> events) {
+        List<SagaState> history = transitionRepository.findBySagaIdOrderByEnteredAtAscIdAsc(sagaId).stream()
+                .map(SagaStateTransition::getState)
+                .toList();
+        assertFalse(events.isEmpty());
+        assertEquals(SagaState.BOOKING_COMPLETED, history.get(history.size() - 1));
+        assertEquals(history.subList(history.size() - events.size(), history.size()),
+                events.stream().map(SagaStateEvent::getState).toList());
+    }
+
+    private HttpResponse<Stream<String>> openStream(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Accept", "text/event-stream")
+                .timeout(Duration.ofSeconds(20))
+                .GET()
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofLines());
+    }
+
+    private List<SagaStateEvent> readEvents(HttpResponse<Stream<String>> response) throws Exception {
+        List<SagaStateEvent> events = new ArrayList<>();
+        for (String line : response.body().filter(line -> line.startsWith("data:")).toList()) {
+            events.add(objectMapper.readValue(line.substring("data:".length()), SagaStateEvent.class));
+        }
+        return events;
+    }
+
+    private String mockHotelReservationResponse() throws JsonProcessingException {
+        ReservationDto reservationDto = new ReservationDto();
+        reservationDto.setReservationId("hotel-reservation-123");
+        reservationDto.setHotelId(1L);
+        reservationDto.setRoomType("STANDARD");
+        return toJson(CommandResult.success(reservationDto));
+    }
+
+    private String mockPaymentAuthorizationResponse() throws JsonProcessingException {
+        PaymentAuthorizationDto paymentDto = new PaymentAuthorizationDto();
+        paymentDto.setAuthorizationId("auth-456");
+        paymentDto.setStatus("AUTHORIZED");
+        return toJson(CommandResult.success(paymentDto));
+    }
+
+    private static String toJson(Object value) throws JsonProcessingException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        return objectMapper.writeValueAsString(value);
+    }
+
+    private BookingRequest createValidBookingRequest() {
+        BookingRequest request = new BookingRequest();
+        request.setHotelId(1L);
+        request.setRoomType("STANDARD");
+        request.setCheckIn(LocalDate.now().plusDays(1));
+        request.setCheckOut(LocalDate.now().plusDays(3));
+        request.setGuestName("John Doe");
+        request.setRoomPrice(new BigDecimal("199.99"));
+        request.setCardNumber("4111111111111111");
+        request.setCardHolderName("John Doe");
+        request.setExpiryMonth("12");
+        request.setExpiryYear("2025");
+        request.setCvv("123");
+        return request;
+    }
+}
@@ -0,0 +1,86 @@
+package org.example.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.bookingservice.entity.SagaInstance;
+import org.example.bookingservice.entity.SagaPayload;
+import org.example.bookingservice.repository.SagaPayloadRepository;
+import org.example.bookingservice.saga.BookingSaga;
+import org.example.bookingservice.saga.SagaDefinition;
+import org.example.bookingservice.saga.SagaExecutionContexts;
+import org.example.common.codec.JacksonPayloadCodec;
+import org.example.common.codec.PayloadCodec;
+import org.example.common.codec.PayloadFormat;
+import org.example.common.dto.BookingRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SagaExecutionContextsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PayloadCodec payloadCodec = new JacksonPayloadCodec(
+            new ObjectMapper().registerModule(new JavaTimeModule()), PayloadFormat.CBOR, false, 512);
+    private final SagaPayloadRepository payloadRepository = mock(SagaPayloadRepository.class);
+    private final SagaDefinition<BookingRequest> definition = BookingSaga.sequential(null, null, null, null);
+
+    @Test
+    void payloadFor_RegisteredSaga_ReusesRequestWithoutDecoding() {
+        SagaExecutionContexts contexts = new SagaExecutionContexts(payloadCodec, payloadRepository, meterRegistry, 10);
+        BookingRequest request = createRequest("Jane Doe");
+        contexts.register("saga-1", request);
+
+        assertSame(request, contexts.payloadFor(definition, createSaga("saga-1", request)));
+        assertSame(request, contexts.payloadFor(definition, createSaga("saga-1", request)));
+        assertEquals(0.0, meterRegistry.get("saga.payload.decodes").counter().count());
+    }
+
+    @Test
+    void payloadFor_UnknownSaga_LoadsStoredPayloadOnce() {
+        SagaExecutionContexts contexts = new SagaExecutionContexts(payloadCodec, payloadRepository, meterRegistry, 10);
+        SagaInstance saga = createSaga("saga-2", createRequest("John Doe"));
+
+        BookingRequest first = contexts.payloadFor(definition, saga);
+        BookingRequest second = contexts.payloadFor(definition, saga);
+
+        assertEquals("John Doe", first.getGuestName());
+        assertSame(first, second);
+        assertEquals(1.0, meterRegistry.get("saga.payload.decodes").counter().count());
+        verify(payloadRepository, times(1)).findById("saga-2");
+    }
+
+    @Test
+    void register_OverCapacity_EvictsLeastRecentlyUsed() {
+        SagaExecutionContexts contexts = new SagaExecutionContexts(payloadCodec, payloadRepository, meterRegistry, 2);
+        contexts.register("saga-1", createRequest("a"));
+        contexts.register("saga-2", createRequest("b"));
+        contexts.register("saga-3", createRequest("c"));
+
+        assertEquals(2, contexts.size());
+        contexts.payloadFor(definition, createSaga("saga-1", createRequest("a")));
+        assertEquals(1.0, meterRegistry.get("saga.payload.decodes").counter().count());
+    }
+
+    private SagaInstance createSaga(String sagaId, BookingRequest request) {
+        SagaInstance saga = new SagaInstance();
+        saga.setSagaId(sagaId);
+        when(payloadRepository.findById(sagaId))
+                .thenReturn(Optional.of(new SagaPayload(sagaId, payloadCodec.encode(request))));
+        return saga;
+    }
+
+    private BookingRequest createRequest(String guestName) {
+        BookingRequest request = new BookingRequest();
+        request.setHotelId(1L);
+        request.setRoomType("STANDARD");
+        request.setGuestName(guestName);
+        return request;
+    }
+}
@@ -19,6 +19,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 
@@ -46,6 +49,9 @@ public class SagaOrchestrationHappyPathIT {
     @Autowired
     private SagaInstanceRepository sagaRepository;
 
+    @Autowired
+    private TestRestTemplate restTemplate;
+
     @DynamicPropertySource
     static void configureProperties(DynamicPropertyRegistry registry) {
         registry.add("services.hotel.url", () -> "http://localhost:8081");
@@ -119,6 +125,28 @@ public class SagaOrchestrationHappyPathIT {
         assertEquals("Booking completed successfully", finalStatus.getMessage());
     }
 
+    // The saga already ran when a synchronous booking is answered, so there is nothing left to accept
+    @Test
+    void postBooking_SyncExecution_RespondsOk() throws Exception {
+        hotelService.stubFor(post(urlEqualTo("/api/hotel/reserve"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(mockHotelReservationResponse())));
+        paymentService.stubFor(post(urlEqualTo("/api/payment/authorize"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(mockPaymentAuthorizationResponse())));
+
+        ResponseEntity<BookingResponse> response = restTemplate.postForEntity("/api/booking",
+                createValidBookingRequest(), BookingResponse.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        SagaInstance saga = sagaRepository.findById(response.getBody().getSagaId()).orElseThrow();
+        assertEquals(SagaState.BOOKING_COMPLETED, saga.getState());
+    }
+
     private String mockHotelReservationResponse() throws JsonProcessingException {
         String mockReservationId = "hotel-reservation-123";
 
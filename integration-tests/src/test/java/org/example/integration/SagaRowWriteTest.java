@@ -0,0 +1,259 @@
+package org.example.integration;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.example.bookingservice.BookingServiceApplication;
+import org.example.bookingservice.entity.SagaInstance;
+import org.example.bookingservice.entity.SagaStateTransition;
+import org.example.bookingservice.repository.SagaInstanceRepository;
+import org.example.bookingservice.repository.SagaStateTransitionRepository;
+import org.example.bookingservice.repository.SagaPayloadRepository;
+import org.example.bookingservice.service.BookingService;
+import org.example.common.command.CommandResult;
+import org.example.common.dto.BookingRequest;
+import org.example.common.dto.BookingResponse;
+import org.example.common.dto.PaymentAuthorizationDto;
+import org.example.common.dto.ReservationDto;
+import org.example.common.enumerations.SagaState;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.example.common.enumerations.SagaState.BOOKING_CANCELLED;
+import static org.example.common.enumerations.SagaState.BOOKING_COMPLETED;
+import static org.example.common.enumerations.SagaState.COMPENSATING;
+import static org.example.common.enumerations.SagaState.COMPENSATION_COMPLETED;
+import static org.example.common.enumerations.SagaState.PAYMENT_AUTHORIZATION_FAILED;
+import static org.example.common.enumerations.SagaState.PAYMENT_AUTHORIZED;
+import static org.example.common.enumerations.SagaState.ROOM_RESERVED;
+import static org.example.common.enumerations.SagaState.STARTED;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Records the SQL of one booking and compares the bytes its saga row updates write against rewriting the whole
+ * row, payload included, on every update. Column sizes are taken from the values the saga ends up with.
+ * Transitions are written once per step boundary, so the number of saga row writes is asserted as well.
+ */
+@SpringBootTest(classes = BookingServiceApplication.class)
+@DirtiesContext
+public class SagaRowWriteTest {
+
+    private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    private static final WireMockServer hotelService = new WireMockServer(8081);
+    private static final WireMockServer paymentService = new WireMockServer(8082);
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private SagaInstanceRepository sagaRepository;
+
+    @Autowired
+    private SagaStateTransitionRepository transitionRepository;
+
+    @Autowired
+    private SagaPayloadRepository payloadRepository;
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("services.hotel.url", () -> "http://localhost:8081");
+        registry.add("services.payment.url", () -> "http://localhost:8082");
+        registry.add("spring.jpa.properties.hibernate.session_factory.statement_inspector",
+                RecordingStatementInspector.class::getName);
+    }
+
+    @BeforeEach
+    void setup() {
+        hotelService.start();
+        paymentService.start();
+        hotelService.resetAll();
+        paymentService.resetAll();
+    }
+
+    @AfterEach
+    void teardown() {
+        hotelService.stop();
+        paymentService.stop();
+    }
+
+    @Test
+    void booking_UpdatesOnlyChangedColumnsAndWritesPayloadOnce() throws Exception {
+        hotelService.stubFor(post(urlEqualTo("/api/hotel/reserve"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(mockHotelReservationResponse())));
+        paymentService.stubFor(post(urlEqualTo("/api/payment/authorize"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(mockPaymentAuthorizationResponse())));
+
+        STATEMENTS.clear();
+        BookingResponse response = bookingService.createBooking(createValidBookingRequest());
+        List<String> statements = List.copyOf(STATEMENTS);
+
+        SagaInstance saga = sagaRepository.findById(response.getSagaId()).orElseThrow();
+        assertEquals(SagaState.BOOKING_COMPLETED, saga.getState());
+        assertEquals(List.of(STARTED, ROOM_RESERVED, PAYMENT_AUTHORIZED, BOOKING_COMPLETED), states(saga));
+        int payloadBytes = payloadRepository.findById(saga.getSagaId()).orElseThrow().getData().length;
+
+        assertEquals(1, count(statements, "insert into saga_payloads"));
+        assertEquals(0, count(statements, "update saga_payloads"));
+
+        List<List<String>> updates = statements.stream()
+                .filter(sql -> sql.startsWith("update saga_instances"))
+                .map(SagaRowWriteTest::updatedColumns)
+                .toList();
+        // The insert carries the reservation key, the reservation is written with the payment key
+        assertEquals(1, count(statements, "insert into saga_instances"));
+        assertEquals(2, updates.size());
+        // The history is appended to its own table, never rewritten with the saga row
+        assertTrue(count(statements, "insert into saga_state_transitions") > 0);
+        assertEquals(0, count(statements, "update saga_state_transitions"));
+
+        List<String> allColumns = List.of("state", "reservation_id", "authorization_id", "idempotency_keys",
+                "retry_count", "max_retries", "created_at", "updated_at", "expires_at", "partition_bucket",
+                "next_retry_at", "version");
+        long narrowBytes = 0;
+        for (List<String> columns : updates) {
+            assertFalse(columns.contains("created_at"), "immutable column rewritten: " + columns);
+            assertFalse(columns.contains("partition_bucket"), "immutable column rewritten: " + columns);
+            assertTrue(columns.size() < allColumns.size(), "whole row rewritten: " + columns);
+            narrowBytes += columns.stream().mapToInt(column -> columnBytes(saga, column)).sum();
+        }
+        long rowBytes = allColumns.stream().mapToInt(column -> columnBytes(saga, column)).sum();
+        long fullRowBytes = updates.size() * (rowBytes + payloadBytes);
+
+        assertTrue(payloadBytes > 0);
+        assertTrue(narrowBytes < fullRowBytes / 2,
+                "updates wrote " + narrowBytes + " bytes, rewriting the whole row would write " + fullRowBytes);
+    }
+
+    @Test
+    void declinedPayment_WritesFailureAndCompensationKeysTogether() throws Exception {
+        hotelService.stubFor(post(urlEqualTo("/api/hotel/reserve"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(mockHotelReservationResponse())));
+        hotelService.stubFor(post(urlEqualTo("/api/hotel/release"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(new ObjectMapper().writeValueAsString(CommandResult.success(null)))));
+        paymentService.stubFor(post(urlEqualTo("/api/payment/authorize"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(new ObjectMapper().writeValueAsString(
+                                CommandResult.failure("Card declined", "PAYMENT_DECLINED")))));
+
+        STATEMENTS.clear();
+        BookingResponse response = bookingService.createBooking(createValidBookingRequest());
+        List<String> statements = List.copyOf(STATEMENTS);
+
+        SagaInstance saga = sagaRepository.findById(response.getSagaId()).orElseThrow();
+        assertEquals(List.of(STARTED, ROOM_RESERVED, PAYMENT_AUTHORIZATION_FAILED, COMPENSATING,
+                COMPENSATION_COMPLETED, BOOKING_CANCELLED), states(saga));
+        // Reservation with the payment key, the failure with the compensation keys, the compensation outcome
+        assertEquals(3, count(statements, "update saga_instances"));
+    }
+
+    private List<SagaState> states(SagaInstance saga) {
+        return transitionRepository.findBySagaIdOrderByEnteredAtAscIdAsc(saga.getSagaId()).stream()
+                .map(SagaStateTransition::getState)
+                .toList();
+    }
+
+    private static long count(List<String> statements, String prefix) {
+        return statements.stream().filter(sql -> sql.startsWith(prefix)).count();
+    }
+
+    private static List<String> updatedColumns(String sql) {
+        String assignments = sql.substring(sql.indexOf(" set ") + 5, sql.indexOf(" where "));
+        return Arrays.stream(assignments.split(","))
+                .map(assignment -> assignment.substring(0, assignment.indexOf('=')).trim())
+                .toList();
+    }
+
+    private static int columnBytes(SagaInstance saga, String column) {
+        return switch (column) {
+            case "state" -> saga.getState().name().length();
+            case "reservation_id" -> length(saga.getReservationId());
+            case "authorization_id" -> length(saga.getAuthorizationId());
+            case "idempotency_keys" -> saga.getIdempotencyKeys().toString().getBytes(StandardCharsets.UTF_8).length;
+            case "retry_count", "max_retries", "partition_bucket" -> Integer.BYTES;
+            default -> Long.BYTES; // timestamps and the version
+        };
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private String mockHotelReservationResponse() throws JsonProcessingException {
+        ReservationDto reservationDto = new ReservationDto();
+        reservationDto.setReservationId("hotel-reservation-123");
+        reservationDto.setHotelId(1L);
+        reservationDto.setRoomType("STANDARD");
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        return objectMapper.writeValueAsString(CommandResult.success(reservationDto));
+    }
+
+    private String mockPaymentAuthorizationResponse() throws JsonProcessingException {
+        PaymentAuthorizationDto paymentDto = new PaymentAuthorizationDto();
+        paymentDto.setAuthorizationId("auth-456");
+        paymentDto.setStatus("AUTHORIZED");
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        return objectMapper.writeValueAsString(CommandResult.success(paymentDto));
+    }
+
+    private BookingRequest createValidBookingRequest() {
+        BookingRequest request = new BookingRequest();
+        request.setHotelId(1L);
+        request.setRoomType("STANDARD");
+        request.setCheckIn(LocalDate.now().plusDays(1));
+        request.setCheckOut(LocalDate.now().plusDays(3));
+        request.setGuestName("John Doe");
+        request.setRoomPrice(new BigDecimal("199.99"));
+        request.setCardNumber("4111111111111111");
+        request.setCardHolderName("John Doe");
+        request.setExpiryMonth("12");
+        request.setExpiryYear("2025");
+        request.setCvv("123");
+        return request;
+    }
+
+    public static class RecordingStatementInspector implements StatementInspector {
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql.toLowerCase(Locale.ROOT).trim());
+            return sql;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 
 import java.time.LocalDateTime;
 
+import static org.example.bookingservice.saga.BookingSaga.TRANSITIONS;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class SagaStateTransitionTest {
@@ -17,39 +18,73 @@ public class SagaStateTransitionTest {
         
         // Test valid transitions from STARTED
         saga.setState(SagaState.STARTED);
-        assertTrue(saga.canTransitionTo(SagaState.ROOM_RESERVED));
-        assertTrue(saga.canTransitionTo(SagaState.ROOM_RESERVATION_FAILED));
-        assertTrue(saga.canTransitionTo(SagaState.BOOKING_CANCELLED));
-        assertFalse(saga.canTransitionTo(SagaState.PAYMENT_AUTHORIZED));
+        assertTrue(TRANSITIONS.allows(saga.getState(), SagaState.ROOM_RESERVED));
+        assertTrue(TRANSITIONS.allows(saga.getState(), SagaState.ROOM_RESERVATION_FAILED));
+        assertTrue(TRANSITIONS.allows(saga.getState(), SagaState.BOOKING_CANCELLED));
+        assertFalse(TRANSITIONS.allows(saga.getState(), SagaState.PAYMENT_AUTHORIZED));
         
         // Test valid transitions from ROOM_RESERVED
         saga.setState(SagaState.ROOM_RESERVED);
-        assertTrue(saga.canTransitionTo(SagaState.PAYMENT_AUTHORIZED));
-        assertTrue(saga.canTransitionTo(SagaState.PAYMENT_AUTHORIZATION_FAILED));
-        assertTrue(saga.canTransitionTo(SagaState.COMPENSATING));
-        assertFalse(saga.canTransitionTo(SagaState.BOOKING_COMPLETED));
+        assertTrue(TRANSITIONS.allows(saga.getState(), SagaState.PAYMENT_AUTHORIZED));
+        assertTrue(TRANSITIONS.allows(saga.getState(), SagaState.PAYMENT_AUTHORIZATION_FAILED));
+        assertTrue(TRANSITIONS.allows(saga.getState(), SagaState.COMPENSATING));
+        assertFalse(TRANSITIONS.allows(saga.getState(), SagaState.BOOKING_COMPLETED));
         
         // Test valid transitions from PAYMENT_AUTHORIZED
         saga.setState(SagaState.PAYMENT_AUTHORIZED);
-        assertTrue(saga.canTransitionTo(SagaState.BOOKING_COMPLETED));
-        assertFalse(saga.canTransitionTo(SagaState.COMPENSATING));
+        assertTrue(TRANSITIONS.allows(saga.getState(), SagaState.BOOKING_COMPLETED));
+        assertFalse(TRANSITIONS.allows(saga.getState(), SagaState.COMPENSATING));
         
         // Test valid transitions from failure states
         saga.setState(SagaState.ROOM_RESERVATION_FAILED);
-        assertTrue(saga.canTransitionTo(SagaState.BOOKING_CANCELLED));
-        assertFalse(saga.canTransitionTo(SagaState.COMPENSATING));
+        assertTrue(TRANSITIONS.allows(saga.getState(), SagaState.BOOKING_CANCELLED));
+        assertFalse(TRANSITIONS.allows(saga.getState(), SagaState.COMPENSATING));
         
         saga.setState(SagaState.PAYMENT_AUTHORIZATION_FAILED);
-        assertTrue(saga.canTransitionTo(SagaState.BOOKING_CANCELLED));
-        assertFalse(saga.canTransitionTo(SagaState.ROOM_RESERVED));
+        assertTrue(TRANSITIONS.allows(saga.getState(), SagaState.BOOKING_CANCELLED));
+        assertTrue(TRANSITIONS.allows(saga.getState(), SagaState.COMPENSATING));
+        assertFalse(TRANSITIONS.allows(saga.getState(), SagaState.ROOM_RESERVED));
         
         // Test compensation transitions
         saga.setState(SagaState.COMPENSATING);
-        assertTrue(saga.canTransitionTo(SagaState.COMPENSATION_COMPLETED));
-        assertTrue(saga.canTransitionTo(SagaState.COMPENSATION_FAILED));
-        assertFalse(saga.canTransitionTo(SagaState.BOOKING_COMPLETED));
+        assertTrue(TRANSITIONS.allows(saga.getState(), SagaState.COMPENSATION_COMPLETED));
+        assertTrue(TRANSITIONS.allows(saga.getState(), SagaState.COMPENSATION_FAILED));
+        assertFalse(TRANSITIONS.allows(saga.getState(), SagaState.BOOKING_COMPLETED));
+
+        saga.setState(SagaState.COMPENSATION_COMPLETED);
+        assertTrue(TRANSITIONS.allows(saga.getState(), SagaState.BOOKING_CANCELLED));
+
+        // A failed compensation can be retried
+        saga.setState(SagaState.COMPENSATION_FAILED);
+        assertTrue(TRANSITIONS.allows(saga.getState(), SagaState.COMPENSATING));
     }
     
+    @Test
+    void sagaInstance_ParallelStepTransitions_TransitionsCorrectly() {
+        SagaInstance saga = new SagaInstance();
+
+        // Parallel mode leaves STARTED for the combined pending state
+        saga.setState(SagaState.STARTED);
+        assertTrue(TRANSITIONS.allows(saga.getState(), SagaState.ROOM_AND_PAYMENT_PENDING));
+
+        saga.setState(SagaState.ROOM_AND_PAYMENT_PENDING);
+        assertTrue(TRANSITIONS.allows(saga.getState(), SagaState.PAYMENT_AUTHORIZED));
+        assertTrue(TRANSITIONS.allows(saga.getState(), SagaState.ROOM_RESERVED_PAYMENT_FAILED));
+        assertTrue(TRANSITIONS.allows(saga.getState(), SagaState.PAYMENT_AUTHORIZED_ROOM_FAILED));
+        assertTrue(TRANSITIONS.allows(saga.getState(), SagaState.ROOM_RESERVATION_FAILED));
+        assertTrue(TRANSITIONS.allows(saga.getState(), SagaState.COMPENSATING));
+        assertFalse(TRANSITIONS.allows(saga.getState(), SagaState.BOOKING_COMPLETED));
+
+        // A partial success always goes through compensation
+        saga.setState(SagaState.ROOM_RESERVED_PAYMENT_FAILED);
+        assertTrue(TRANSITIONS.allows(saga.getState(), SagaState.COMPENSATING));
+        assertFalse(TRANSITIONS.allows(saga.getState(), SagaState.BOOKING_CANCELLED));
+
+        saga.setState(SagaState.PAYMENT_AUTHORIZED_ROOM_FAILED);
+        assertTrue(TRANSITIONS.allows(saga.getState(), SagaState.COMPENSATING));
+        assertFalse(TRANSITIONS.allows(saga.getState(), SagaState.PAYMENT_AUTHORIZED));
+    }
+
     @Test
     void sagaInstance_RetryLogic_HandlesRetryCountAndCanRetryCorrectly() {
         SagaInstance saga = new SagaInstance();
@@ -2,8 +2,12 @@ package org.example.integration;
 
 import org.example.bookingservice.BookingServiceApplication;
 import org.example.bookingservice.entity.SagaInstance;
+import org.example.bookingservice.entity.SagaPayload;
 import org.example.bookingservice.repository.SagaInstanceRepository;
+import org.example.bookingservice.repository.SagaPayloadRepository;
 import org.example.bookingservice.service.SagaTimeoutService;
+import org.example.common.codec.PayloadCodec;
+import org.example.common.dto.BookingRequest;
 import org.example.common.enumerations.SagaState;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,13 +29,19 @@ public class TimeoutHandlingTest {
     @Autowired
     private SagaTimeoutService timeoutService;
 
+    @Autowired
+    private SagaPayloadRepository payloadRepository;
+
+    @Autowired
+    private PayloadCodec payloadCodec;
+
     @Test
     void handleTimeouts_ExpiredSagasExist_SagaIsRetriedOrCompensated() {
         // Given - Create an expired saga
         SagaInstance saga = new SagaInstance();
         saga.setSagaId("expired-saga-123");
+        payloadRepository.save(new SagaPayload(saga.getSagaId(), payloadCodec.encode(new BookingRequest())));
         saga.setState(SagaState.STARTED);
-        saga.setSagaData("{}");
         saga = sagaRepository.save(saga);
 
         saga.setExpiresAt(LocalDateTime.now().minusMinutes(1)); // Already expired
@@ -52,8 +62,8 @@ public class TimeoutHandlingTest {
         // Given - Create a retryable saga that is NOT expired
         SagaInstance saga = new SagaInstance();
         saga.setSagaId("retryable-saga-456");
+        payloadRepository.save(new SagaPayload(saga.getSagaId(), payloadCodec.encode(new BookingRequest())));
         saga.setState(SagaState.ROOM_RESERVATION_FAILED);
-        saga.setSagaData("{}");
         saga.setRetryCount(1);
         SagaInstance finalSaga = sagaRepository.save(saga);
 
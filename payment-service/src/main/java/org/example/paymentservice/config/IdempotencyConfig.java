@@ -0,0 +1,64 @@
+package org.example.paymentservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.common.codec.JacksonPayloadCodec;
+import org.example.common.codec.PayloadCodec;
+import org.example.common.codec.PayloadFormat;
+import org.example.common.idempotency.IdempotencyCache;
+import org.example.common.idempotency.IdempotencyGuard;
+import org.example.common.idempotency.IdempotencyStore;
+import org.example.common.idempotency.RotatingBloomFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class IdempotencyConfig {
+
+    // Results are stored in idempotency_records in a compact binary format
+    @Bean
+    public PayloadCodec payloadCodec(ObjectMapper objectMapper,
+                                     @Value("${payload.codec.format:CBOR}") PayloadFormat format,
+                                     @Value("${payload.codec.compress:true}") boolean compress,
+                                     @Value("${payload.codec.compression-threshold:512}") int compressionThreshold) {
+        return new JacksonPayloadCodec(objectMapper, format, compress, compressionThreshold);
+    }
+
+    // Recent results of processed commands, in front of idempotency_records
+    @Bean
+    public IdempotencyCache idempotencyCache(@Value("${idempotency.cache.max-entries:10000}") int maxEntries,
+                                             @Value("${idempotency.cache.ttl:10m}") Duration ttl,
+                                             MeterRegistry meterRegistry) {
+        return new IdempotencyCache("payment-idempotency", maxEntries, ttl, meterRegistry);
+    }
+
+    // Keys stored recently, a definite miss skips idempotency_records. The filter remembers keys for at least
+    // the retention window plus the hour a record waits in its bucket, so it never rules out a record
+    // the purger has not removed yet.
+    @Bean
+    public RotatingBloomFilter idempotencyKeyFilter(@Value("${idempotency.key-filter.expected-keys:100000}") long expectedKeys,
+                                                    @Value("${idempotency.key-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                                                    @Value("${idempotency.key-filter.generations:3}") int generations,
+                                                    @Value("${idempotency.retention.window:24h}") Duration retention,
+                                                    MeterRegistry meterRegistry) {
+        Duration rotationInterval = retention.plusHours(1).dividedBy(generations - 1);
+        return new RotatingBloomFilter("payment-idempotency", expectedKeys, falsePositiveRate,
+                rotationInterval, generations, meterRegistry);
+    }
+
+    // Runs each command at most once per key, concurrent duplicates wait for the first result
+    @Bean
+    public IdempotencyGuard idempotencyGuard(IdempotencyCache idempotencyCache,
+                                             RotatingBloomFilter idempotencyKeyFilter,
+                                             IdempotencyStore idempotencyStore,
+                                             @Value("${idempotency.claim.lease:30s}") Duration claimLease,
+                                             @Value("${idempotency.claim.wait:5s}") Duration claimWait,
+                                             @Value("${idempotency.claim.poll-interval:50ms}") Duration pollInterval,
+                                             MeterRegistry meterRegistry) {
+        return new IdempotencyGuard("payment-idempotency", idempotencyCache, idempotencyKeyFilter, idempotencyStore,
+                claimLease, claimWait, pollInterval, meterRegistry);
+    }
+}
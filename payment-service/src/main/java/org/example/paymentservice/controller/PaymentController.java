@@ -5,16 +5,21 @@ import org.example.common.command.AuthorizePaymentCommand;
 import org.example.common.command.CancelPaymentCommand;
 import org.example.common.command.CommandResult;
 import org.example.common.dto.PaymentAuthorizationDto;
+import org.example.common.messaging.CommandEnvelope;
+import org.example.paymentservice.service.CommandInbox;
 import org.example.paymentservice.service.PaymentService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/payment")
 @RequiredArgsConstructor
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final CommandInbox commandInbox;
 
     @PostMapping("/authorize")
     public ResponseEntity<CommandResult<PaymentAuthorizationDto>> authorizePayment(
@@ -23,10 +28,25 @@ public class PaymentController {
         return ResponseEntity.ok(result);
     }
 
+    // Authorizations of concurrent sagas collected by the orchestrator, results in the order of the commands
+    @PostMapping("/authorize/batch")
+    public ResponseEntity<List<CommandResult<PaymentAuthorizationDto>>> authorizePayments(
+            @RequestBody List<AuthorizePaymentCommand> commands) {
+        List<CommandResult<PaymentAuthorizationDto>> results = paymentService.authorizePayments(commands);
+        return ResponseEntity.ok(results);
+    }
+
     @PostMapping("/cancel")
     public ResponseEntity<CommandResult<Void>> cancelPayment(
             @RequestBody CancelPaymentCommand command) {
         CommandResult<Void> result = paymentService.cancelPayment(command);
         return ResponseEntity.ok(result);
     }
-}
\ No newline at end of file
+
+    // Commands queued in booking-service's outbox, the result is posted back once processed
+    @PostMapping("/inbox")
+    public ResponseEntity<Void> acceptCommand(@RequestBody CommandEnvelope envelope) {
+        commandInbox.accept(envelope);
+        return ResponseEntity.accepted().build();
+    }
+}
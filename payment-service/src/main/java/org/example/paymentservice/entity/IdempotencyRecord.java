@@ -2,37 +2,64 @@ package org.example.paymentservice.entity;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.example.common.idempotency.IdempotencyStatus;
+import org.example.common.idempotency.RetentionBuckets;
 import org.hibernate.Hibernate;
 
 import java.time.LocalDateTime;
 import java.util.Objects;
+import java.util.UUID;
 
 @Entity
-@Table(name = "idempotency_records")
+@Table(name = "idempotency_records", indexes = {
+        @Index(name = "idx_idempotency_retention_bucket", columnList = "retentionBucket, idempotencyKey")
+})
 @Getter
 @Setter
 @ToString
 @RequiredArgsConstructor
 public class IdempotencyRecord {
+    // IdempotencyKeys.toUuid of the key the command carried
     @Id
-    private String idempotencyKey;
+    private UUID idempotencyKey;
 
-    @Column(columnDefinition = "TEXT")
-    private String resultData;
+    @Enumerated(EnumType.STRING)
+    private IdempotencyStatus status;
+
+    // Encoded by the PayloadCodec, null for commands without a result
+    @Column(length = 65536)
+    private byte[] resultData;
+
+    // When the key was claimed, and once completed when the result was stored
 
     private LocalDateTime processedAt;
 
+    // Hour of processedAt, expired buckets are purged as a whole
+    private Long retentionBucket;
+
     @PrePersist
     public void prePersist() {
-        processedAt = LocalDateTime.now();
+        if (processedAt == null) {
+            processedAt = LocalDateTime.now();
+        }
+        retentionBucket = RetentionBuckets.bucketOf(processedAt);
+    }
+
+    @PreUpdate
+    public void preUpdate() {
+        retentionBucket = RetentionBuckets.bucketOf(processedAt);
     }
 
     @Override
@@ -0,0 +1,6 @@
+package org.example.paymentservice.enumeration;
+
+public enum InboxStatus {
+    PENDING,  // waiting for a consumer, or for its reply to be delivered
+    DONE      // processed and the reply delivered
+}
@@ -1,7 +1,56 @@
 package org.example.paymentservice.repository;
 
 import org.example.paymentservice.entity.IdempotencyRecord;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface IdempotencyRepository extends JpaRepository<IdempotencyRecord, String> {
-}
\ No newline at end of file
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface IdempotencyRepository extends JpaRepository<IdempotencyRecord, UUID> {
+
+    // Keyset page over the primary key index, only the keys are read
+    @Query("SELECT r.idempotencyKey FROM IdempotencyRecord r WHERE r.idempotencyKey > :afterKey " +
+            "ORDER BY r.idempotencyKey")
+    List<UUID> findKeysAfter(@Param("afterKey") UUID afterKey, Limit limit);
+
+    // Insert-if-absent in one statement, the primary key settles two racing inserts
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_records (idempotency_key, status, processed_at, retention_bucket) " +
+            "SELECT :key, 'IN_PROGRESS', :now, :bucket WHERE NOT EXISTS " +
+            "(SELECT 1 FROM idempotency_records WHERE idempotency_key = :key)", nativeQuery = true)
+    int insertClaim(@Param("key") UUID key, @Param("now") LocalDateTime now, @Param("bucket") long bucket);
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.processedAt = :now, r.retentionBucket = :bucket " +
+            "WHERE r.idempotencyKey = :key " +
+            "AND r.status = org.example.common.idempotency.IdempotencyStatus.IN_PROGRESS " +
+            "AND r.processedAt < :staleBefore")
+    int takeOverStaleClaim(@Param("key") UUID key, @Param("now") LocalDateTime now, @Param("bucket") long bucket,
+                           @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key " +
+            "AND r.status = org.example.common.idempotency.IdempotencyStatus.IN_PROGRESS")
+    int deleteClaim(@Param("key") UUID key);
+
+    @Query("SELECT DISTINCT r.retentionBucket FROM IdempotencyRecord r WHERE r.retentionBucket < :cutoffBucket " +
+            "ORDER BY r.retentionBucket")
+    List<Long> findBucketsBefore(@Param("cutoffBucket") long cutoffBucket);
+
+    // Keyset page within one bucket, served by idx_idempotency_retention_bucket
+    @Query("SELECT r.idempotencyKey FROM IdempotencyRecord r WHERE r.retentionBucket = :bucket " +
+            "AND r.idempotencyKey > :afterKey ORDER BY r.idempotencyKey")
+    List<UUID> findKeysInBucket(@Param("bucket") long bucket, @Param("afterKey") UUID afterKey, Limit limit);
+
+    // Each batch commits on its own, so no lock is held across the purge
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey IN :keys")
+    int deleteByKeys(@Param("keys") List<UUID> keys);
+}
@@ -0,0 +1,30 @@
+package org.example.paymentservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.example.paymentservice.entity.PaymentAuthorization;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Inserts a batch of authorizations with one JDBC batch. Must run inside a transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PaymentAuthorizationBatchWriter {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insert(List<PaymentAuthorization> authorizations) {
+        jdbcTemplate.batchUpdate("INSERT INTO payment_authorizations (authorization_id, card_number, " +
+                        "card_holder_name, amount, currency, status, authorized_at, updated_at, version) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                authorizations.stream().map(authorization -> new Object[]{
+                        authorization.getAuthorizationId(), authorization.getCardNumber(),
+                        authorization.getCardHolderName(), authorization.getAmount(), authorization.getCurrency(),
+                        authorization.getStatus().name(), authorization.getAuthorizedAt(),
+                        authorization.getUpdatedAt(), authorization.getVersion()
+                }).toList());
+    }
+}
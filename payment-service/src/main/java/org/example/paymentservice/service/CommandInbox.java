@@ -0,0 +1,129 @@
+package org.example.paymentservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.example.common.codec.PayloadCodec;
+import org.example.common.command.CommandResult;
+import org.example.common.command.AuthorizePaymentCommand;
+import org.example.common.command.CancelPaymentCommand;
+import org.example.common.messaging.CommandEnvelope;
+import org.example.common.messaging.CommandReply;
+import org.example.common.messaging.CommandTypes;
+import org.example.paymentservice.entity.InboxMessage;
+import org.example.paymentservice.repository.InboxMessageRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/*
+ * Inbox for commands that booking-service queues in its outbox instead of calling /authorize or /cancel.
+ * Accepting a command only stores it. Consumers lock due commands with FOR UPDATE SKIP LOCKED and lease them in a
+ * short transaction, process them after commit through the same idempotent entry points as the REST API, and post
+ * each result to booking-service. A command whose reply could not be delivered is processed again later, which
+ * its idempotency key turns into a replay of the recorded result.
+ */
+@Service
+@Slf4j
+public class CommandInbox {
+
+    private final InboxMessageRepository inboxRepository;
+    private final PaymentService paymentService;
+    private final PayloadCodec payloadCodec;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final RestClient bookingClient;
+
+    @Value("${inbox.batch-size:20}")
+    private int batchSize;
+
+    @Value("${inbox.lease:30s}")
+    private Duration lease;
+
+    @Value("${inbox.retry-delay:5s}")
+    private Duration retryDelay;
+
+    public CommandInbox(InboxMessageRepository inboxRepository, PaymentService paymentService, PayloadCodec payloadCodec,
+                        ObjectMapper objectMapper, TransactionTemplate transactionTemplate,
+                        RestClient.Builder restClientBuilder,
+                        @Value("${services.booking.url:http://localhost:8080}") String bookingUrl) {
+        this.inboxRepository = inboxRepository;
+        this.paymentService = paymentService;
+        this.payloadCodec = payloadCodec;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.bookingClient = restClientBuilder.baseUrl(bookingUrl).build();
+    }
+
+    @Transactional
+    public void accept(CommandEnvelope envelope) {
+        inboxRepository.findById(envelope.getMessageId()).ifPresentOrElse(
+                InboxMessage::redeliver,
+                () -> inboxRepository.save(new InboxMessage(envelope.getMessageId(), envelope.getSagaId(),
+                        envelope.getCommandType(), payloadCodec.encode(envelope.getCommand()))));
+    }
+
+    /**
+     * Processes due commands until a batch comes back short. Scheduled by {@link CommandInboxPoller}.
+     */
+    public void consume() {
+        List<InboxMessage> batch;
+        do {
+            batch = leaseDueMessages();
+            batch.forEach(this::process);
+        } while (batch.size() == batchSize);
+    }
+
+    // A consumer that stops before replying leaves its batch to be picked up again once the lease ran out
+    private List<InboxMessage> leaseDueMessages() {
+        LocalDateTime now = LocalDateTime.now();
+        return transactionTemplate.execute(status -> {
+            List<InboxMessage> due = inboxRepository.lockDueMessages(now, batchSize);
+            for (InboxMessage message : due) {
+                message.setAttempts(message.getAttempts() + 1);
+                message.setAvailableAt(now.plus(lease));
+            }
+            return due;
+        });
+    }
+
+    private void process(InboxMessage message) {
+        CommandResult<?> result;
+        try {
+            result = dispatch(message);
+        } catch (Exception e) {
+            log.error("Processing " + message.getCommandType() + " for saga " + message.getSagaId() + " failed", e);
+            return;
+        }
+
+        CommandReply reply = new CommandReply(message.getMessageId(), message.getSagaId(), message.getCommandType(),
+                new CommandResult<>(result.isSuccess(), objectMapper.valueToTree(result.getData()),
+                        result.getErrorMessage(), result.getErrorCode()));
+        try {
+            bookingClient.post().uri("/api/booking/replies").body(reply).retrieve().toBodilessEntity();
+            inboxRepository.markDone(message.getMessageId());
+        } catch (Exception e) {
+            log.warn("Reply to {} for saga {} not delivered (attempt {}): {}", message.getCommandType(),
+                    message.getSagaId(), message.getAttempts(), e.getMessage());
+            inboxRepository.postpone(message.getMessageId(), LocalDateTime.now().plus(retryDelay));
+        }
+    }
+
+    private CommandResult<?> dispatch(InboxMessage message) throws JsonProcessingException {
+        JsonNode command = payloadCodec.decode(message.getCommand(), JsonNode.class);
+        return switch (message.getCommandType()) {
+            case CommandTypes.AUTHORIZE_PAYMENT ->
+                    paymentService.authorizePayment(objectMapper.treeToValue(command, AuthorizePaymentCommand.class));
+            case CommandTypes.CANCEL_PAYMENT ->
+                    paymentService.cancelPayment(objectMapper.treeToValue(command, CancelPaymentCommand.class));
+            default -> CommandResult.failure("Unsupported command: " + message.getCommandType(), "UNSUPPORTED_COMMAND");
+        };
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.paymentservice.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/*
+ * Polls the inbox on deployments whose commands arrive through booking-service's outbox (saga.transport=outbox
+ * there). Off by default, as commands sent over HTTP never reach the inbox.
+ */
+@Component
+@ConditionalOnProperty(name = "inbox.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class CommandInboxPoller {
+
+    private final CommandInbox commandInbox;
+
+    @Scheduled(fixedDelayString = "${inbox.poll-interval:200}")
+    public void poll() {
+        commandInbox.consume();
+    }
+}
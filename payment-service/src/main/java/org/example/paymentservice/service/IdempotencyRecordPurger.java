@@ -0,0 +1,63 @@
+package org.example.paymentservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.common.idempotency.RetentionBuckets;
+import org.example.paymentservice.repository.IdempotencyRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/*
+ * Deletes idempotency records once their whole retention bucket is older than the retention window.
+ * Records go in small keyset batches, each committed on its own, so inserts and lookups are never
+ * blocked for long. A duplicate arriving after its record was purged is processed as a new command.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyRecordPurger {
+
+    // Hashed keys are version 3 UUIDs, so no stored key sorts at or before this one
+    private static final UUID FIRST_KEY = new UUID(0L, 0L);
+
+    private final IdempotencyRepository idempotencyRepository;
+
+    @Value("${idempotency.retention.window:24h}")
+    private Duration retention;
+
+    @Value("${idempotency.retention.batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${idempotency.retention.purge-interval:600000}")
+    public void purgeExpiredRecords() {
+        long cutoffBucket = RetentionBuckets.bucketOf(LocalDateTime.now().minus(retention));
+        long purged = 0;
+        for (Long bucket : idempotencyRepository.findBucketsBefore(cutoffBucket)) {
+            purged += purgeBucket(bucket);
+        }
+        if (purged > 0) {
+            log.info("Purged {} idempotency records older than {}", purged, retention);
+        }
+    }
+
+    private long purgeBucket(long bucket) {
+        long purged = 0;
+        UUID afterKey = FIRST_KEY;
+        List<UUID> keys;
+        do {
+            keys = idempotencyRepository.findKeysInBucket(bucket, afterKey, Limit.of(batchSize));
+            if (!keys.isEmpty()) {
+                purged += idempotencyRepository.deleteByKeys(keys);
+                afterKey = keys.get(keys.size() - 1);
+            }
+        } while (keys.size() == batchSize);
+        return purged;
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.paymentservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.common.codec.PayloadCodec;
+import org.example.common.idempotency.CachedResult;
+import org.example.common.idempotency.IdempotencyStatus;
+import org.example.common.idempotency.IdempotencyStore;
+import org.example.common.idempotency.RetentionBuckets;
+import org.example.paymentservice.entity.IdempotencyRecord;
+import org.example.paymentservice.repository.IdempotencyRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyRecordStore implements IdempotencyStore {
+
+    private final IdempotencyRepository idempotencyRepository;
+    private final PayloadCodec payloadCodec;
+    private final JdbcTemplate jdbcTemplate;
+
+    // A record that cannot be read is treated as not processed
+    @Override
+    public <T> Optional<CachedResult<T>> findCompleted(UUID key, Class<T> type) {
+        return idempotencyRepository.findById(key)
+                .filter(record -> record.getStatus() == IdempotencyStatus.COMPLETED)
+                .flatMap(record -> {
+                    try {
+                        byte[] data = record.getResultData();
+                        return Optional.of(new CachedResult<>(data != null ? payloadCodec.decode(data, type) : null));
+                    } catch (Exception e) {
+                        log.error("Failed to deserialize cached result", e);
+                        return Optional.empty();
+                    }
+                });
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean claim(UUID key, LocalDateTime staleBefore) {
+        LocalDateTime now = LocalDateTime.now();
+        long bucket = RetentionBuckets.bucketOf(now);
+        return idempotencyRepository.insertClaim(key, now, bucket) == 1
+                || idempotencyRepository.takeOverStaleClaim(key, now, bucket, staleBefore) == 1;
+    }
+
+    // A failure propagates, rolling back the command's work so the claim is released and the command retried
+    @Override
+    @Transactional
+    public void complete(UUID key, Object result) {
+        IdempotencyRecord record = idempotencyRepository.findById(key).orElseGet(IdempotencyRecord::new);
+        record.setIdempotencyKey(key);
+        record.setStatus(IdempotencyStatus.COMPLETED);
+        record.setResultData(result != null ? payloadCodec.encode(result) : null);
+        record.setProcessedAt(LocalDateTime.now());
+        idempotencyRepository.save(record);
+    }
+
+    // The keys were claimed before the batch ran, so their records exist and are updated in one JDBC batch
+    @Override
+    @Transactional
+    public void completeAll(Map<UUID, Object> results) {
+        LocalDateTime now = LocalDateTime.now();
+        long bucket = RetentionBuckets.bucketOf(now);
+        List<Object[]> rows = new ArrayList<>(results.size());
+        results.forEach((key, result) ->
+                rows.add(new Object[]{result != null ? payloadCodec.encode(result) : null, now, bucket, key}));
+        jdbcTemplate.batchUpdate("UPDATE idempotency_records SET status = 'COMPLETED', result_data = ?, " +
+                "processed_at = ?, retention_bucket = ? WHERE idempotency_key = ?", rows);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void release(UUID key) {
+        idempotencyRepository.deleteClaim(key);
+    }
+}
@@ -1,23 +1,27 @@
 package org.example.paymentservice.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.common.command.AuthorizePaymentCommand;
 import org.example.common.command.CancelPaymentCommand;
 import org.example.common.command.CommandResult;
 import org.example.common.dto.PaymentAuthorizationDto;
-import org.example.paymentservice.entity.IdempotencyRecord;
+import org.example.common.idempotency.IdempotencyGuard;
 import org.example.paymentservice.entity.PaymentAuthorization;
 import org.example.paymentservice.enumeration.PaymentStatus;
-import org.example.paymentservice.repository.IdempotencyRepository;
+import org.example.paymentservice.repository.PaymentAuthorizationBatchWriter;
 import org.example.paymentservice.repository.PaymentAuthorizationRepository;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 import java.util.UUID;
@@ -28,8 +32,9 @@ import java.util.UUID;
 public class PaymentService {
 
     private final PaymentAuthorizationRepository paymentRepository;
-    private final IdempotencyRepository idempotencyRepository;
-    private final ObjectMapper objectMapper;
+    private final PaymentAuthorizationBatchWriter paymentBatchWriter;
+    private final IdempotencyGuard idempotencyGuard;
+    private final TransactionTemplate transactionTemplate;
     private final Random random = new Random();
 
     @Value("${payment.simulation.delay:0}")
@@ -38,25 +43,15 @@ public class PaymentService {
     @Value("${payment.simulation.failure-rate:0.0}")
     private double failureRate;
 
-    @Transactional(isolation = Isolation.READ_COMMITTED)
     public CommandResult<PaymentAuthorizationDto> authorizePayment(AuthorizePaymentCommand command) {
         log.info("Processing payment authorization for saga: {}", command.getSagaId());
 
-        // Check idempotency
-        Optional<IdempotencyRecord> existingRecord =
-                idempotencyRepository.findById(command.getIdempotencyKey());
-
-        if (existingRecord.isPresent()) {
-            log.info("Idempotent request detected for key: {}", command.getIdempotencyKey());
-            try {
-                PaymentAuthorizationDto cachedResult = objectMapper.readValue(
-                        existingRecord.get().getResultData(), PaymentAuthorizationDto.class);
-                return CommandResult.success(cachedResult);
-            } catch (Exception e) {
-                log.error("Failed to deserialize cached result", e);
-            }
-        }
+        // Duplicates are answered, or wait for the first request, before the transaction starts
+        return idempotencyGuard.execute(command.getIdempotencyKey(), PaymentAuthorizationDto.class,
+                () -> transactionTemplate.execute(status -> authorize(command)));
+    }
 
+    private CommandResult<PaymentAuthorizationDto> authorize(AuthorizePaymentCommand command) {
         // Simulate delay and failures
         simulateDelay();
         if (shouldSimulateFailure()) {
@@ -64,31 +59,18 @@ public class PaymentService {
         }
 
         try {
-            // Validate card (simplified validation)
-            if (!isValidCard(command.getCardNumber())) {
-                return CommandResult.failure("Invalid card number", "INVALID_CARD");
-            }
-
-            // Check for insufficient funds (simulate randomly)
-            if (random.nextDouble() < 0.1) { // 10% chance of insufficient funds
-                return CommandResult.failure("Insufficient funds", "INSUFFICIENT_FUNDS");
+            Optional<CommandResult<PaymentAuthorizationDto>> declined = decline(command);
+            if (declined.isPresent()) {
+                return declined.get();
             }
 
             // Create payment authorization
-            PaymentAuthorization authorization = new PaymentAuthorization();
-            authorization.setAuthorizationId(UUID.randomUUID().toString());
-            authorization.setCardNumber(maskCardNumber(command.getCardNumber()));
-            authorization.setCardHolderName(command.getCardHolderName());
-            authorization.setAmount(command.getAmount());
-            authorization.setCurrency(command.getCurrency());
-            authorization.setStatus(PaymentStatus.AUTHORIZED);
-
-            authorization = paymentRepository.save(authorization);
+            PaymentAuthorization authorization = paymentRepository.save(newAuthorization(command));
 
             PaymentAuthorizationDto result = mapToDto(authorization);
 
-            // Store idempotency record
-            storeIdempotencyRecord(command.getIdempotencyKey(), result);
+            // Completes the idempotency key in the same transaction
+            idempotencyGuard.complete(command.getIdempotencyKey(), result);
 
             log.info("Payment authorized successfully: {}", authorization.getAuthorizationId());
             return CommandResult.success(result);
@@ -102,19 +84,76 @@ public class PaymentService {
         }
     }
 
-    @Transactional(isolation = Isolation.READ_COMMITTED)
-    public CommandResult<Void> cancelPayment(CancelPaymentCommand command) {
-        log.info("Processing payment cancellation for authorization: {}", command.getAuthorizationId());
+    /**
+     * Authorizes a batch of payments, collected from concurrent sagas by the orchestrator.
+     * The results are returned in the order of the commands.
+     */
+    public List<CommandResult<PaymentAuthorizationDto>> authorizePayments(List<AuthorizePaymentCommand> commands) {
+        log.info("Processing batch of {} payment authorizations", commands.size());
 
-        // Check idempotency
-        Optional<IdempotencyRecord> existingRecord =
-                idempotencyRepository.findById(command.getIdempotencyKey());
+        return idempotencyGuard.executeAll(commands, AuthorizePaymentCommand::getIdempotencyKey,
+                PaymentAuthorizationDto.class, this::authorizeBatch);
+    }
 
-        if (existingRecord.isPresent()) {
-            log.info("Idempotent request detected for key: {}", command.getIdempotencyKey());
-            return CommandResult.success(null);
+    private List<CommandResult<PaymentAuthorizationDto>> authorizeBatch(List<AuthorizePaymentCommand> commands) {
+        // One simulated delay for the whole batch, simulated failures still hit single commands
+        simulateDelay();
+        List<CommandResult<PaymentAuthorizationDto>> results =
+                new ArrayList<>(Collections.nCopies(commands.size(), null));
+        List<Integer> authorized = new ArrayList<>();
+        List<PaymentAuthorization> authorizations = new ArrayList<>();
+        Map<String, PaymentAuthorizationDto> completed = new LinkedHashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = 0; i < commands.size(); i++) {
+            AuthorizePaymentCommand command = commands.get(i);
+            if (shouldSimulateFailure()) {
+                results.set(i, CommandResult.failure("Simulated payment service failure", "PAYMENT_SERVICE_ERROR"));
+                continue;
+            }
+            Optional<CommandResult<PaymentAuthorizationDto>> declined = decline(command);
+            if (declined.isPresent()) {
+                results.set(i, declined.get());
+                continue;
+            }
+
+            PaymentAuthorization authorization = newAuthorization(command);
+            authorization.setAuthorizedAt(now);
+            authorization.setUpdatedAt(now);
+            authorization.setVersion(0L);
+            authorizations.add(authorization);
+            authorized.add(i);
+
+            PaymentAuthorizationDto result = mapToDto(authorization);
+            completed.put(command.getIdempotencyKey(), result);
+            results.set(i, CommandResult.success(result));
+        }
+        if (authorizations.isEmpty()) {
+            return results;
         }
 
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                paymentBatchWriter.insert(authorizations);
+                // Completes the idempotency keys in the same transaction
+                idempotencyGuard.completeAll(completed);
+            });
+            log.info("Authorized {} payments in one batch", authorizations.size());
+        } catch (Exception e) {
+            log.error("Failed to authorize batch of " + authorizations.size() + " payments", e);
+            authorized.forEach(i -> results.set(i, CommandResult.failure("Internal server error", "INTERNAL_ERROR")));
+        }
+        return results;
+    }
+
+    public CommandResult<Void> cancelPayment(CancelPaymentCommand command) {
+        log.info("Processing payment cancellation for authorization: {}", command.getAuthorizationId());
+
+        return idempotencyGuard.execute(command.getIdempotencyKey(), Void.class,
+                () -> transactionTemplate.execute(status -> cancel(command)));
+    }
+
+    private CommandResult<Void> cancel(CancelPaymentCommand command) {
         try {
             Optional<PaymentAuthorization> authorizationOpt =
                     paymentRepository.findByIdForUpdate(command.getAuthorizationId());
@@ -127,7 +166,7 @@ public class PaymentService {
 
             if (authorization.getStatus() == PaymentStatus.CANCELLED) {
                 log.info("Authorization already cancelled: {}", command.getAuthorizationId());
-                storeIdempotencyRecord(command.getIdempotencyKey(), null);
+                idempotencyGuard.complete(command.getIdempotencyKey(), null);
                 return CommandResult.success(null);
             }
 
@@ -140,8 +179,8 @@ public class PaymentService {
             authorization.setStatus(PaymentStatus.CANCELLED);
             paymentRepository.save(authorization);
 
-            // Store idempotency record
-            storeIdempotencyRecord(command.getIdempotencyKey(), null);
+            // Completes the idempotency key in the same transaction
+            idempotencyGuard.complete(command.getIdempotencyKey(), null);
 
             log.info("Payment cancelled successfully: {}", command.getAuthorizationId());
             return CommandResult.success(null);
@@ -166,6 +205,30 @@ public class PaymentService {
         return random.nextDouble() < failureRate;
     }
 
+    private Optional<CommandResult<PaymentAuthorizationDto>> decline(AuthorizePaymentCommand command) {
+        // Validate card (simplified validation)
+        if (!isValidCard(command.getCardNumber())) {
+            return Optional.of(CommandResult.failure("Invalid card number", "INVALID_CARD"));
+        }
+
+        // Check for insufficient funds (simulate randomly)
+        if (random.nextDouble() < 0.1) { // 10% chance of insufficient funds
+            return Optional.of(CommandResult.failure("Insufficient funds", "INSUFFICIENT_FUNDS"));
+        }
+        return Optional.empty();
+    }
+
+    private PaymentAuthorization newAuthorization(AuthorizePaymentCommand command) {
+        PaymentAuthorization authorization = new PaymentAuthorization();
+        authorization.setAuthorizationId(UUID.randomUUID().toString());
+        authorization.setCardNumber(maskCardNumber(command.getCardNumber()));
+        authorization.setCardHolderName(command.getCardHolderName());
+        authorization.setAmount(command.getAmount());
+        authorization.setCurrency(command.getCurrency());
+        authorization.setStatus(PaymentStatus.AUTHORIZED);
+        return authorization;
+    }
+
     private boolean isValidCard(String cardNumber) {
         // Simplified Luhn algorithm check
         if (cardNumber == null || cardNumber.length() != 16) {
@@ -187,16 +250,6 @@ public class PaymentService {
         return "**** **** **** " + cardNumber.substring(cardNumber.length() - 4);
     }
 
-    private void storeIdempotencyRecord(String key, Object result) {
-        try {
-            IdempotencyRecord record = new IdempotencyRecord();
-            record.setIdempotencyKey(key);
-            record.setResultData(result != null ? objectMapper.writeValueAsString(result) : "null");
-            idempotencyRepository.save(record);
-        } catch (Exception e) {
-            log.error("Failed to store idempotency record", e);
-        }
-    }
 
     private PaymentAuthorizationDto mapToDto(PaymentAuthorization authorization) {
         PaymentAuthorizationDto dto = new PaymentAuthorizationDto();